@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import benchmarks.BetOperations;
+
+/**
+ * Default-package bridge between the JMH benchmarks and the application
+ * classes.
+ *
+ * @IOC
+ */
+public class BetOperationsImpl implements BetOperations {
+
+    private final BetLineParser parser = new BetLineParser();
+    private final UtilsIO io = new UtilsIO();
+    private DataFileUtils dataFile;
+
+    @Override
+    public void open(String directory, String file) {
+        dataFile = new DataFileUtils(directory, file);
+    }
+
+    @Override
+    public void enableBatchedWrites(int maxBatchSize, long maxLatencyMillis, boolean forceOnFlush) {
+        dataFile.enableBatchedWrites(maxBatchSize, maxLatencyMillis, forceOnFlush);
+    }
+
+    @Override
+    public void close() {
+        if (dataFile != null) {
+            dataFile.disableBatchedWrites();
+        }
+    }
+
+    @Override
+    public boolean insertBet(String sport, String event, String betType, float odds, float amount) {
+        return dataFile.insertBetIntoDataFile(sport, event, betType, odds, amount);
+    }
+
+    @Override
+    public String readAll() {
+        return dataFile.getInfoFromDataFileIntoString();
+    }
+
+    @Override
+    public void generate(Path file, long lines) throws IOException {
+        BetFileGenerator.generate(file, lines, 42L);
+    }
+
+    @Override
+    public double parseWithSplit(String line) {
+        String[] fields = line.split(",");
+        return Float.parseFloat(fields[4]) + Float.parseFloat(fields[5]);
+    }
+
+    @Override
+    public double parseWithParser(CharSequence line) {
+        return parser.parse(line) ? parser.odds() + parser.amount() : 0;
+    }
+
+    @Override
+    public double parseWithParser(ByteBuffer buffer, int start, int end) {
+        return parser.parse(buffer, start, end) ? parser.odds() + parser.amount() : 0;
+    }
+
+    @Override
+    public void showBets(String betList) {
+        io.showBets(betList);
+    }
+}
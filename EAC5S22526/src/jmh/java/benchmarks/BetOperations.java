@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Operations of the application measured by the benchmarks.
+ * <p>
+ * JMH only accepts benchmark classes inside a named package, and classes in a
+ * named package cannot refer to the application classes, which live in the
+ * default package. The default-package class {@code BetOperationsImpl}
+ * implements this interface and is loaded reflectively once per trial, so the
+ * measured calls are plain interface calls that the JIT inlines.
+ * </p>
+ *
+ * @IOC
+ */
+public interface BetOperations {
+
+    /**
+     * Loads the implementation living in the default package.
+     *
+     * @return a new instance of the operations
+     */
+    static BetOperations load() {
+        try {
+            return (BetOperations) Class.forName("BetOperationsImpl").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void open(String directory, String file);
+
+    void enableBatchedWrites(int maxBatchSize, long maxLatencyMillis, boolean forceOnFlush);
+
+    void close();
+
+    boolean insertBet(String sport, String event, String betType, float odds, float amount);
+
+    String readAll();
+
+    void generate(Path file, long lines) throws IOException;
+
+    double parseWithSplit(String line);
+
+    double parseWithParser(CharSequence line);
+
+    double parseWithParser(ByteBuffer buffer, int start, int end);
+
+    void showBets(String betList);
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@code DataFileUtils.insertBetIntoDataFile}, one line per
+ * write and in group-commit mode (with and without forcing each batch), from
+ * one and from eight threads.
+ *
+ * @IOC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+
+    @Param({"direct", "batched", "batched-force"})
+    public String mode;
+
+    private Path directory;
+    private BetOperations operations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkFiles.createDirectory();
+        operations = BetOperations.load();
+        operations.open(directory.toString(), "bets.txt");
+        if (!"direct".equals(mode)) {
+            operations.enableBatchedWrites(512, 0, "batched-force".equals(mode));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        operations.close();
+        BenchmarkFiles.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean insertSingleThread() {
+        return operations.insertBet("Futbol", "Barça-Madrid", "Guanyador Local", 1.85f, 50.0f);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean insertEightThreads() {
+        return operations.insertBet("Futbol", "Barça-Madrid", "Guanyador Local", 1.85f, 50.0f);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of parsing one bet line with {@code String.split} and
+ * {@code Float.parseFloat} compared with {@code BetLineParser} on text and on
+ * UTF-8 bytes.
+ *
+ * @IOC
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    private static final String LINE = "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00";
+
+    private BetOperations operations;
+    private ByteBuffer bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        operations = BetOperations.load();
+        bytes = ByteBuffer.wrap(LINE.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public double splitAndParseFloat() {
+        return operations.parseWithSplit(LINE);
+    }
+
+    @Benchmark
+    public double lineParserChars() {
+        return operations.parseWithParser(LINE);
+    }
+
+    @Benchmark
+    public double lineParserBytes() {
+        return operations.parseWithParser(bytes, 0, bytes.limit());
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock that serializes the appends to a data file across threads and
+ * processes.
+ * <p>
+ * Every process takes an exclusive {@link FileChannel#lock()} on the sidecar
+ * file {@code <data file>.lock} while it appends. Because a JVM cannot hold
+ * two overlapping locks on the same file, the threads of one process first
+ * queue on an in-process {@link ReentrantLock} shared by every instance for
+ * the same path. The lock is meant to be held for one write (or one batched
+ * write) only: writers find the end of the file, write and release.
+ * </p>
+ *
+ * <p>
+ * The lock file is opened once and its channel kept open until
+ * {@link #close()}, so taking the lock costs one lock and one unlock call on
+ * that channel and no open or close. The lock is reentrant: a
+ * {@link #withLock} nested in another one on the same thread runs its action
+ * under the lock already held, instead of asking the file system again, which
+ * would fail with an {@link java.nio.channels.OverlappingFileLockException}.
+ * </p>
+ *
+ * <p>
+ * Readers do not take the lock. Appends always write whole lines, so a reader
+ * that stops at the last newline (as {@link MappedBetScanner} and
+ * {@link BetRangeSpliterator} do) never sees a torn line.
+ * </p>
+ *
+ * @IOC
+ */
+public final class AppendLock implements AutoCloseable {
+
+    public static final String SUFFIX = ".lock";
+    private static final Map<Path, AppendLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path lockFile;
+    private final ReentrantLock local = new ReentrantLock();
+    private FileChannel channel;
+
+    /**
+     * Work done while holding the lock.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface LockedAction<T> {
+
+        /**
+         * Runs the locked work.
+         *
+         * @return the result of the work
+         * @throws IOException if the work fails
+         */
+        T run() throws IOException;
+    }
+
+    private AppendLock(Path lockFile) {
+        this.lockFile = lockFile;
+    }
+
+    /**
+     * Returns the lock shared by every writer of a data file in this process.
+     *
+     * @param dataFile the data file
+     * @return the lock of the file
+     */
+    public static AppendLock forFile(Path dataFile) {
+        return LOCKS.computeIfAbsent(dataFile.toAbsolutePath().normalize(),
+                path -> new AppendLock(lockFileOf(path)));
+    }
+
+    /**
+     * Returns the sidecar lock file of a data file.
+     *
+     * @param dataFile the data file
+     * @return the path of its lock file
+     */
+    public static Path lockFileOf(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Runs an action while holding the lock in this process and in the file
+     * system.
+     *
+     * @param <T>    the type of the result
+     * @param action the work to do, typically one append
+     * @return the result of the action
+     * @throws IOException if the lock cannot be taken or the action fails
+     */
+    public <T> T withLock(LockedAction<T> action) throws IOException {
+        local.lock();
+        try {
+            if (local.getHoldCount() > 1) {
+                return action.run();
+            }
+            FileLock lock = channel().lock();
+            try {
+                return action.run();
+            } finally {
+                lock.release();
+            }
+        } finally {
+            local.unlock();
+        }
+    }
+
+    /**
+     * Tells whether the calling thread holds the lock.
+     *
+     * @return true inside {@link #withLock}
+     */
+    public boolean isHeldByCurrentThread() {
+        return local.isHeldByCurrentThread();
+    }
+
+    /**
+     * Closes the channel of the lock file. The next {@link #withLock} opens
+     * it again, so the lock can still be used by other writers of the file in
+     * this process.
+     */
+    @Override
+    public void close() {
+        local.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // no lock is held on the channel
+        } finally {
+            channel = null;
+            local.unlock();
+        }
+    }
+
+    /**
+     * Returns the open channel of the lock file. A channel closed by the
+     * interrupt of a thread waiting for the lock is replaced.
+     */
+    private FileChannel channel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+}
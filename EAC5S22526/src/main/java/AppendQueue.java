@@ -0,0 +1,231 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free append queue that serializes the writers of a data file.
+ * <p>
+ * Writers add their record to a {@link ConcurrentLinkedQueue} and then try to
+ * become the combiner with a single compare-and-set. The combiner drains the
+ * queue, writes every drained record with one gathering write and runs their
+ * callbacks in file order; the other writers just wait for their record to be
+ * marked as written. Enqueuing never blocks; only the combiner takes the
+ * {@link AppendLock} of the file, shared with other processes, and only for
+ * that one write. There is no background thread: the work is done by
+ * whichever writer arrives first.
+ * </p>
+ *
+ * <p>
+ * The file is opened by name inside the lock for every combined write, like
+ * {@link BatchedBetWriter} does, so a record never lands in a file that has
+ * been deleted or replaced since the queue was created. When the file has a
+ * {@link ChecksumJournal}, each combined write gets one entry, written in the
+ * same locked section.
+ * </p>
+ *
+ * @IOC
+ */
+public class AppendQueue implements AutoCloseable {
+
+    private static final int MAX_BATCH = 1024;
+    private static final int SPINS = 64;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Path file;
+    private final AppendLock lock;
+    private final Supplier<ChecksumJournal> journal;
+    private final ConcurrentLinkedQueue<Node> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean combining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * Creates the queue of a file. Nothing is opened until the first append.
+     *
+     * @param file the data file to append to; it must exist when appending
+     */
+    public AppendQueue(Path file) {
+        this(file, () -> null);
+    }
+
+    /**
+     * Creates the queue of a file whose writes are journaled.
+     *
+     * @param file    the data file to append to; it must exist when appending
+     * @param journal returns the journal of the file at the time of each
+     *                write, or null when checksums are off
+     */
+    public AppendQueue(Path file, Supplier<ChecksumJournal> journal) {
+        this.file = file;
+        this.lock = AppendLock.forFile(file);
+        this.journal = journal;
+    }
+
+    /**
+     * Returns the file of the queue.
+     *
+     * @return the data file the records are appended to
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Returns the source of the journal of the queue.
+     *
+     * @return the supplier given at construction time
+     */
+    public Supplier<ChecksumJournal> journal() {
+        return journal;
+    }
+
+    /**
+     * Appends a record and waits until it has been written.
+     *
+     * @param record    the bytes to append
+     * @param onWritten receives the offset of the record right after it is
+     *                  written, in file order; may be null
+     * @return the byte offset in the file where the record was written
+     * @throws IllegalStateException if the queue is closed
+     * @throws RuntimeException      if an I/O error occurs or the callback fails
+     */
+    public long append(byte[] record, LongConsumer onWritten) {
+        if (closed) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_WRITER_CLOSED);
+        }
+        Node node = new Node(record, onWritten, Thread.currentThread());
+        queue.add(node);
+        int spins = 0;
+        while (!node.done) {
+            if (combining.compareAndSet(false, true)) {
+                try {
+                    combine();
+                } finally {
+                    combining.set(false);
+                }
+            } else if (++spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+        if (node.error != null) {
+            throw node.error;
+        }
+        return node.offset;
+    }
+
+    /**
+     * Writes the records still queued. Appends made after closing fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        while (!queue.isEmpty()) {
+            if (combining.compareAndSet(false, true)) {
+                try {
+                    combine();
+                } finally {
+                    combining.set(false);
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Drains the queue and writes the records. Only runs on the thread that
+     * holds the combining flag.
+     */
+    private void combine() {
+        List<Node> batch = new ArrayList<>();
+        Node next;
+        while (batch.size() < MAX_BATCH && (next = queue.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        byte[][] records = new byte[batch.size()][];
+        long total = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            records[i] = batch.get(i).data;
+            buffers[i] = ByteBuffer.wrap(records[i]);
+            total += buffers[i].remaining();
+        }
+        long size = total;
+        long offset;
+        try {
+            // the file is opened inside the lock so that a reset cannot swap
+            // it between the open and the write
+            offset = lock.withLock(() -> {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)) {
+                    long end = channel.size();
+                    long remaining = size;
+                    while (remaining > 0) {
+                        remaining -= channel.write(buffers);
+                    }
+                    ChecksumJournal checksums = journal.get();
+                    if (checksums != null) {
+                        checksums.append(channel, end, records);
+                    }
+                    return end;
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            RuntimeException failure = new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+            for (Node node : batch) {
+                node.error = failure;
+                node.release();
+            }
+            return;
+        }
+        for (Node node : batch) {
+            node.offset = offset;
+            try {
+                if (node.onWritten != null) {
+                    node.onWritten.accept(offset);
+                }
+            } catch (RuntimeException e) {
+                node.error = e;
+            }
+            offset += node.data.length;
+            node.release();
+        }
+    }
+
+    /**
+     * A queued record. Its result fields are written by the combiner before
+     * the volatile done flag, so the writer sees them once done is true.
+     */
+    private static final class Node {
+        final byte[] data;
+        final LongConsumer onWritten;
+        final Thread writer;
+        long offset;
+        RuntimeException error;
+        volatile boolean done;
+
+        Node(byte[] data, LongConsumer onWritten, Thread writer) {
+            this.data = data;
+            this.onWritten = onWritten;
+            this.writer = writer;
+        }
+
+        void release() {
+            done = true;
+            LockSupport.unpark(writer);
+        }
+    }
+}
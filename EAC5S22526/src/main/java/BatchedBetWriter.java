@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Group-commit writer that appends lines to a data file in batches.
+ * <p>
+ * Callers of {@link #append(String)} from any number of threads enqueue their
+ * line and wait. A single background thread drains the queue, gathering up to
+ * {@code maxBatchSize} lines or waiting at most {@code maxLatencyMillis} after
+ * the first one, and then writes the whole batch with one write call followed
+ * by an optional {@link FileChannel#force(boolean)}. Every caller of the batch
+ * is released only after that write (and force) has finished. The
+ * {@link AppendLock} of the file is held for that single write only, and for
+ * the {@link ChecksumJournal} entry of the batch, if the file has a journal.
+ * </p>
+ *
+ * @IOC
+ */
+public class BatchedBetWriter implements AutoCloseable {
+
+    private static final Pending SHUTDOWN = new Pending(new byte[0], null);
+
+    private final Path file;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final boolean forceOnFlush;
+    private final Supplier<ChecksumJournal> journal;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    /**
+     * Creates a writer for the given file and starts its flushing thread.
+     *
+     * @param file             the data file to append to; it must already exist
+     * @param maxBatchSize     maximum number of lines written by one flush
+     * @param maxLatencyMillis maximum time a flush waits for more lines after
+     *                         the first one
+     * @param forceOnFlush     whether each flush forces the data to the device
+     * @throws IllegalArgumentException if file is null, maxBatchSize is not
+     *                                  positive or maxLatencyMillis is negative
+     */
+    public BatchedBetWriter(Path file, int maxBatchSize, long maxLatencyMillis, boolean forceOnFlush) {
+        this(file, maxBatchSize, maxLatencyMillis, forceOnFlush, () -> null);
+    }
+
+    /**
+     * Creates a writer whose batches are journaled and starts its flushing
+     * thread.
+     *
+     * @param file             the data file to append to; it must already exist
+     * @param maxBatchSize     maximum number of lines written by one flush
+     * @param maxLatencyMillis maximum time a flush waits for more lines after
+     *                         the first one
+     * @param forceOnFlush     whether each flush forces the data to the device
+     * @param journal          returns the journal of the file at the time of
+     *                         each flush, or null when checksums are off
+     * @throws IllegalArgumentException if file or journal is null,
+     *                                  maxBatchSize is not positive or
+     *                                  maxLatencyMillis is negative
+     */
+    public BatchedBetWriter(Path file, int maxBatchSize, long maxLatencyMillis, boolean forceOnFlush,
+            Supplier<ChecksumJournal> journal) {
+        if (file == null || maxBatchSize <= 0 || maxLatencyMillis < 0 || journal == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_BATCH_CONFIG);
+        }
+        this.file = file;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.forceOnFlush = forceOnFlush;
+        this.journal = journal;
+        this.flusher = Thread.ofPlatform().daemon().name("bets-batched-writer").start(this::run);
+    }
+
+    /**
+     * Appends a line to the file and waits until the batch holding it has
+     * been written (and forced, if enabled).
+     *
+     * @param line the line to append, without its trailing newline
+     * @return the byte offset in the file where the line was written
+     * @throws IllegalStateException if the writer is closed
+     * @throws RuntimeException      if an I/O error occurs while writing the
+     *                               batch
+     */
+    public long append(String line) {
+        return append((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends raw bytes, such as a binary record, to the file and waits until
+     * the batch holding them has been written (and forced, if enabled).
+     *
+     * @param record the bytes to append
+     * @return the byte offset in the file where the bytes were written
+     * @throws IllegalStateException if the writer is closed
+     * @throws RuntimeException      if an I/O error occurs while writing the
+     *                               batch
+     */
+    public long append(byte[] record) {
+        return append(record, null);
+    }
+
+    /**
+     * Appends raw bytes and runs a callback with their offset on the flushing
+     * thread, right after the batch has been written. Callbacks run in file
+     * order, so they can keep order-sensitive indexes up to date.
+     *
+     * @param record    the bytes to append
+     * @param onWritten receives the offset of the bytes; may be null
+     * @return the byte offset in the file where the bytes were written
+     * @throws IllegalStateException if the writer is closed
+     * @throws RuntimeException      if an I/O error occurs while writing the
+     *                               batch, or the callback fails
+     */
+    public long append(byte[] record, LongConsumer onWritten) {
+        if (closed) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_WRITER_CLOSED);
+        }
+        Pending pending = new Pending(record, onWritten);
+        queue.add(pending);
+        try {
+            return pending.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Flushes the lines already queued and stops the flushing thread.
+     * Calls to {@link #append(String)} made after closing fail.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(SHUTDOWN);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending late;
+        while ((late = queue.poll()) != null) {
+            late.done.completeExceptionally(new IllegalStateException(Constants.MESSAGE_ERROR_WRITER_CLOSED));
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                Pending first = queue.take();
+                if (first == SHUTDOWN) {
+                    return;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < maxBatchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Pending next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == SHUTDOWN) {
+                        stop = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                stop = true;
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        for (Pending pending : batch) {
+            size += pending.data.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Pending pending : batch) {
+            buffer.put(pending.data);
+        }
+        buffer.flip();
+        try {
+            long offset = AppendLock.forFile(file).withLock(() -> {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)) {
+                    long end = channel.size();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    if (forceOnFlush) {
+                        channel.force(false);
+                    }
+                    ChecksumJournal checksums = journal.get();
+                    if (checksums != null) {
+                        checksums.append(channel, end, buffer.array());
+                    }
+                    return end;
+                }
+            });
+            for (Pending pending : batch) {
+                try {
+                    if (pending.onWritten != null) {
+                        pending.onWritten.accept(offset);
+                    }
+                    pending.done.complete(offset);
+                } catch (RuntimeException e) {
+                    pending.done.completeExceptionally(e);
+                }
+                offset += pending.data.length;
+            }
+        } catch (IOException | RuntimeException e) {
+            RuntimeException failure = new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+            for (Pending pending : batch) {
+                pending.done.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static final class Pending {
+        final byte[] data;
+        final LongConsumer onWritten;
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+
+        Pending(byte[] data, LongConsumer onWritten) {
+            this.data = data;
+            this.onWritten = onWritten;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Immutable bet record as stored in a line of the data file.
+ * <p>
+ * A valid line has exactly six comma separated columns: timestamp, sport,
+ * event, bet type, odds and amount.
+ * </p>
+ *
+ * <p>
+ * Odds and amount are stored as {@link FixedPoint} values, so they are exact
+ * and are written back to the line as they were read. The float constructor
+ * and accessors are kept for callers that work with floats.
+ * </p>
+ *
+ * @param timestamp       the bet timestamp in {@link Constants#DATE_FORMAT}
+ *                        format
+ * @param sport           the sport name
+ * @param event           the event name
+ * @param betType         the type of bet
+ * @param oddsThousandths the betting odds in thousandths
+ * @param amountCents     the bet amount in cents
+ *
+ * @IOC
+ */
+public record Bet(String timestamp, String sport, String event, String betType, long oddsThousandths,
+        long amountCents) {
+
+    /**
+     * Number of columns a well-formed bet line must have.
+     */
+    public static final int COLUMNS = 6;
+
+    /**
+     * Creates a bet from float odds and amount, rounded to thousandths and
+     * cents.
+     *
+     * @param timestamp the bet timestamp in {@link Constants#DATE_FORMAT} format
+     * @param sport     the sport name
+     * @param event     the event name
+     * @param betType   the type of bet
+     * @param odds      the betting odds
+     * @param amount    the bet amount
+     */
+    public Bet(String timestamp, String sport, String event, String betType, float odds, float amount) {
+        this(timestamp, sport, event, betType, FixedPoint.fromFloat(odds, FixedPoint.ODDS_DECIMALS),
+                FixedPoint.fromFloat(amount, FixedPoint.AMOUNT_DECIMALS));
+    }
+
+    /**
+     * Returns the betting odds as a float.
+     *
+     * @return the odds
+     */
+    public float odds() {
+        return FixedPoint.toFloat(oddsThousandths, FixedPoint.ODDS_DECIMALS);
+    }
+
+    /**
+     * Returns the bet amount as a float.
+     *
+     * @return the amount
+     */
+    public float amount() {
+        return FixedPoint.toFloat(amountCents, FixedPoint.AMOUNT_DECIMALS);
+    }
+
+    /**
+     * Parses a single data file line into a bet.
+     * <p>
+     * Lines rejected by {@link BetLineParser} are considered malformed. Code
+     * that parses many lines should reuse a {@link BetLineParser} instead.
+     * </p>
+     *
+     * @param line the raw line read from the data file
+     * @return the parsed bet, or null if the line is malformed
+     */
+    public static Bet parse(String line) {
+        BetLineParser parser = new BetLineParser();
+        return parser.parse(line) ? parser.toBet() : null;
+    }
+
+    /**
+     * Formats the bet as a data file line, without the trailing newline.
+     *
+     * @return the CSV line of the bet
+     */
+    public String toLine() {
+        StringBuilder line = new StringBuilder(timestamp.length() + sport.length() + event.length()
+                + betType.length() + 24);
+        line.append(timestamp).append(',').append(sport).append(',').append(event).append(',').append(betType)
+                .append(',');
+        FixedPoint.appendCompact(line, oddsThousandths, FixedPoint.ODDS_DECIMALS).append(',');
+        return FixedPoint.appendCompact(line, amountCents, FixedPoint.AMOUNT_DECIMALS).toString();
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Single-pass aggregation of bets into per-group stake and payout totals.
+ * <p>
+ * Bets are grouped by one column ({@link GroupBy}) and every group keeps a
+ * {@link Totals}: number of bets, total stake, total potential payout
+ * (stake times odds, rounded to cents per bet), minimum and maximum odds, and
+ * the sums needed for averages. All the sums are {@link FixedPoint} longs, so
+ * they are exact for any number of bets.
+ * </p>
+ *
+ * <p>
+ * An aggregator is a mutable partial result and is not thread safe. Parallel
+ * runs give each thread its own aggregator and {@link #merge} them, which is
+ * what {@link #aggregate(Stream, GroupBy)} and
+ * {@link ParallelBetScanner#aggregate} do.
+ * </p>
+ *
+ * @IOC
+ */
+public class BetAggregator {
+
+    /**
+     * The column the bets are grouped by.
+     */
+    public enum GroupBy {
+        SPORT, EVENT, BET_TYPE, HOUR, DAY
+    }
+
+    private static final long HOUR_DIVISOR = 100;
+    private static final long DAY_DIVISOR = 10_000;
+
+    private final GroupBy groupBy;
+    private final Map<String, Totals> groups = new HashMap<>();
+    private final StringDictionary keys = new StringDictionary();
+    private long lastBucket = -1;
+    private Totals lastTotals;
+
+    /**
+     * Creates an empty aggregator.
+     *
+     * @param groupBy the column to group by
+     * @throws IllegalArgumentException if groupBy is null
+     */
+    public BetAggregator(GroupBy groupBy) {
+        if (groupBy == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_GROUP_BY);
+        }
+        this.groupBy = groupBy;
+    }
+
+    /**
+     * Aggregates the bets of a stream, in parallel if the stream is parallel.
+     * The stream is consumed but not closed.
+     *
+     * @param bets    the bets to aggregate
+     * @param groupBy the column to group by
+     * @return the totals of every group, sorted by group key
+     */
+    public static SortedMap<String, Totals> aggregate(Stream<Bet> bets, GroupBy groupBy) {
+        return bets.collect(() -> new BetAggregator(groupBy), BetAggregator::add, BetAggregator::merge).result();
+    }
+
+    /**
+     * Adds a bet.
+     *
+     * @param bet the bet to add
+     */
+    public void add(Bet bet) {
+        Totals totals = switch (groupBy) {
+            case SPORT -> totalsOf(bet.sport());
+            case EVENT -> totalsOf(bet.event());
+            case BET_TYPE -> totalsOf(bet.betType());
+            case HOUR, DAY -> totalsOfBucket(Long.parseLong(bet.timestamp()));
+        };
+        totals.add(bet.oddsThousandths(), bet.amountCents());
+    }
+
+    /**
+     * Adds the bet a parser is positioned on, without creating a {@link Bet}.
+     * Group keys already seen are resolved without allocating when the parser
+     * reads from a buffer.
+     *
+     * @param bet the parser positioned on a well-formed bet
+     */
+    public void add(BetLineParser bet) {
+        Totals totals = switch (groupBy) {
+            case SPORT -> totalsOf(bet.fieldAsString(BetLineParser.SPORT, keys));
+            case EVENT -> totalsOf(bet.fieldAsString(BetLineParser.EVENT, keys));
+            case BET_TYPE -> totalsOf(bet.fieldAsString(BetLineParser.BET_TYPE, keys));
+            case HOUR, DAY -> totalsOfBucket(bet.timestamp());
+        };
+        totals.add(bet.oddsThousandths(), bet.amountCents());
+    }
+
+    /**
+     * Adds the groups of another aggregator to this one.
+     *
+     * @param other an aggregator with the same grouping
+     * @return this aggregator
+     */
+    public BetAggregator merge(BetAggregator other) {
+        other.groups.forEach((key, totals) -> totalsOf(key).merge(totals));
+        return this;
+    }
+
+    /**
+     * Returns a copy of the totals of every group.
+     *
+     * @return the totals sorted by group key; time buckets sort
+     *         chronologically
+     */
+    public SortedMap<String, Totals> result() {
+        SortedMap<String, Totals> result = new TreeMap<>();
+        groups.forEach((key, totals) -> result.put(key, totals.copy()));
+        return result;
+    }
+
+    private Totals totalsOf(String key) {
+        return groups.computeIfAbsent(key, k -> new Totals());
+    }
+
+    /**
+     * Returns the totals of the time bucket of a timestamp. Bets of the same
+     * bucket usually come in a row, so the last bucket is remembered and its
+     * key is only built once.
+     */
+    private Totals totalsOfBucket(long timestamp) {
+        long bucket = timestamp / (groupBy == GroupBy.HOUR ? HOUR_DIVISOR : DAY_DIVISOR);
+        if (bucket != lastBucket || lastTotals == null) {
+            lastBucket = bucket;
+            lastTotals = totalsOf(String.valueOf(bucket));
+        }
+        return lastTotals;
+    }
+
+    /**
+     * Running totals of a group. Amounts are in cents and odds in thousandths.
+     */
+    public static final class Totals {
+        private long count;
+        private long stakeCents;
+        private long payoutCents;
+        private long oddsThousandthsSum;
+        private long minOddsThousandths = Long.MAX_VALUE;
+        private long maxOddsThousandths = Long.MIN_VALUE;
+
+        /**
+         * Adds one bet.
+         *
+         * @param oddsThousandths the odds in thousandths
+         * @param amountCents     the stake in cents
+         * @throws ArithmeticException if the payout of the bet overflows
+         */
+        void add(long oddsThousandths, long amountCents) {
+            count++;
+            stakeCents += amountCents;
+            payoutCents += Math.floorDiv(Math.multiplyExact(amountCents, oddsThousandths) + 500, 1000);
+            oddsThousandthsSum += oddsThousandths;
+            minOddsThousandths = Math.min(minOddsThousandths, oddsThousandths);
+            maxOddsThousandths = Math.max(maxOddsThousandths, oddsThousandths);
+        }
+
+        void merge(Totals other) {
+            count += other.count;
+            stakeCents += other.stakeCents;
+            payoutCents += other.payoutCents;
+            oddsThousandthsSum += other.oddsThousandthsSum;
+            minOddsThousandths = Math.min(minOddsThousandths, other.minOddsThousandths);
+            maxOddsThousandths = Math.max(maxOddsThousandths, other.maxOddsThousandths);
+        }
+
+        Totals copy() {
+            Totals copy = new Totals();
+            copy.merge(this);
+            return copy;
+        }
+
+        /**
+         * Returns the number of bets of the group.
+         *
+         * @return the bet count
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Returns the total stake.
+         *
+         * @return the sum of the amounts, in cents
+         */
+        public long stakeCents() {
+            return stakeCents;
+        }
+
+        /**
+         * Returns the total potential payout.
+         *
+         * @return the sum of amount times odds, in cents
+         */
+        public long payoutCents() {
+            return payoutCents;
+        }
+
+        /**
+         * Returns the lowest odds of the group.
+         *
+         * @return the minimum odds in thousandths, or 0 for an empty group
+         */
+        public long minOddsThousandths() {
+            return count == 0 ? 0 : minOddsThousandths;
+        }
+
+        /**
+         * Returns the highest odds of the group.
+         *
+         * @return the maximum odds in thousandths, or 0 for an empty group
+         */
+        public long maxOddsThousandths() {
+            return count == 0 ? 0 : maxOddsThousandths;
+        }
+
+        /**
+         * Returns the average stake, rounded half up.
+         *
+         * @return the average amount in cents, or 0 for an empty group
+         */
+        public long averageStakeCents() {
+            return count == 0 ? 0 : Math.floorDiv(stakeCents * 2 + count, count * 2);
+        }
+
+        /**
+         * Returns the average odds, rounded half up.
+         *
+         * @return the average odds in thousandths, or 0 for an empty group
+         */
+        public long averageOddsThousandths() {
+            return count == 0 ? 0 : Math.floorDiv(oddsThousandthsSum * 2 + count, count * 2);
+        }
+    }
+}
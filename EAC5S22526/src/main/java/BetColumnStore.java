@@ -0,0 +1,307 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory columnar table of bets kept off-heap.
+ * <p>
+ * Rows are grouped in chunks of {@code chunkRows} rows. Each chunk is one
+ * direct {@code ByteBuffer} laid out column by column, so a row costs
+ * {@value #ROW_BYTES} bytes outside the heap:
+ * </p>
+ * <ul>
+ * <li>timestamp: {@code long}, the {@link Constants#DATE_FORMAT} value read as
+ * a number</li>
+ * <li>odds: {@code int}, in thousandths</li>
+ * <li>amount: {@code long}, in cents</li>
+ * <li>sport and bet type: unsigned {@code short} ids of two bounded
+ * {@link StringDictionary} instances</li>
+ * <li>event: {@code int} id of a {@link StringPool}</li>
+ * </ul>
+ *
+ * <p>
+ * Direct buffers count against {@code -XX:MaxDirectMemorySize}, which defaults
+ * to the maximum heap size; 50 million bets need about 1.4 GB. The FFM
+ * {@code MemorySegment} API is still a preview in Java 21, so chunks use
+ * direct buffers instead. The store is not thread safe.
+ * </p>
+ *
+ * @IOC
+ */
+public class BetColumnStore {
+
+    public static final int DEFAULT_CHUNK_ROWS = 1 << 20;
+    public static final int ROW_BYTES = 28;
+
+    private final int chunkRows;
+    private final int oddsColumn;
+    private final int amountColumn;
+    private final int sportColumn;
+    private final int betTypeColumn;
+    private final int eventColumn;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final StringDictionary sports;
+    private final StringDictionary betTypes;
+    private final StringPool events = new StringPool();
+    private long size;
+
+    /**
+     * Creates an empty store with the default chunk size.
+     */
+    public BetColumnStore() {
+        this(DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * Creates an empty store with its own in-memory dictionaries.
+     *
+     * @param chunkRows rows per off-heap chunk
+     * @throws IllegalArgumentException if chunkRows is not positive or a chunk
+     *                                  would exceed 2 GB
+     */
+    public BetColumnStore(int chunkRows) {
+        this(chunkRows, new StringDictionary(null, BinaryBetStore.MAX_SHORT_IDS),
+                new StringDictionary(null, BinaryBetStore.MAX_SHORT_IDS));
+    }
+
+    /**
+     * Creates an empty store whose sport and bet type ids come from the given
+     * dictionaries, for example the persisted ones of a {@link BinaryBetStore},
+     * so that they stay stable across restarts. Ids must fit in 16 bits.
+     *
+     * @param chunkRows rows per off-heap chunk
+     * @param sports    the dictionary of sports
+     * @param betTypes  the dictionary of bet types
+     * @throws IllegalArgumentException if chunkRows is not positive, a chunk
+     *                                  would exceed 2 GB or a dictionary is
+     *                                  null
+     */
+    public BetColumnStore(int chunkRows, StringDictionary sports, StringDictionary betTypes) {
+        if (sports == null || betTypes == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        if (chunkRows <= 0 || (long) chunkRows * ROW_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_WINDOW_SIZE);
+        }
+        this.chunkRows = chunkRows;
+        this.sports = sports;
+        this.betTypes = betTypes;
+        this.oddsColumn = chunkRows * Long.BYTES;
+        this.amountColumn = oddsColumn + chunkRows * Integer.BYTES;
+        this.sportColumn = amountColumn + chunkRows * Long.BYTES;
+        this.betTypeColumn = sportColumn + chunkRows * Short.BYTES;
+        this.eventColumn = betTypeColumn + chunkRows * Short.BYTES;
+    }
+
+    /**
+     * Appends a bet.
+     *
+     * @param bet the bet to append
+     * @return the row number of the bet
+     * @throws IllegalArgumentException if the timestamp is not made of digits
+     *                                  or the odds do not fit in an int
+     * @throws IllegalStateException    if there are more than 65536 sports or
+     *                                  bet types
+     */
+    public long append(Bet bet) {
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(bet.timestamp());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_TIMESTAMP, e);
+        }
+        return append(timestamp, bet.sport(), bet.event(), bet.betType(), bet.oddsThousandths(), bet.amountCents());
+    }
+
+    /**
+     * Appends the bet a parser is positioned on, without creating a
+     * {@link Bet}.
+     *
+     * @param bet the parser positioned on a well-formed bet
+     * @return the row number of the bet
+     * @throws IllegalArgumentException if the odds do not fit in an int
+     * @throws IllegalStateException    if there are more than 65536 sports or
+     *                                  bet types
+     */
+    public long append(BetLineParser bet) {
+        return append(bet.timestamp(), bet.fieldAsString(BetLineParser.SPORT),
+                bet.fieldAsString(BetLineParser.EVENT), bet.fieldAsString(BetLineParser.BET_TYPE),
+                bet.oddsThousandths(), bet.amountCents());
+    }
+
+    private long append(long timestamp, String sport, String event, String betType, long oddsThousandths,
+            long amountCents) {
+        if (oddsThousandths > Integer.MAX_VALUE || oddsThousandths < Integer.MIN_VALUE) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_BET);
+        }
+        int sportId = sports.idOf(sport);
+        int betTypeId = betTypes.idOf(betType);
+        if (sportId >= BinaryBetStore.MAX_SHORT_IDS || betTypeId >= BinaryBetStore.MAX_SHORT_IDS) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_POOL_FULL);
+        }
+        int index = (int) (size % chunkRows);
+        if (index == 0) {
+            chunks.add(ByteBuffer.allocateDirect(chunkRows * ROW_BYTES));
+        }
+        ByteBuffer chunk = chunks.get(chunks.size() - 1);
+        chunk.putLong(index * Long.BYTES, timestamp);
+        chunk.putInt(oddsColumn + index * Integer.BYTES, (int) oddsThousandths);
+        chunk.putLong(amountColumn + index * Long.BYTES, amountCents);
+        chunk.putShort(sportColumn + index * Short.BYTES, (short) sportId);
+        chunk.putShort(betTypeColumn + index * Short.BYTES, (short) betTypeId);
+        chunk.putInt(eventColumn + index * Integer.BYTES, events.intern(event));
+        return size++;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the row count
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the off-heap bytes reserved by the rows and the event pool.
+     *
+     * @return the reserved bytes
+     */
+    public long offHeapBytes() {
+        return (long) chunks.size() * chunkRows * ROW_BYTES + events.bytesUsed();
+    }
+
+    /**
+     * Returns the timestamp of a row as a number, for example
+     * {@code 202405101530}.
+     *
+     * @param row the row number
+     * @return the timestamp
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public long timestamp(long row) {
+        return chunkOf(row).getLong(indexOf(row) * Long.BYTES);
+    }
+
+    /**
+     * Returns the odds of a row in thousandths.
+     *
+     * @param row the row number
+     * @return the odds times 1000
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public int oddsThousandths(long row) {
+        return chunkOf(row).getInt(oddsColumn + indexOf(row) * Integer.BYTES);
+    }
+
+    /**
+     * Returns the amount of a row in cents.
+     *
+     * @param row the row number
+     * @return the amount times 100
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public long amountCents(long row) {
+        return chunkOf(row).getLong(amountColumn + indexOf(row) * Long.BYTES);
+    }
+
+    /**
+     * Returns the sport id of a row.
+     *
+     * @param row the row number
+     * @return the sport id
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public int sportId(long row) {
+        return Short.toUnsignedInt(chunkOf(row).getShort(sportColumn + indexOf(row) * Short.BYTES));
+    }
+
+    /**
+     * Returns the bet type id of a row.
+     *
+     * @param row the row number
+     * @return the bet type id
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public int betTypeId(long row) {
+        return Short.toUnsignedInt(chunkOf(row).getShort(betTypeColumn + indexOf(row) * Short.BYTES));
+    }
+
+    /**
+     * Returns the event id of a row.
+     *
+     * @param row the row number
+     * @return the event id
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public int eventId(long row) {
+        return chunkOf(row).getInt(eventColumn + indexOf(row) * Integer.BYTES);
+    }
+
+    /**
+     * Returns the id of a sport, or -1 if no row has it. Comparing ids is the
+     * cheap way to filter rows by sport.
+     *
+     * @param sport the sport to look up
+     * @return the sport id, or -1
+     */
+    public int sportIdOf(String sport) {
+        return sports.lookup(sport);
+    }
+
+    /**
+     * Returns the name of a sport id.
+     *
+     * @param sportId the sport id
+     * @return the sport
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public String sportName(int sportId) {
+        return sports.valueOf(sportId);
+    }
+
+    /**
+     * Returns the name of a bet type id.
+     *
+     * @param betTypeId the bet type id
+     * @return the bet type
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public String betTypeName(int betTypeId) {
+        return betTypes.valueOf(betTypeId);
+    }
+
+    /**
+     * Returns the name of an event id.
+     *
+     * @param eventId the event id
+     * @return the event
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public String eventName(int eventId) {
+        return events.get(eventId);
+    }
+
+    /**
+     * Rebuilds the bet of a row.
+     *
+     * @param row the row number
+     * @return the bet
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public Bet get(long row) {
+        return new Bet(String.valueOf(timestamp(row)), sportName(sportId(row)), eventName(eventId(row)),
+                betTypeName(betTypeId(row)), oddsThousandths(row), amountCents(row));
+    }
+
+    private ByteBuffer chunkOf(long row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(row);
+        }
+        return chunks.get((int) (row / chunkRows));
+    }
+
+    private int indexOf(long row) {
+        return (int) (row % chunkRows);
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Converts bet files between the CSV format and the {@link BinaryBetStore}
+ * format.
+ *
+ * @IOC
+ */
+public class BetFileConverter {
+
+    private BetFileConverter() {
+    }
+
+    /**
+     * Converts a CSV bets file into a binary one, replacing its records.
+     * Malformed CSV lines are skipped.
+     *
+     * @param csv    the CSV file to read
+     * @param binary the binary file to write
+     * @return the number of converted bets
+     * @throws IOException              if a file cannot be read or written
+     * @throws IllegalArgumentException if a bet timestamp is not a valid date
+     */
+    public static long csvToBinary(Path csv, Path binary) throws IOException {
+        BinaryBetStore store = new BinaryBetStore(binary);
+        BetLineParser parser = new BetLineParser();
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(binary), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (parser.parse(line)) {
+                    out.write(store.encode(parser.toBet()));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Converts a binary bets file into a CSV one, replacing its content.
+     *
+     * @param binary the binary file to read
+     * @param csv    the CSV file to write
+     * @return the number of converted bets
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long binaryToCsv(Path binary, Path csv) throws IOException {
+        BinaryBetStore store = new BinaryBetStore(binary);
+        long count = 0;
+        try (Stream<Bet> bets = store.stream();
+                BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            Iterator<Bet> iterator = bets.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next().toLine());
+                writer.write('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Command line entry point:
+     * {@code BetFileConverter csv2bin|bin2csv <source> <target>}.
+     *
+     * @param args the direction, the source file and the target file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("csv2bin") || args[0].equals("bin2csv"))) {
+            System.err.println("Ús: BetFileConverter csv2bin|bin2csv <origen> <destí>");
+            return;
+        }
+        Path source = Paths.get(args[1]);
+        Path target = Paths.get(args[2]);
+        long count = args[0].equals("csv2bin") ? csvToBinary(source, target) : binaryToCsv(source, target);
+        System.out.println(count + " apostes convertides");
+    }
+}
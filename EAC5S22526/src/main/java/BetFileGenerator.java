@@ -0,0 +1,103 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of synthetic bet files in the same format as {@code data/bets.txt}.
+ * <p>
+ * Timestamps grow one minute per line, and sports, events and bet types are
+ * drawn from small fixed sets, so generated files look like real ones to the
+ * parsers, indexes and benchmarks. The same seed always produces the same file.
+ * </p>
+ *
+ * @IOC
+ */
+public class BetFileGenerator {
+
+    private static final String[] SPORTS = {"Futbol", "Tenis", "Basket", "Motor", "Ciclisme"};
+    private static final String[][] EVENTS = {
+        {"Barça-Madrid", "Girona-Betis", "Espanyol-Eibar", "Man City-Arsenal", "PSG-Dortmund"},
+        {"Nadal-Alcaraz", "Sinner-Djokovic", "Badosa-Sabalenka"},
+        {"Lakers-Celtics", "Barça-Baskonia", "Joventut-Manresa"},
+        {"GP Montmeló", "GP Mònaco"},
+        {"Tour de França", "Volta a Catalunya"}
+    };
+    private static final String[] BET_TYPES = {"Guanyador Local", "Guanyador Visitant", "Empat",
+        "Més de 2.5 gols", "Handicap -5.5", "Ambdós marquen"};
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 10, 15, 30);
+
+    private BetFileGenerator() {
+    }
+
+    /**
+     * Writes a file with the given number of synthetic bets, replacing any
+     * existing content.
+     *
+     * @param file  the file to write
+     * @param lines the number of bets to generate
+     * @param seed  the seed of the random generator
+     * @throws IllegalArgumentException if file is null or lines is negative
+     * @throws IOException              if the file cannot be written
+     */
+    public static void generate(Path file, long lines, long seed) throws IOException {
+        if (file == null || lines < 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(Constants.DATE_FORMAT);
+        LocalDateTime time = START;
+        String timestamp = time.format(formatter);
+        StringBuilder line = new StringBuilder(128);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long i = 0; i < lines; i++) {
+                int sport = random.nextInt(SPORTS.length);
+                String[] events = EVENTS[sport];
+                line.setLength(0);
+                line.append(timestamp).append(',')
+                        .append(SPORTS[sport]).append(',')
+                        .append(events[random.nextInt(events.length)]).append(',')
+                        .append(BET_TYPES[random.nextInt(BET_TYPES.length)]).append(',');
+                appendHundredths(line, 101 + random.nextInt(1900));
+                line.append(',');
+                appendHundredths(line, 100 + random.nextInt(49_900));
+                line.append('\n');
+                writer.append(line);
+                time = time.plusMinutes(1);
+                timestamp = time.format(formatter);
+            }
+        }
+    }
+
+    /**
+     * Command line entry point: {@code BetFileGenerator <file> <lines> [seed]}.
+     *
+     * @param args the target file, the number of bets and an optional seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Ús: BetFileGenerator <fitxer> <línies> [llavor]");
+            return;
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        generate(Paths.get(args[0]), Long.parseLong(args[1]), seed);
+    }
+
+    private static void appendHundredths(StringBuilder target, int hundredths) {
+        target.append(hundredths / 100).append('.');
+        int cents = hundredths % 100;
+        if (cents < 10) {
+            target.append('0');
+        }
+        target.append(cents);
+    }
+}
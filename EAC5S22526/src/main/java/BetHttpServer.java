@@ -0,0 +1,243 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP endpoint that ingests and lists bets.
+ * <p>
+ * It is built on the JDK {@code com.sun.net.httpserver} and runs every
+ * request on its own virtual thread, so thousands of slow or idle connections
+ * only cost a few kilobytes each. The data file must be safe to share between
+ * threads, which is why the server takes a {@link ConcurrentDataFileUtils}.
+ * </p>
+ *
+ * <ul>
+ * <li>{@code POST /bets} stores the bets of the body, one
+ * {@code sport,event,betType,odds,amount} line per bet. The whole body is
+ * validated with the rules of
+ * {@link DataFileUtils#insertExactBetIntoDataFile} and then stored with a
+ * single {@link DataFileUtils#insertStringIntoDataFile} call, so a batch is
+ * written whole or not at all. Answers {@code 201} with the number of
+ * bets stored, or {@code 400} naming the first invalid line.</li>
+ * <li>{@code GET /bets} streams the stored bets as CSV lines. The optional
+ * {@code sport} and {@code event} parameters use the index, and {@code from}
+ * and {@code to} select a {@link Constants#DATE_FORMAT} time range; the
+ * bets are written as they are read, never collected in memory.</li>
+ * </ul>
+ *
+ * @IOC
+ */
+public class BetHttpServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_BACKLOG = 4096;
+    static final String PATH = "/bets";
+    private static final int SUBMISSION_COLUMNS = 5;
+    private static final int STOP_DELAY_SECONDS = 1;
+    private static final String FIRST_TIMESTAMP = "0";
+    private static final String LAST_TIMESTAMP = "999999999999";
+
+    private final ConcurrentDataFileUtils dataFile;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to a port; it does not accept requests until
+     * {@link #start()} is called.
+     *
+     * @param dataFile the data file receiving the bets
+     * @param port     the port to listen on, or 0 for any free port
+     * @throws IllegalArgumentException if dataFile is null
+     * @throws RuntimeException         if the port cannot be bound
+     */
+    public BetHttpServer(ConcurrentDataFileUtils dataFile, int port) {
+        if (dataFile == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        this.dataFile = dataFile;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(port), DEFAULT_BACKLOG);
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_SERVER_START, e);
+        }
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext(PATH, this::handle);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     *
+     * @return the local port
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, giving the requests in progress a moment to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                switch (exchange.getRequestMethod()) {
+                    case "POST" -> insert(exchange);
+                    case "GET" -> list(exchange);
+                    default -> reply(exchange, 405, Constants.MESSAGE_ERROR_METHOD);
+                }
+            } catch (IllegalArgumentException e) {
+                reply(exchange, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                reply(exchange, 500, e.getMessage());
+            }
+        }
+    }
+
+    private void insert(HttpExchange exchange) throws IOException {
+        StringBuilder content = new StringBuilder();
+        int stored = 0;
+        String timestamp = TimestampCodec.nowText();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] columns = line.split(",", -1);
+                if (columns.length != SUBMISSION_COLUMNS) {
+                    throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_LINE + number);
+                }
+                long odds = FixedPoint.parse(columns[3], FixedPoint.ODDS_DECIMALS);
+                long amount = FixedPoint.parse(columns[4], FixedPoint.AMOUNT_DECIMALS);
+                if (!DataFileUtils.isValidBet(columns[0], columns[1], columns[2], odds, amount)) {
+                    throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_LINE + number);
+                }
+                if (stored > 0) {
+                    content.append('\n');
+                }
+                content.append(new Bet(timestamp, columns[0], columns[1], columns[2], odds, amount).toLine());
+                stored++;
+            }
+        }
+        if (stored == 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        dataFile.insertStringIntoDataFile(content.toString());
+        reply(exchange, 201, String.valueOf(stored));
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String sport = query.get("sport");
+        String event = query.get("event");
+        String from = query.get("from");
+        String to = query.get("to");
+        Predicate<Bet> selected = bet -> (sport == null || bet.sport().equals(sport))
+                && (event == null || bet.event().equals(event));
+        if (from != null || to != null) {
+            String start = from == null ? FIRST_TIMESTAMP : from;
+            String end = to == null ? LAST_TIMESTAMP : to;
+            // checked before the headers are sent, so that errors still get
+            // their own status
+            if (!DataFileUtils.isValidTimestamp(start) || !DataFileUtils.isValidTimestamp(end)) {
+                throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_TIMESTAMP);
+            }
+            if (!dataFile.dataFileExists()) {
+                throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+            }
+            try (Writer writer = openCsv(exchange)) {
+                dataFile.forEachBetBetween(start, end, bet -> {
+                    if (selected.test(bet)) {
+                        writeRow(writer, bet);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+        Stream<Bet> bets;
+        if (sport != null) {
+            bets = (event == null ? dataFile.findBets(sport) : dataFile.findBets(sport, event)).stream();
+        } else {
+            bets = dataFile.streamBets();
+        }
+        try (Stream<Bet> rows = bets.filter(selected); Writer writer = openCsv(exchange)) {
+            for (Bet bet : (Iterable<Bet>) rows::iterator) {
+                writeRow(writer, bet);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Writer openCsv(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/csv; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                BetRenderer.BUFFER_SIZE);
+    }
+
+    private static void writeRow(Writer writer, Bet bet) {
+        try {
+            writer.write(bet.toLine());
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void reply(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = ((message == null ? "" : message) + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+}
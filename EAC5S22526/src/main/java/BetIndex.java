@@ -0,0 +1,294 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory index of bets by sport and event.
+ * <p>
+ * For every sport and event it keeps the file offsets of the matching
+ * records, in insertion order, as a growable {@code long} array. The index is
+ * thread safe and uses lock striping: sports are spread over
+ * {@value #STRIPES} stripes by hash, each with its own lock, so threads
+ * working on different sports rarely wait for each other.
+ * </p>
+ *
+ * @IOC
+ */
+public class BetIndex {
+
+    static final int STRIPES = 16;
+    private static final long[] EMPTY = new long[0];
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Creates an empty index.
+     */
+    public BetIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds the offset of a record.
+     *
+     * @param sport  the sport of the record
+     * @param event  the event of the record
+     * @param offset the offset of the record in the data file
+     */
+    public void add(String sport, String event, long offset) {
+        Stripe stripe = stripeOf(sport);
+        synchronized (stripe) {
+            stripe.bySport.computeIfAbsent(sport, key -> new HashMap<>())
+                    .computeIfAbsent(event, key -> new OffsetList())
+                    .add(offset);
+        }
+        size.increment();
+    }
+
+    /**
+     * Returns the offsets of the records of a sport and event.
+     *
+     * @param sport the sport to look up
+     * @param event the event to look up
+     * @return the offsets in insertion order; empty if there are none
+     */
+    public long[] offsets(String sport, String event) {
+        Stripe stripe = stripeOf(sport);
+        synchronized (stripe) {
+            Map<String, OffsetList> events = stripe.bySport.get(sport);
+            OffsetList list = events == null ? null : events.get(event);
+            return list == null ? EMPTY : list.toArray();
+        }
+    }
+
+    /**
+     * Returns the offsets of all the records of a sport, sorted by offset.
+     *
+     * @param sport the sport to look up
+     * @return the sorted offsets; empty if there are none
+     */
+    public long[] offsets(String sport) {
+        long[] result;
+        Stripe stripe = stripeOf(sport);
+        synchronized (stripe) {
+            Map<String, OffsetList> events = stripe.bySport.get(sport);
+            if (events == null) {
+                return EMPTY;
+            }
+            int total = 0;
+            for (OffsetList list : events.values()) {
+                total += list.size;
+            }
+            result = new long[total];
+            int position = 0;
+            for (OffsetList list : events.values()) {
+                System.arraycopy(list.values, 0, result, position, list.size);
+                position += list.size;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns the indexed sports, sorted alphabetically.
+     *
+     * @return the sports
+     */
+    public Set<String> sports() {
+        Set<String> sports = new TreeSet<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                sports.addAll(stripe.bySport.keySet());
+            }
+        }
+        return sports;
+    }
+
+    /**
+     * Returns the indexed events of a sport, sorted alphabetically.
+     *
+     * @param sport the sport to look up
+     * @return the events of the sport; empty if the sport is unknown
+     */
+    public Set<String> events(String sport) {
+        Stripe stripe = stripeOf(sport);
+        synchronized (stripe) {
+            Map<String, OffsetList> events = stripe.bySport.get(sport);
+            return events == null ? new TreeSet<>() : new TreeSet<>(events.keySet());
+        }
+    }
+
+    /**
+     * Returns the number of indexed records.
+     *
+     * @return the record count
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * Removes the offsets that match a predicate, for example those of a
+     * dropped segment.
+     *
+     * @param filter returns true for the offsets to remove
+     */
+    public void removeIf(LongPredicate filter) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Map<String, OffsetList> events : stripe.bySport.values()) {
+                    for (OffsetList list : events.values()) {
+                        size.add(-list.removeIf(filter));
+                    }
+                    events.values().removeIf(list -> list.size == 0);
+                }
+                stripe.bySport.values().removeIf(Map::isEmpty);
+            }
+        }
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Map<String, OffsetList> events : stripe.bySport.values()) {
+                    for (OffsetList list : events.values()) {
+                        size.add(-list.size);
+                    }
+                }
+                stripe.bySport.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the offsets below a limit, one stripe at a time, as a sequence of
+     * sport, event and delta-encoded offsets ended by a false marker.
+     *
+     * @param out   the output
+     * @param limit the first offset not written
+     * @throws IOException if the output fails
+     * @see IndexSnapshot
+     */
+    void writeTo(DataOutput out, long limit) throws IOException {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Map.Entry<String, Map<String, OffsetList>> sport : stripe.bySport.entrySet()) {
+                    for (Map.Entry<String, OffsetList> event : sport.getValue().entrySet()) {
+                        OffsetList list = event.getValue();
+                        int count = 0;
+                        for (int i = 0; i < list.size; i++) {
+                            if (list.values[i] < limit) {
+                                count++;
+                            }
+                        }
+                        if (count == 0) {
+                            continue;
+                        }
+                        out.writeBoolean(true);
+                        out.writeUTF(sport.getKey());
+                        out.writeUTF(event.getKey());
+                        IndexSnapshot.writeVarLong(out, count);
+                        long previous = 0;
+                        for (int i = 0; i < list.size; i++) {
+                            if (list.values[i] < limit) {
+                                IndexSnapshot.writeVarLong(out, IndexSnapshot.zigZag(list.values[i] - previous));
+                                previous = list.values[i];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Adds the offsets written by {@link #writeTo(DataOutput, long)}.
+     *
+     * @param in the input
+     * @throws IOException if the input fails or is not well formed
+     */
+    void readFrom(DataInput in) throws IOException {
+        while (in.readBoolean()) {
+            String sport = in.readUTF();
+            String event = in.readUTF();
+            long count = IndexSnapshot.readVarLong(in);
+            if (count < 0 || count > Integer.MAX_VALUE - 8) {
+                throw new IOException(Constants.MESSAGE_ERROR_SNAPSHOT);
+            }
+            OffsetList values = new OffsetList();
+            values.values = new long[Math.max(4, (int) count)];
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                previous += IndexSnapshot.unZigZag(IndexSnapshot.readVarLong(in));
+                values.add(previous);
+            }
+            Stripe stripe = stripeOf(sport);
+            synchronized (stripe) {
+                OffsetList list = stripe.bySport.computeIfAbsent(sport, key -> new HashMap<>())
+                        .computeIfAbsent(event, key -> new OffsetList());
+                for (int i = 0; i < values.size; i++) {
+                    list.add(values.values[i]);
+                }
+            }
+            size.add(values.size);
+        }
+    }
+
+    private Stripe stripeOf(String sport) {
+        int hash = sport == null ? 0 : sport.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * The sports of one stripe, guarded by the stripe itself.
+     */
+    private static final class Stripe {
+        final Map<String, Map<String, OffsetList>> bySport = new HashMap<>();
+    }
+
+    /**
+     * Growable array of offsets.
+     */
+    private static final class OffsetList {
+        long[] values = new long[4];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int removeIf(LongPredicate filter) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!filter.test(values[i])) {
+                    values[kept++] = values[i];
+                }
+            }
+            int removed = size - kept;
+            size = kept;
+            return removed;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable, allocation-free parser for the six-column bet line format.
+ * <p>
+ * A line has the form {@code yyyyMMddHHmm,sport,event,betType,odds,amount}.
+ * The parser works directly on a window of a {@link CharSequence} or a
+ * {@link ByteBuffer} holding UTF-8 text: the timestamp, odds and amount are
+ * decoded in place, and the text columns are exposed as offsets into the
+ * source so that no {@code String} is created unless it is asked for. The
+ * odds and amount go through one {@link FixedPoint.Accumulator} per parser,
+ * reset for each field, so parsing a line allocates nothing.
+ * </p>
+ *
+ * <p>
+ * A line is rejected (the parse methods return false) when it does not have
+ * exactly {@link Bet#COLUMNS} columns, when a text column is empty, when the
+ * timestamp is not made of digits only, or when odds or amount are not plain
+ * decimal numbers. These are the malformed lines that
+ * {@link UtilsIO#showBets(String)} skips.
+ * </p>
+ *
+ * <p>
+ * The sport and bet type columns repeat on almost every line, so
+ * {@link #fieldAsString(int)} and {@link #toBet()} resolve them through a
+ * {@link StringDictionary} and return one shared instance per value, found
+ * without allocating whether the source is text or bytes. By
+ * default every parser shares two bounded in-memory dictionaries of
+ * {@value #SHARED_DICTIONARY_SIZE} values each; values seen after they fill
+ * up are returned as new strings.
+ * </p>
+ *
+ * <p>
+ * An instance keeps a reference to the last parsed source and is not thread
+ * safe. Reuse one parser per thread.
+ * </p>
+ *
+ * @IOC
+ */
+public class BetLineParser {
+
+    public static final int TIMESTAMP = 0;
+    public static final int SPORT = 1;
+    public static final int EVENT = 2;
+    public static final int BET_TYPE = 3;
+    public static final int ODDS = 4;
+    public static final int AMOUNT = 5;
+
+    public static final int SHARED_DICTIONARY_SIZE = 4096;
+
+    private static final StringDictionary SHARED_SPORTS = new StringDictionary(null, SHARED_DICTIONARY_SIZE);
+    private static final StringDictionary SHARED_BET_TYPES = new StringDictionary(null, SHARED_DICTIONARY_SIZE);
+    private static final int MAX_DIGITS = 18;
+
+    private final int[] starts = new int[Bet.COLUMNS];
+    private final int[] ends = new int[Bet.COLUMNS];
+    private final FixedPoint.Accumulator number = new FixedPoint.Accumulator(0);
+    private final StringDictionary sports;
+    private final StringDictionary betTypes;
+    private CharSequence chars;
+    private ByteBuffer bytes;
+    private long timestamp;
+    private long odds;
+    private long amount;
+
+    /**
+     * Creates a parser that interns sports and bet types in the dictionaries
+     * shared by every parser.
+     */
+    public BetLineParser() {
+        this(SHARED_SPORTS, SHARED_BET_TYPES);
+    }
+
+    /**
+     * Creates a parser that interns sports and bet types in the given
+     * dictionaries.
+     *
+     * @param sports   the dictionary of sports, or null to not intern them
+     * @param betTypes the dictionary of bet types, or null to not intern them
+     */
+    public BetLineParser(StringDictionary sports, StringDictionary betTypes) {
+        this.sports = sports;
+        this.betTypes = betTypes;
+    }
+
+    /**
+     * Parses a whole line.
+     *
+     * @param line the line to parse, without its line terminator
+     * @return true if the line is a well-formed bet; false otherwise
+     */
+    public boolean parse(CharSequence line) {
+        return line != null && parse(line, 0, line.length());
+    }
+
+    /**
+     * Parses the window {@code [start, end)} of a character sequence.
+     * A trailing carriage return inside the window is ignored.
+     *
+     * @param source the characters holding the line
+     * @param start  index of the first character of the line
+     * @param end    index after the last character of the line
+     * @return true if the window is a well-formed bet; false otherwise
+     */
+    public boolean parse(CharSequence source, int start, int end) {
+        this.chars = source;
+        this.bytes = null;
+        if (end > start && source.charAt(end - 1) == '\r') {
+            end--;
+        }
+        int column = 0;
+        int fieldStart = start;
+        for (int i = start; i < end; i++) {
+            if (source.charAt(i) == ',') {
+                if (column == Bet.COLUMNS - 1) {
+                    return false;
+                }
+                starts[column] = fieldStart;
+                ends[column++] = i;
+                fieldStart = i + 1;
+            }
+        }
+        if (column != Bet.COLUMNS - 1) {
+            return false;
+        }
+        starts[column] = fieldStart;
+        ends[column] = end;
+        return decodeColumns();
+    }
+
+    /**
+     * Parses the window {@code [start, end)} of a buffer holding UTF-8 text.
+     * The buffer position and limit are not modified. A trailing carriage
+     * return inside the window is ignored.
+     *
+     * @param source the buffer holding the line
+     * @param start  absolute index of the first byte of the line
+     * @param end    absolute index after the last byte of the line
+     * @return true if the window is a well-formed bet; false otherwise
+     */
+    public boolean parse(ByteBuffer source, int start, int end) {
+        this.bytes = source;
+        this.chars = null;
+        if (end > start && source.get(end - 1) == '\r') {
+            end--;
+        }
+        int column = 0;
+        int fieldStart = start;
+        for (int i = start; i < end; i++) {
+            if (source.get(i) == ',') {
+                if (column == Bet.COLUMNS - 1) {
+                    return false;
+                }
+                starts[column] = fieldStart;
+                ends[column++] = i;
+                fieldStart = i + 1;
+            }
+        }
+        if (column != Bet.COLUMNS - 1) {
+            return false;
+        }
+        starts[column] = fieldStart;
+        ends[column] = end;
+        return decodeColumns();
+    }
+
+    /**
+     * Returns the timestamp of the last parsed line as a number, for example
+     * {@code 202405101530}.
+     *
+     * @return the numeric timestamp
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the odds of the last parsed line.
+     *
+     * @return the odds
+     */
+    public float odds() {
+        return FixedPoint.toFloat(odds, FixedPoint.ODDS_DECIMALS);
+    }
+
+    /**
+     * Returns the amount of the last parsed line.
+     *
+     * @return the amount
+     */
+    public float amount() {
+        return FixedPoint.toFloat(amount, FixedPoint.AMOUNT_DECIMALS);
+    }
+
+    /**
+     * Returns the odds of the last parsed line in thousandths, exactly as
+     * written (rounded half up past the third decimal).
+     *
+     * @return the odds times 1000
+     */
+    public long oddsThousandths() {
+        return odds;
+    }
+
+    /**
+     * Returns the amount of the last parsed line in cents, exactly as written
+     * (rounded half up past the second decimal).
+     *
+     * @return the amount times 100
+     */
+    public long amountCents() {
+        return amount;
+    }
+
+    /**
+     * Returns the index where a column starts in the parsed source.
+     *
+     * @param column the column index, from {@link #TIMESTAMP} to {@link #AMOUNT}
+     * @return the start index of the column
+     */
+    public int fieldStart(int column) {
+        return starts[column];
+    }
+
+    /**
+     * Returns the index after the end of a column in the parsed source.
+     *
+     * @param column the column index, from {@link #TIMESTAMP} to {@link #AMOUNT}
+     * @return the end index of the column
+     */
+    public int fieldEnd(int column) {
+        return ends[column];
+    }
+
+    /**
+     * Compares a column of the last parsed line with a text, without
+     * allocating.
+     *
+     * @param column the column index
+     * @param text   the text to compare with
+     * @return true if the column holds exactly the given text
+     */
+    public boolean fieldEquals(int column, CharSequence text) {
+        int start = starts[column];
+        int end = ends[column];
+        if (chars != null) {
+            if (end - start != text.length()) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (chars.charAt(start + i) != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        int pos = start;
+        for (int i = 0; i < text.length(); i++) {
+            int cp = Character.codePointAt(text, i);
+            if (Character.isSupplementaryCodePoint(cp)) {
+                i++;
+            }
+            if (cp < 0x80) {
+                if (pos >= end || bytes.get(pos++) != (byte) cp) {
+                    return false;
+                }
+            } else {
+                int count = cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+                if (end - pos < count) {
+                    return false;
+                }
+                int lead = count == 2 ? 0xC0 : count == 3 ? 0xE0 : 0xF0;
+                if (bytes.get(pos++) != (byte) (lead | (cp >> (6 * (count - 1))))) {
+                    return false;
+                }
+                for (int k = count - 2; k >= 0; k--) {
+                    if (bytes.get(pos++) != (byte) (0x80 | ((cp >> (6 * k)) & 0x3F))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return pos == end;
+    }
+
+    /**
+     * Materialises a column of the last parsed line as a String. Sports and
+     * bet types are returned as the canonical instance of their dictionary.
+     *
+     * @param column the column index
+     * @return the column text
+     */
+    public String fieldAsString(int column) {
+        return fieldAsString(column, column == SPORT ? sports : column == BET_TYPE ? betTypes : null);
+    }
+
+    /**
+     * Materialises a column of the last parsed line as the canonical instance
+     * of a dictionary. Values already in the dictionary are resolved without
+     * allocating.
+     *
+     * @param column     the column index
+     * @param dictionary the dictionary to intern the text in, or null for a
+     *                   new String
+     * @return the column text
+     */
+    public String fieldAsString(int column, StringDictionary dictionary) {
+        int start = starts[column];
+        int end = ends[column];
+        if (chars != null) {
+            return dictionary == null ? chars.subSequence(start, end).toString()
+                    : dictionary.intern(chars, start, end);
+        }
+        if (dictionary != null) {
+            return dictionary.intern(bytes, start, end);
+        }
+        byte[] text = new byte[end - start];
+        bytes.get(start, text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Materialises the last parsed line as a {@link Bet}.
+     *
+     * @return the parsed bet
+     */
+    public Bet toBet() {
+        return new Bet(fieldAsString(TIMESTAMP), fieldAsString(SPORT), fieldAsString(EVENT),
+                fieldAsString(BET_TYPE), odds, amount);
+    }
+
+    private boolean decodeColumns() {
+        for (int column = SPORT; column <= BET_TYPE; column++) {
+            if (starts[column] == ends[column]) {
+                return false;
+            }
+        }
+        int start = starts[TIMESTAMP];
+        int end = ends[TIMESTAMP];
+        if (end == start || end - start > MAX_DIGITS) {
+            return false;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            value = value * 10 + digit;
+        }
+        timestamp = value;
+        odds = parseFixedPoint(starts[ODDS], ends[ODDS], FixedPoint.ODDS_DECIMALS);
+        amount = parseFixedPoint(starts[AMOUNT], ends[AMOUNT], FixedPoint.AMOUNT_DECIMALS);
+        return odds != FixedPoint.INVALID && amount != FixedPoint.INVALID;
+    }
+
+    /**
+     * Parses {@code [-+]digits[.digits]} in place into a fixed-point value.
+     *
+     * @return the parsed value, or {@link FixedPoint#INVALID} if the text is
+     *         not a plain decimal
+     */
+    private long parseFixedPoint(int start, int end, int decimals) {
+        number.reset(decimals);
+        for (int i = start; i < end; i++) {
+            if (!number.accept(charAt(i), i == start)) {
+                return FixedPoint.INVALID;
+            }
+        }
+        return number.result();
+    }
+
+    private char charAt(int index) {
+        return chars != null ? chars.charAt(index) : (char) (bytes.get(index) & 0xFF);
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the bets of a byte range of a text bets file.
+ * <p>
+ * The range always starts at the beginning of a line and ends right after a
+ * newline, so every line belongs to exactly one range. {@link #trySplit()}
+ * cuts the range in half and moves the cut forward to the next line start,
+ * which lets {@code parallel()} streams and {@link ParallelBetScanner} spread
+ * a file over all cores. Each range is read through its own memory-mapped
+ * windows and parsed with its own {@link BetLineParser}.
+ * </p>
+ *
+ * @IOC
+ */
+public class BetRangeSpliterator implements Spliterator<Bet> {
+
+    static final long DEFAULT_MIN_SPLIT_SIZE = 8L * 1024 * 1024;
+    static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final int ALIGN_BLOCK = 8 * 1024;
+    private static final int AVERAGE_LINE_LENGTH = 64;
+
+    private final FileChannel channel;
+    private final long minSplitSize;
+    private final BetLineParser parser = new BetLineParser();
+    private long position;
+    private final long end;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLimit;
+
+    /**
+     * Creates a spliterator over {@code [start, end)}.
+     *
+     * @param channel      the channel of the bets file, shared by all splits
+     * @param start        offset of the first line of the range
+     * @param end          offset right after the last newline of the range
+     * @param minSplitSize ranges smaller than this are not split any further
+     */
+    BetRangeSpliterator(FileChannel channel, long start, long end, long minSplitSize) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+        this.minSplitSize = minSplitSize;
+    }
+
+    /**
+     * Creates a spliterator over all the complete lines of a file. A trailing
+     * line without newline is left out.
+     *
+     * @param channel      the channel of the bets file
+     * @param minSplitSize ranges smaller than this are not split any further
+     * @return a spliterator over the whole file
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    static BetRangeSpliterator overFile(FileChannel channel, long minSplitSize) {
+        return overFile(channel, 0, minSplitSize);
+    }
+
+    /**
+     * Creates a spliterator over the complete lines of a file that follow its
+     * first {@code skippedLines} lines. The skipped lines are found by
+     * counting line breaks, without parsing them.
+     *
+     * @param channel      the channel of the bets file
+     * @param skippedLines number of lines left out at the start of the file
+     * @param minSplitSize ranges smaller than this are not split any further
+     * @return a spliterator over the rest of the file
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    static BetRangeSpliterator overFile(FileChannel channel, long skippedLines, long minSplitSize) {
+        try {
+            long end = lastLineEnd(channel, channel.size());
+            return new BetRangeSpliterator(channel, lineStart(channel, skippedLines, end), end, minSplitSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Bet> action) {
+        if (!advance()) {
+            return false;
+        }
+        action.accept(parser.toBet());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Bet> action) {
+        while (advance()) {
+            action.accept(parser.toBet());
+        }
+    }
+
+    /**
+     * Passes every remaining well-formed bet to an action without creating
+     * {@link Bet} objects. The parser must not be kept after each call.
+     *
+     * @param action the action receiving the parser positioned on each bet
+     */
+    public void forEachParsed(Consumer<BetLineParser> action) {
+        while (advance()) {
+            action.accept(parser);
+        }
+    }
+
+    @Override
+    public BetRangeSpliterator trySplit() {
+        if (window != null || end - position < 2 * minSplitSize) {
+            return null;
+        }
+        try {
+            long cut = nextLineStart(position + (end - position) / 2);
+            if (cut <= position || cut >= end) {
+                return null;
+            }
+            BetRangeSpliterator prefix = new BetRangeSpliterator(channel, position, cut, minSplitSize);
+            position = cut;
+            return prefix;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return (end - position) / AVERAGE_LINE_LENGTH;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Moves to the next well-formed line of the range.
+     *
+     * @return true if the parser is positioned on a bet; false at the end
+     */
+    private boolean advance() {
+        try {
+            while (position < end) {
+                if (window == null || position >= windowStart + windowLimit) {
+                    map(position);
+                }
+                int lineStart = (int) (position - windowStart);
+                int newline = -1;
+                for (int i = lineStart; i < windowLimit; i++) {
+                    if (window.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline < 0) {
+                    if (windowStart + windowLimit < end) {
+                        if (lineStart == 0) {
+                            throw new IllegalStateException(Constants.MESSAGE_ERROR_WINDOW_SIZE);
+                        }
+                        map(position);
+                        continue;
+                    }
+                    newline = windowLimit;
+                }
+                position = windowStart + newline + 1;
+                if (parser.parse(window, lineStart, newline)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void map(long from) throws IOException {
+        long length = Math.min(WINDOW_SIZE, end - from);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        windowStart = from;
+        windowLimit = (int) length;
+    }
+
+    private long nextLineStart(long from) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(ALIGN_BLOCK);
+        long offset = from;
+        while (offset < end) {
+            block.clear();
+            int read = channel.read(block, offset);
+            if (read <= 0) {
+                return end;
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the offset right after the {@code lines}-th newline of the file,
+     * or {@code end} if there are not so many lines before it.
+     */
+    static long lineStart(FileChannel channel, long lines, long end) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(ALIGN_BLOCK);
+        long offset = 0;
+        long remaining = lines;
+        while (remaining > 0 && offset < end) {
+            block.clear().limit((int) Math.min(ALIGN_BLOCK, end - offset));
+            int read = channel.read(block, offset);
+            if (read <= 0) {
+                return end;
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n' && --remaining == 0) {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return Math.min(offset, end);
+    }
+
+    /**
+     * Returns the offset right after the last newline before {@code size}.
+     */
+    static long lastLineEnd(FileChannel channel, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(ALIGN_BLOCK);
+        long blockEnd = size;
+        while (blockEnd > 0) {
+            long blockStart = Math.max(0, blockEnd - ALIGN_BLOCK);
+            block.clear().limit((int) (blockEnd - blockStart));
+            int read = 0;
+            while (block.hasRemaining()) {
+                int n = channel.read(block, blockStart + read);
+                if (n <= 0) {
+                    break;
+                }
+                read += n;
+            }
+            for (int i = read - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return blockStart + i + 1;
+                }
+            }
+            blockEnd = blockStart;
+        }
+        return 0;
+    }
+}
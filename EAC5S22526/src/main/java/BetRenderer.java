@@ -0,0 +1,179 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.stream.Stream;
+
+/**
+ * Buffered, paginated renderer of bet listings.
+ * <p>
+ * The text columns of a row are formatted with
+ * {@link Constants#BET_ROW_FORMAT} and the odds and amount are appended as
+ * {@link FixedPoint} values, independent of the default locale, into a single
+ * reusable {@code StringBuilder} that is written through a large
+ * {@code BufferedWriter}, which is flushed explicitly at the end of every page
+ * and at the end of the listing instead of after every row. Bets are pulled
+ * lazily from the stream, so the full list is never held in memory.
+ * </p>
+ *
+ * <p>
+ * With a page size greater than zero the renderer stops after each page and
+ * waits for a line on its input: an empty line shows the next page and
+ * {@code q} ends the listing.
+ * </p>
+ *
+ * @IOC
+ */
+public class BetRenderer {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SEPARATOR =
+            "---------------------------------------------------------------------------------------";
+    private static final String QUIT = "q";
+
+    private final Writer writer;
+    private final Scanner input;
+    private final int pageSize;
+    private final StringBuilder row = new StringBuilder(128);
+    private final Formatter formatter = new Formatter(row);
+    private char[] chars = new char[128];
+
+    /**
+     * Creates a renderer that writes to a stream.
+     *
+     * @param out      the stream receiving the listing; it is flushed but never
+     *                 closed
+     * @param input    the scanner used to wait between pages; may be null when
+     *                 pageSize is 0
+     * @param pageSize rows per page, or 0 to show every row without stopping
+     * @throws IllegalArgumentException if out is null, pageSize is negative or
+     *                                  input is missing for a paged listing
+     */
+    public BetRenderer(PrintStream out, Scanner input, int pageSize) {
+        if (out == null || pageSize < 0 || (pageSize > 0 && input == null)) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, out.charset()), BUFFER_SIZE);
+        this.input = input;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Renders the header and the bets of a stream. To start at a later row,
+     * pass a stream that already starts there, such as
+     * {@link DataFileUtils#streamBets(long)}, which skips rows without parsing
+     * them.
+     *
+     * @param bets the bets to render
+     * @return the number of rows rendered
+     * @throws IllegalArgumentException if bets is null
+     * @throws RuntimeException         if the output cannot be written
+     */
+    public long render(Stream<Bet> bets) {
+        if (bets == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        try {
+            writer.write(SEPARATOR + "\n" + Constants.BETS_HEADER + "\n" + SEPARATOR + "\n"
+                    + Constants.BET_COLUMNS_HEADER + "\n");
+            Iterator<Bet> iterator = bets.iterator();
+            long rendered = 0;
+            while (iterator.hasNext()) {
+                writeRow(iterator.next());
+                rendered++;
+                if (pageSize > 0 && rendered % pageSize == 0 && iterator.hasNext() && !nextPage()) {
+                    break;
+                }
+            }
+            writer.flush();
+            return rendered;
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_OUTPUT, e);
+        }
+    }
+
+    /**
+     * Renders the totals of an aggregation, one row per group.
+     *
+     * @param totals the totals by group key, in display order
+     * @return the number of rows rendered
+     * @throws IllegalArgumentException if totals is null
+     * @throws RuntimeException         if the output cannot be written
+     */
+    public long renderTotals(Map<String, BetAggregator.Totals> totals) {
+        if (totals == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        try {
+            writer.write(SEPARATOR + "\n" + Constants.TOTALS_HEADER + "\n" + SEPARATOR + "\n"
+                    + Constants.TOTALS_COLUMNS_HEADER + "\n");
+            for (Map.Entry<String, BetAggregator.Totals> group : totals.entrySet()) {
+                writeTotalsRow(group.getKey(), group.getValue());
+            }
+            writer.flush();
+            return totals.size();
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_OUTPUT, e);
+        }
+    }
+
+    private void writeRow(Bet bet) throws IOException {
+        row.setLength(0);
+        formatter.format(Constants.BET_ROW_FORMAT, bet.timestamp(), bet.sport(), bet.event(), bet.betType());
+        FixedPoint.appendPadded(row.append(' '), bet.oddsThousandths(), FixedPoint.ODDS_DECIMALS,
+                Constants.BET_SHOWN_DECIMALS, Constants.BET_ODDS_WIDTH);
+        FixedPoint.appendPadded(row.append(' '), bet.amountCents(), FixedPoint.AMOUNT_DECIMALS,
+                Constants.BET_SHOWN_DECIMALS, Constants.BET_AMOUNT_WIDTH);
+        row.append('\n');
+        writeBuffered();
+    }
+
+    private void writeTotalsRow(String key, BetAggregator.Totals totals) throws IOException {
+        row.setLength(0);
+        formatter.format(Constants.TOTALS_ROW_FORMAT, key);
+        int start = row.append(' ').length();
+        row.append(totals.count());
+        while (row.length() - start < Constants.TOTALS_COUNT_WIDTH) {
+            row.insert(start, ' ');
+        }
+        appendMoney(totals.stakeCents(), FixedPoint.AMOUNT_DECIMALS, Constants.TOTALS_MONEY_WIDTH);
+        appendMoney(totals.payoutCents(), FixedPoint.AMOUNT_DECIMALS, Constants.TOTALS_MONEY_WIDTH);
+        appendMoney(totals.averageStakeCents(), FixedPoint.AMOUNT_DECIMALS, Constants.BET_AMOUNT_WIDTH);
+        appendMoney(totals.minOddsThousandths(), FixedPoint.ODDS_DECIMALS, Constants.BET_ODDS_WIDTH);
+        appendMoney(totals.maxOddsThousandths(), FixedPoint.ODDS_DECIMALS, Constants.BET_ODDS_WIDTH);
+        appendMoney(totals.averageOddsThousandths(), FixedPoint.ODDS_DECIMALS, Constants.BET_ODDS_WIDTH);
+        row.append('\n');
+        writeBuffered();
+    }
+
+    private void appendMoney(long value, int decimals, int width) {
+        FixedPoint.appendPadded(row.append(' '), value, decimals, Constants.BET_SHOWN_DECIMALS, width);
+    }
+
+    private void writeBuffered() throws IOException {
+        if (row.length() > chars.length) {
+            chars = new char[row.length() * 2];
+        }
+        row.getChars(0, row.length(), chars, 0);
+        writer.write(chars, 0, row.length());
+    }
+
+    /**
+     * Flushes the current page and waits for the user.
+     *
+     * @return true to show the next page; false to stop
+     */
+    private boolean nextPage() throws IOException {
+        writer.write(Constants.MESSAGE_NEXT_PAGE + "\n");
+        writer.flush();
+        if (!input.hasNextLine()) {
+            return false;
+        }
+        return !QUIT.equalsIgnoreCase(input.nextLine().trim());
+    }
+}
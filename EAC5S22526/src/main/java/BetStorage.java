@@ -0,0 +1,887 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Storage and indexing behind a {@link DataFileUtils}.
+ * <p>
+ * It owns the stores of the data file and every component that writes to it
+ * or follows it: the {@link BatchedBetWriter}, the {@link AppendQueue}, the
+ * {@link FileSession}, the {@link ChecksumJournal}, the snapshot thread and
+ * the {@link DataFileWatcher}. Every append goes through
+ * {@link #appendRecord}, which picks the writer and keeps the
+ * {@link BetIndex}, the {@link SparseTimestampIndex} and the indexed length
+ * in step with the file, so the rules about locks and indexing order live in
+ * one place. {@link DataFileUtils} validates and encodes the bets and
+ * delegates here.
+ * </p>
+ *
+ * <p>
+ * Methods do not check that the data file exists; the caller does, since
+ * {@link ConcurrentDataFileUtils} answers that from a cache.
+ * </p>
+ *
+ * @IOC
+ */
+final class BetStorage implements AutoCloseable {
+
+    static final String RESET_SUFFIX = ".reset";
+    static final String RETIRED_SUFFIX = ".old";
+
+    private final Path file;
+    private final StorageFormat storageFormat;
+    private volatile BinaryBetStore binaryStore;
+    private volatile SegmentedBetStore segmentedStore;
+    private volatile BatchedBetWriter batchedWriter;
+    private volatile AppendQueue appendQueue;
+    private volatile FileSession session;
+    private volatile ChecksumJournal journal;
+    private volatile Thread snapshotter;
+    private volatile DataFileWatcher watcher;
+    private final BetIndex index = new BetIndex();
+    private final SparseTimestampIndex timestampIndex = new SparseTimestampIndex();
+    private final AtomicLong indexedUpTo = new AtomicLong();
+
+    /**
+     * Opens the stores of a data file and loads its indexes, from the
+     * {@link IndexSnapshot} when there is a usable one.
+     *
+     * @param file          the data file, or the manifest of a segmented store
+     * @param storageFormat the on-disk format of the data file
+     * @throws RuntimeException if the file cannot be read
+     */
+    BetStorage(Path file, StorageFormat storageFormat) {
+        this.file = file;
+        this.storageFormat = storageFormat;
+        if (storageFormat == StorageFormat.BINARY) {
+            this.binaryStore = new BinaryBetStore(file);
+        } else if (storageFormat == StorageFormat.SEGMENTED) {
+            this.segmentedStore = new SegmentedBetStore(file);
+        }
+        loadIndex();
+    }
+
+    /**
+     * Returns the binary store of the data file.
+     *
+     * @return the store, or null if the file is not stored in binary
+     */
+    BinaryBetStore binaryStore() {
+        return binaryStore;
+    }
+
+    /**
+     * Returns the segmented store of the data file.
+     *
+     * @return the store, or null if the data is not stored in segments
+     */
+    SegmentedBetStore segmentedStore() {
+        return segmentedStore;
+    }
+
+    /**
+     * Returns the sport and event index.
+     *
+     * @return the index kept up to date by the appends
+     */
+    BetIndex index() {
+        return index;
+    }
+
+    /**
+     * Appends the lines of a text insert in a single write and indexes the
+     * well-formed bets among them.
+     *
+     * @param content the lines, without the final newline
+     */
+    void appendText(String content) {
+        appendRecord((content + "\n").getBytes(StandardCharsets.UTF_8), offset -> indexLines(content, offset));
+    }
+
+    /**
+     * Appends bets as consecutive binary records in a single write and
+     * indexes them.
+     *
+     * @param bets the bets to store
+     */
+    void appendBinary(List<Bet> bets) {
+        ByteBuffer records = ByteBuffer.allocate(bets.size() * BinaryBetStore.RECORD_SIZE);
+        for (Bet bet : bets) {
+            records.put(binaryStore.encode(bet));
+        }
+        appendRecord(records.array(), offset -> {
+            long position = offset;
+            for (Bet bet : bets) {
+                index.add(bet.sport(), bet.event(), position);
+                timestampIndex.add(Long.parseLong(bet.timestamp()), position);
+                position += BinaryBetStore.RECORD_SIZE;
+            }
+        });
+    }
+
+    /**
+     * Appends well-formed bet lines to the segments of their months and
+     * indexes them by address.
+     *
+     * @param lines the bet lines, already validated
+     */
+    void appendSegmented(List<String> lines) {
+        BetLineParser parser = new BetLineParser();
+        for (String line : lines) {
+            long address = segmentedStore.append(line);
+            parser.parse(line);
+            index.add(parser.fieldAsString(BetLineParser.SPORT), parser.fieldAsString(BetLineParser.EVENT),
+                    address);
+        }
+    }
+
+    /**
+     * Appends an encoded record to the data file, through the batched writer
+     * when it is enabled, the append queue when there is one or the session
+     * when it is open, and then passes its offset to the indexer and marks it
+     * as indexed for the next {@link IndexSnapshot}. While the file is
+     * watched the record is still indexed directly, and the watcher only
+     * reads the file when other processes have appended to it before the
+     * record; see {@link DataFileWatcher#appended}. Both writers run the
+     * indexer in file order, which the timestamp index relies on. Every path
+     * holds the {@link AppendLock} of the file only while it writes the
+     * record and its {@link ChecksumJournal} entry, if enabled.
+     *
+     * @param record    the bytes of the record
+     * @param onWritten receives the byte offset where the record was written
+     * @return the byte offset where the record was written
+     */
+    private long appendRecord(byte[] record, LongConsumer onWritten) {
+        DataFileWatcher follower = this.watcher;
+        LongConsumer indexer = offset -> {
+            if (follower != null) {
+                follower.appended(offset, record.length, onWritten);
+            } else {
+                onWritten.accept(offset);
+            }
+            indexedUpTo.accumulateAndGet(offset + record.length, Math::max);
+        };
+        BatchedBetWriter writer = this.batchedWriter;
+        if (writer != null) {
+            return writer.append(record, indexer);
+        }
+        AppendQueue queue = this.appendQueue;
+        if (queue != null) {
+            return queue.append(record, indexer);
+        }
+        FileSession current = this.session;
+        if (current != null) {
+            long offset = current.append(record, this.journal);
+            indexer.accept(offset);
+            return offset;
+        }
+        try {
+            // the file is opened inside the lock so that a reset cannot swap
+            // it between the open and the write
+            long offset = AppendLock.forFile(file).withLock(() -> {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)) {
+                    long end = channel.size();
+                    ByteBuffer buffer = ByteBuffer.wrap(record);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    ChecksumJournal checksums = this.journal;
+                    if (checksums != null) {
+                        checksums.append(channel, end, record);
+                    }
+                    return end;
+                }
+            });
+            indexer.accept(offset);
+            return offset;
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+    }
+
+    /**
+     * Adds the well-formed bet lines of inserted content to the index.
+     *
+     * @param content the inserted content, possibly with several lines
+     * @param offset  the offset where the content was written
+     */
+    private void indexLines(String content, long offset) {
+        BetLineParser parser = new BetLineParser();
+        int start = 0;
+        while (start <= content.length()) {
+            int end = content.indexOf('\n', start);
+            if (end < 0) {
+                end = content.length();
+            }
+            if (parser.parse(content, start, end)) {
+                index.add(parser.fieldAsString(BetLineParser.SPORT), parser.fieldAsString(BetLineParser.EVENT),
+                        offset);
+                timestampIndex.add(parser.timestamp(), offset);
+            }
+            if (end < content.length()) {
+                offset += content.substring(start, end).getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Sends every append through a shared {@link AppendQueue}, for an
+     * instance used by several threads.
+     */
+    void enableAppendQueue() {
+        this.appendQueue = new AppendQueue(file, () -> journal);
+    }
+
+    /**
+     * Switches inserts to group-commit mode, replacing the previous batched
+     * writer.
+     *
+     * @see DataFileUtils#enableBatchedWrites(int, long, boolean)
+     */
+    void enableBatchedWrites(int maxBatchSize, long maxLatencyMillis, boolean forceOnFlush) {
+        BatchedBetWriter previous = this.batchedWriter;
+        this.batchedWriter = new BatchedBetWriter(file, maxBatchSize, maxLatencyMillis, forceOnFlush,
+                () -> journal);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Flushes any queued insert and goes back to writing one line per insert.
+     */
+    void disableBatchedWrites() {
+        BatchedBetWriter writer = this.batchedWriter;
+        this.batchedWriter = null;
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Clears the indexes and rebuilds them with a full scan of the data file,
+     * if it exists.
+     *
+     * @throws RuntimeException if an I/O error occurs while reading the file
+     */
+    void rebuildIndex() {
+        clearIndexes();
+        if (session == null && !Files.exists(file)) {
+            return;
+        }
+        indexFrom(0);
+    }
+
+    private void clearIndexes() {
+        index.clear();
+        timestampIndex.clear();
+        indexedUpTo.set(0);
+    }
+
+    /**
+     * Fills the empty indexes from the snapshot, if there is a usable one, and
+     * indexes only the records appended after it; otherwise rebuilds them
+     * with a full scan.
+     */
+    private void loadIndex() {
+        if (storageFormat == StorageFormat.SEGMENTED || !Files.exists(file)) {
+            rebuildIndex();
+            return;
+        }
+        long covered = new IndexSnapshot(file, storageFormat).load(index, timestampIndex);
+        if (covered < 0) {
+            rebuildIndex();
+            return;
+        }
+        indexedUpTo.set(covered);
+        indexFrom(covered);
+    }
+
+    /**
+     * Adds the records that start at or after an offset to the indexes and
+     * records the end of the last one as indexed.
+     *
+     * @param from a record boundary of the data file
+     */
+    private void indexFrom(long from) {
+        if (storageFormat == StorageFormat.BINARY) {
+            long[] offset = {from};
+            binaryStore.forEachRecord(from, (minutes, sportId, betTypeId, eventId, odds, amount) -> {
+                index.add(binaryStore.sportName(sportId), binaryStore.eventName(eventId), offset[0]);
+                timestampIndex.add(TimestampCodec.fromEpochMinutes(minutes), offset[0]);
+                offset[0] += BinaryBetStore.RECORD_SIZE;
+            });
+            indexedUpTo.set(offset[0]);
+        } else if (storageFormat == StorageFormat.SEGMENTED) {
+            for (SegmentedBetStore.Segment segment : segmentedStore.segments()) {
+                Path path = segmentedStore.pathOf(segment);
+                if (!path.toFile().exists()) {
+                    continue;
+                }
+                try (MappedBetScanner scanner = new MappedBetScanner(path)) {
+                    scanner.scanAllBets((bet, offset) -> index.add(bet.fieldAsString(BetLineParser.SPORT),
+                            bet.fieldAsString(BetLineParser.EVENT), SegmentedBetStore.address(segment.id(), offset)));
+                }
+            }
+        } else {
+            try (MappedBetScanner scanner = new MappedBetScanner(file)) {
+                indexedUpTo.set(scanner.scanBets(from, (bet, offset) -> {
+                    index.add(bet.fieldAsString(BetLineParser.SPORT), bet.fieldAsString(BetLineParser.EVENT),
+                            offset);
+                    timestampIndex.add(bet.timestamp(), offset);
+                }));
+            }
+        }
+    }
+
+    /**
+     * Removes the segments whose bets are all older than a timestamp, and
+     * their entries from the index.
+     *
+     * @param limit the retention limit
+     * @return the number of segments dropped
+     */
+    int dropSegmentsBefore(long limit) {
+        List<SegmentedBetStore.Segment> dropped = segmentedStore.dropBefore(limit);
+        if (!dropped.isEmpty()) {
+            Set<Integer> ids = new HashSet<>();
+            for (SegmentedBetStore.Segment segment : dropped) {
+                ids.add(segment.id());
+            }
+            index.removeIf(address -> ids.contains(SegmentedBetStore.segmentId(address)));
+        }
+        return dropped.size();
+    }
+
+    /**
+     * Hands the bets whose timestamp is in {@code [start, end)} to an action,
+     * reading only the blocks or segments that can hold them.
+     *
+     * @see DataFileUtils#forEachBetBetween(String, String, Consumer)
+     */
+    void forEachBetBetween(long start, long end, Consumer<Bet> action) {
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            for (SegmentedBetStore.Segment segment : segmentedStore.segmentsBetween(start, end)) {
+                try (MappedBetScanner scanner = new MappedBetScanner(segmentedStore.pathOf(segment))) {
+                    scanner.scanAllBets((bet, offset) -> {
+                        if (bet.timestamp() >= start && bet.timestamp() < end) {
+                            action.accept(bet.toBet());
+                        }
+                    });
+                }
+            }
+            return;
+        }
+        long[] range = timestampIndex.range(start, end);
+        if (range[0] >= range[1]) {
+            return;
+        }
+        if (storageFormat == StorageFormat.BINARY) {
+            long records = (Math.min(range[1], binaryStore.count() * BinaryBetStore.RECORD_SIZE) - range[0])
+                    / BinaryBetStore.RECORD_SIZE;
+            long[] offsets = new long[(int) Math.max(0, records)];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = range[0] + (long) i * BinaryBetStore.RECORD_SIZE;
+            }
+            for (Bet bet : readBetsAt(offsets)) {
+                long timestamp = Long.parseLong(bet.timestamp());
+                if (timestamp >= start && timestamp < end) {
+                    action.accept(bet);
+                }
+            }
+            return;
+        }
+        try (MappedBetScanner scanner = new MappedBetScanner(file)) {
+            scanner.scanBets(range[0], range[1], (bet, offset) -> {
+                if (bet.timestamp() >= start && bet.timestamp() < end) {
+                    action.accept(bet.toBet());
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the records found at the given offsets with positional reads,
+     * through the read channel of the session when one is open.
+     *
+     * @param offsets the offsets of the records
+     * @return the bets read, skipping records that are no longer valid
+     */
+    List<Bet> readBetsAt(long[] offsets) {
+        List<Bet> bets = new ArrayList<>(offsets.length);
+        if (offsets.length == 0) {
+            return bets;
+        }
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            return readSegmentedBetsAt(offsets);
+        }
+        FileSession current = this.session;
+        if (current != null) {
+            try {
+                readBetsAt(current.reader(), offsets, 0, offsets.length, 0, bets);
+            } catch (IOException e) {
+                throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+            }
+            return bets;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readBetsAt(channel, offsets, 0, offsets.length, 0, bets);
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+        return bets;
+    }
+
+    /**
+     * Reads the bets at addresses of a segmented store, opening each segment
+     * once per run of consecutive addresses in it.
+     */
+    private List<Bet> readSegmentedBetsAt(long[] addresses) {
+        List<Bet> bets = new ArrayList<>(addresses.length);
+        int start = 0;
+        while (start < addresses.length) {
+            int id = SegmentedBetStore.segmentId(addresses[start]);
+            int end = start + 1;
+            while (end < addresses.length && SegmentedBetStore.segmentId(addresses[end]) == id) {
+                end++;
+            }
+            Path path = segmentedStore.pathOf(addresses[start]);
+            if (path != null && path.toFile().exists()) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    readBetsAt(channel, addresses, start, end, SegmentedBetStore.address(id, 0), bets);
+                } catch (IOException e) {
+                    throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+                }
+            }
+            start = end;
+        }
+        return bets;
+    }
+
+    /**
+     * Reads the records at {@code offsets[from..to)} of one file, after
+     * subtracting base from each offset, and adds them to bets.
+     */
+    private void readBetsAt(FileChannel channel, long[] offsets, int from, int to, long base, List<Bet> bets)
+            throws IOException {
+        BetLineParser parser = new BetLineParser();
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        for (int i = from; i < to; i++) {
+            long offset = offsets[i] - base;
+            if (storageFormat == StorageFormat.BINARY) {
+                buffer.clear().limit(BinaryBetStore.RECORD_SIZE);
+                if (readFully(channel, buffer, offset) == BinaryBetStore.RECORD_SIZE) {
+                    bets.add(binaryStore.decode(buffer, 0));
+                }
+                continue;
+            }
+            buffer.clear();
+            int read = readFully(channel, buffer, offset);
+            int newline = -1;
+            while (newline < 0) {
+                for (int j = 0; j < read; j++) {
+                    if (buffer.get(j) == '\n') {
+                        newline = j;
+                        break;
+                    }
+                }
+                if (newline >= 0 || read < buffer.capacity()) {
+                    break;
+                }
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                read = readFully(channel, buffer, offset);
+            }
+            if (newline >= 0 && parser.parse(buffer, 0, newline)) {
+                bets.add(parser.toBet());
+            }
+        }
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, offset + read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return read;
+    }
+
+    /**
+     * Opens a session on the data file, if none is open.
+     *
+     * @see DataFileUtils#openSession()
+     */
+    void openSession() {
+        if (session == null) {
+            session = new FileSession(file);
+        }
+    }
+
+    /**
+     * Tells whether a session is open.
+     *
+     * @return true while the session channels are open
+     */
+    boolean isSessionOpen() {
+        return session != null;
+    }
+
+    /**
+     * Reopens the session on the file currently found at the path and
+     * rebuilds the indexes if the file is not the one the session tracked;
+     * without a session, only rebuilds the indexes.
+     *
+     * @throws IllegalStateException if the data file no longer exists
+     * @throws RuntimeException      if the file cannot be opened or read
+     * @see DataFileUtils#refresh()
+     */
+    void refresh() {
+        FileSession current = this.session;
+        if (current == null) {
+            rebuildIndex();
+            return;
+        }
+        long tracked = current.size();
+        closeSession();
+        if (!Files.exists(file)) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        FileSession reopened = new FileSession(current.file());
+        this.session = reopened;
+        if (current.changedOutside() || reopened.size() != tracked) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * Closes the session channels.
+     *
+     * @return true if a session was open
+     */
+    private boolean closeSession() {
+        FileSession current = this.session;
+        this.session = null;
+        if (current == null) {
+            return false;
+        }
+        current.close();
+        return true;
+    }
+
+    /**
+     * Turns on the checksum journal, replacing the previous one, and repairs
+     * the data file.
+     *
+     * @see DataFileUtils#enableChecksums(long)
+     */
+    ChecksumJournal.Recovery enableChecksums(long checkpointBytes) {
+        disableChecksums();
+        ChecksumJournal checksums = new ChecksumJournal(file, storageFormat, checkpointBytes);
+        ChecksumJournal.Recovery recovery = checksums.recover();
+        this.journal = checksums;
+        if (recovery.truncatedBytes() > 0) {
+            refresh();
+        }
+        return recovery;
+    }
+
+    /**
+     * Takes a last checkpoint and stops recording checksums.
+     */
+    void disableChecksums() {
+        ChecksumJournal checksums = this.journal;
+        this.journal = null;
+        if (checksums != null) {
+            checksums.close();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the indexes next to the data file.
+     *
+     * @return the offset covered by the snapshot, or -1 if nothing is written
+     * @see DataFileUtils#saveSnapshot()
+     */
+    long saveSnapshot() {
+        // everything before the offset read first is already in the indexes
+        long covered = indexedUpTo.get();
+        return new IndexSnapshot(file, storageFormat).save(index, timestampIndex, covered) ? covered : -1;
+    }
+
+    /**
+     * Starts saving snapshots periodically, replacing the previous period.
+     *
+     * @see DataFileUtils#enableSnapshots(long)
+     */
+    void enableSnapshots(long periodMillis) {
+        stopSnapshots();
+        snapshotter = Thread.ofPlatform().daemon().name("bets-snapshot").start(() -> {
+            long saved = -1;
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (indexedUpTo.get() != saved && Files.exists(file)) {
+                    try {
+                        saved = saveSnapshot();
+                    } catch (RuntimeException e) {
+                        // the next period tries again
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops the periodic snapshots and saves a last one, if they were
+     * enabled and the file still exists.
+     *
+     * @throws RuntimeException if the last snapshot cannot be written
+     */
+    void disableSnapshots() {
+        if (stopSnapshots() && (session != null || Files.exists(file))) {
+            saveSnapshot();
+        }
+    }
+
+    /**
+     * Stops the snapshot thread and waits for it.
+     *
+     * @return true if snapshots were enabled
+     */
+    private boolean stopSnapshots() {
+        Thread thread = this.snapshotter;
+        this.snapshotter = null;
+        if (thread == null) {
+            return false;
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    /**
+     * Starts a watcher that keeps the indexes and the session in step with
+     * the appends and replacements of other processes, replacing the previous
+     * one.
+     *
+     * @see DataFileUtils#watchDataFile(long)
+     */
+    DataFileWatcher watchDataFile(long pollMillis) {
+        stopWatching();
+        DataFileWatcher follower = new DataFileWatcher(file, indexedUpTo.get(), pollMillis);
+        follower.addListener(new DataFileWatcher.Listener() {
+            @Override
+            public void betAppended(Bet bet, long offset) {
+                index.add(bet.sport(), bet.event(), offset);
+                timestampIndex.add(Long.parseLong(bet.timestamp()), offset);
+            }
+
+            @Override
+            public void caughtUp(long position) {
+                indexedUpTo.set(position);
+            }
+
+            @Override
+            public void fileReset() {
+                clearIndexes();
+                FileSession current = session;
+                if (current != null && closeSession()) {
+                    session = new FileSession(current.file());
+                }
+            }
+        });
+        this.watcher = follower;
+        follower.poll();
+        return follower.start();
+    }
+
+    /**
+     * Stops watching the data file, if it was watched.
+     */
+    void stopWatching() {
+        DataFileWatcher follower = this.watcher;
+        this.watcher = null;
+        if (follower != null) {
+            follower.close();
+        }
+    }
+
+    /**
+     * Swaps in a new empty data file and retires the old one.
+     *
+     * @see DataFileUtils#resetDataFile(boolean)
+     */
+    CompletableFuture<Path> reset(boolean archive) {
+        Path path = file.toAbsolutePath();
+        // the batched writer and the append queue open the file by name
+        // inside the lock on every write; only a session keeps it open
+        boolean hadSession = closeSession();
+        Path retired;
+        try {
+            retired = AppendLock.forFile(path).withLock(() -> {
+                Path fresh = path.resolveSibling("." + path.getFileName() + RESET_SUFFIX);
+                Files.deleteIfExists(fresh);
+                Files.createFile(fresh);
+                Path old = retiredName(path);
+                try {
+                    Files.createLink(old, path);
+                } catch (UnsupportedOperationException | IOException e) {
+                    Files.move(path, old, StandardCopyOption.ATOMIC_MOVE);
+                }
+                Files.move(fresh, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                // the journal and the watcher restart before any write
+                // reaches the new file
+                ChecksumJournal checksums = this.journal;
+                if (checksums != null) {
+                    checksums.reset();
+                }
+                DataFileWatcher follower = this.watcher;
+                if (follower != null) {
+                    follower.restart();
+                }
+                return old;
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_RESET, e);
+        } finally {
+            if (hadSession) {
+                this.session = new FileSession(path);
+            }
+        }
+        clearIndexes();
+        try {
+            Files.deleteIfExists(IndexSnapshot.snapshotOf(path));
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_RESET, e);
+        }
+        if (archive) {
+            try {
+                if (storageFormat == StorageFormat.BINARY) {
+                    Path[] sidecars = BinaryBetStore.sidecarFiles(path);
+                    Path[] archived = BinaryBetStore.sidecarFiles(retired);
+                    for (int i = 0; i < sidecars.length; i++) {
+                        if (Files.exists(sidecars[i])) {
+                            Files.copy(sidecars[i], archived[i], StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(Constants.MESSAGE_ERROR_RESET, e);
+            }
+            return CompletableFuture.completedFuture(retired);
+        }
+        CompletableFuture<Path> reclaimed = new CompletableFuture<>();
+        Thread.ofPlatform().daemon().name("bets-reclaimer").start(() -> {
+            try {
+                Files.deleteIfExists(retired);
+                reclaimed.complete(null);
+            } catch (IOException | RuntimeException e) {
+                reclaimed.completeExceptionally(e);
+            }
+        });
+        return reclaimed;
+    }
+
+    /**
+     * Returns an unused name for a retired copy of the data file, made of the
+     * file name, the current minute and a counter.
+     */
+    private static Path retiredName(Path path) {
+        String prefix = path.getFileName() + "." + TimestampCodec.nowText();
+        Path candidate = path.resolveSibling(prefix + RETIRED_SUFFIX);
+        for (int i = 1; Files.exists(candidate, LinkOption.NOFOLLOW_LINKS); i++) {
+            candidate = path.resolveSibling(prefix + "-" + i + RETIRED_SUFFIX);
+        }
+        return candidate;
+    }
+
+    /**
+     * Stops every component, deletes the data file and the files that only
+     * exist to serve it, and starts over with empty stores and indexes.
+     *
+     * @see DataFileUtils#deleteDataFile()
+     */
+    void delete() {
+        stopWatching();
+        stopSnapshots();
+        closeSession();
+        disableChecksums();
+        try {
+            if (storageFormat == StorageFormat.SEGMENTED) {
+                segmentedStore.close();
+                for (SegmentedBetStore.Segment segment : segmentedStore.segments()) {
+                    Files.deleteIfExists(segmentedStore.pathOf(segment));
+                }
+            }
+            Files.deleteIfExists(file);
+            // a lock channel left open would keep locking the deleted file
+            AppendLock.forFile(file).close();
+            Files.deleteIfExists(AppendLock.lockFileOf(file));
+            Files.deleteIfExists(ChecksumJournal.journalOf(file));
+            Files.deleteIfExists(IndexSnapshot.snapshotOf(file));
+            if (storageFormat == StorageFormat.BINARY) {
+                for (Path sidecar : BinaryBetStore.sidecarFiles(file)) {
+                    Files.deleteIfExists(sidecar);
+                }
+                binaryStore = new BinaryBetStore(file);
+            } else if (storageFormat == StorageFormat.SEGMENTED) {
+                segmentedStore = new SegmentedBetStore(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_DELETING_FILE, e);
+        }
+        clearIndexes();
+    }
+
+    /**
+     * Writes what is still queued and stops every component: the append
+     * queue is drained and replaced by a new one, the batched writer is
+     * flushed, the watcher and the snapshots are stopped, the journal takes
+     * a last checkpoint, the session is closed, a segmented store writes its
+     * manifest and the channel of the {@link AppendLock} file is closed. The
+     * storage can still be used afterwards.
+     */
+    @Override
+    public void close() {
+        AppendQueue queue = this.appendQueue;
+        if (queue != null) {
+            this.appendQueue = new AppendQueue(queue.file(), queue.journal());
+            queue.close();
+        }
+        disableBatchedWrites();
+        stopWatching();
+        disableSnapshots();
+        disableChecksums();
+        closeSession();
+        if (segmentedStore != null) {
+            segmentedStore.close();
+        }
+        AppendLock.forFile(file).close();
+    }
+}
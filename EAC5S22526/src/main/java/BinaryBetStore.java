@@ -0,0 +1,375 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compact binary storage for bets using fixed-width records.
+ * <p>
+ * Each record takes {@link #RECORD_SIZE} bytes:
+ * </p>
+ * <ul>
+ * <li>int: minutes since 2000-01-01 00:00</li>
+ * <li>short: sport id</li>
+ * <li>short: bet type id</li>
+ * <li>int: event id</li>
+ * <li>long: odds in thousandths</li>
+ * <li>long: amount in cents</li>
+ * </ul>
+ * <p>
+ * The ids refer to three {@link StringDictionary} files stored next to the
+ * data file ({@code <file>.sports}, {@code <file>.types} and
+ * {@code <file>.events}). A trailing partial record, left by an interrupted
+ * write, is ignored when reading.
+ * </p>
+ *
+ * @IOC
+ */
+public class BinaryBetStore {
+
+    public static final int RECORD_SIZE = 28;
+    public static final int MAX_SHORT_IDS = 1 << 16;
+
+    private static final int RECORDS_PER_READ = 2048;
+
+    private final Path file;
+    private final StringDictionary sports;
+    private final StringDictionary betTypes;
+    private final StringDictionary events;
+
+    /**
+     * Opens the store for the given data file, loading its dictionaries.
+     *
+     * @param file the binary data file
+     * @throws RuntimeException if a dictionary file cannot be read
+     */
+    public BinaryBetStore(Path file) {
+        this.file = file;
+        this.sports = new StringDictionary(sidecar(file, ".sports"), MAX_SHORT_IDS);
+        this.betTypes = new StringDictionary(sidecar(file, ".types"), MAX_SHORT_IDS);
+        this.events = new StringDictionary(sidecar(file, ".events"));
+    }
+
+    /**
+     * Visitor of raw records, used by scans that do not need {@link Bet}
+     * objects.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+
+        /**
+         * Receives the fields of one record.
+         *
+         * @param minutes     minutes since 2000-01-01 00:00
+         * @param sportId     the sport id
+         * @param betTypeId   the bet type id
+         * @param eventId     the event id
+         * @param oddsMillis  the odds in thousandths
+         * @param amountCents the amount in cents
+         */
+        void visit(int minutes, int sportId, int betTypeId, int eventId, long oddsMillis, long amountCents);
+    }
+
+    /**
+     * Returns the sidecar files that belong to a binary data file.
+     *
+     * @param file the binary data file
+     * @return the dictionary files of the store
+     */
+    public static Path[] sidecarFiles(Path file) {
+        return new Path[] {sidecar(file, ".sports"), sidecar(file, ".types"), sidecar(file, ".events")};
+    }
+
+    /**
+     * Returns the persisted dictionary of sports of the store.
+     *
+     * @return the sports dictionary
+     */
+    StringDictionary sports() {
+        return sports;
+    }
+
+    /**
+     * Returns the persisted dictionary of bet types of the store.
+     *
+     * @return the bet types dictionary
+     */
+    StringDictionary betTypes() {
+        return betTypes;
+    }
+
+    /**
+     * Returns the sport name of a sport id, without decoding a record.
+     *
+     * @param sportId the sport id
+     * @return the canonical sport name
+     */
+    public String sportName(int sportId) {
+        return sports.valueOf(sportId);
+    }
+
+    /**
+     * Returns the event name of an event id, without decoding a record.
+     *
+     * @param eventId the event id
+     * @return the canonical event name
+     */
+    public String eventName(int eventId) {
+        return events.valueOf(eventId);
+    }
+
+    /**
+     * Encodes a bet into a record, adding new strings to the dictionaries.
+     *
+     * @param bet the bet to encode
+     * @return the {@link #RECORD_SIZE} bytes of the record
+     * @throws IllegalArgumentException if the timestamp is not a valid
+     *                                  {@link Constants#DATE_FORMAT} date
+     */
+    public byte[] encode(Bet bet) {
+        int sportId = sports.idOf(bet.sport());
+        int betTypeId = betTypes.idOf(bet.betType());
+        if (sportId > 0xFFFF || betTypeId > 0xFFFF) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_BET);
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putInt(toEpochMinutes(bet.timestamp()))
+                .putShort((short) sportId)
+                .putShort((short) betTypeId)
+                .putInt(events.idOf(bet.event()))
+                .putLong(bet.oddsThousandths())
+                .putLong(bet.amountCents());
+        return record.array();
+    }
+
+    /**
+     * Decodes the record starting at an absolute index of a buffer.
+     *
+     * @param buffer the buffer holding the record
+     * @param index  the index of the first byte of the record
+     * @return the decoded bet
+     */
+    public Bet decode(ByteBuffer buffer, int index) {
+        return new Bet(TimestampCodec.format(TimestampCodec.fromEpochMinutes(buffer.getInt(index))),
+                sports.valueOf(Short.toUnsignedInt(buffer.getShort(index + 4))),
+                events.valueOf(buffer.getInt(index + 8)),
+                betTypes.valueOf(Short.toUnsignedInt(buffer.getShort(index + 6))),
+                buffer.getLong(index + 12),
+                buffer.getLong(index + 20));
+    }
+
+    /**
+     * Appends a bet to the data file.
+     *
+     * @param bet the bet to append
+     * @throws RuntimeException if an I/O error occurs while writing the file
+     */
+    public void append(Bet bet) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer record = ByteBuffer.wrap(encode(bet));
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+    }
+
+    /**
+     * Returns the number of complete records in the data file.
+     *
+     * @return the record count
+     * @throws RuntimeException if the file size cannot be read
+     */
+    public long count() {
+        try {
+            return Files.size(file) / RECORD_SIZE;
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Returns the last records of the data file, newest first. Records have a
+     * fixed width, so only the requested records are read.
+     *
+     * @param count the maximum number of bets to return
+     * @return up to count bets, from the last record backwards
+     * @throws RuntimeException if an I/O error occurs while reading the file
+     */
+    public List<Bet> last(int count) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long records = channel.size() / RECORD_SIZE;
+            int wanted = (int) Math.min(count, records);
+            List<Bet> bets = new ArrayList<>(wanted);
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * Math.min(wanted, RECORDS_PER_READ));
+            long end = records;
+            while (bets.size() < wanted) {
+                int batch = Math.min(wanted - bets.size(), RECORDS_PER_READ);
+                long position = (end - batch) * RECORD_SIZE;
+                buffer.clear().limit(batch * RECORD_SIZE);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException(Constants.MESSAGE_ERROR_READING_FILE);
+                    }
+                }
+                for (int i = batch - 1; i >= 0; i--) {
+                    bets.add(decode(buffer, i * RECORD_SIZE));
+                }
+                end -= batch;
+            }
+            return bets;
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Visits every record of the data file without decoding strings.
+     *
+     * @param visitor the visitor receiving the raw fields
+     * @throws RuntimeException if an I/O error occurs while reading the file
+     */
+    public void forEachRecord(RecordVisitor visitor) {
+        forEachRecord(0, visitor);
+    }
+
+    /**
+     * Visits the records of the data file that start at or after an offset,
+     * without decoding strings.
+     *
+     * @param from    the offset of the first record to visit; a multiple of
+     *                {@link #RECORD_SIZE}
+     * @param visitor the visitor receiving the raw fields
+     * @throws RuntimeException if an I/O error occurs while reading the file
+     */
+    public void forEachRecord(long from, RecordVisitor visitor) {
+        try (RecordReader reader = new RecordReader(from)) {
+            while (reader.next()) {
+                ByteBuffer buffer = reader.buffer;
+                int index = reader.index;
+                visitor.visit(buffer.getInt(index), Short.toUnsignedInt(buffer.getShort(index + 4)),
+                        Short.toUnsignedInt(buffer.getShort(index + 6)), buffer.getInt(index + 8),
+                        buffer.getLong(index + 12), buffer.getLong(index + 20));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Lazily streams the bets of the data file. The stream must be closed.
+     *
+     * @return a stream over the decoded bets
+     * @throws RuntimeException if the file cannot be opened
+     */
+    public Stream<Bet> stream() {
+        return stream(0);
+    }
+
+    /**
+     * Lazily streams the bets of the data file from a given record on. The
+     * records before it are not read at all. The stream must be closed.
+     *
+     * @param firstRecord index of the first record streamed
+     * @return a stream over the decoded bets from that record on
+     * @throws RuntimeException if the file cannot be opened
+     */
+    public Stream<Bet> stream(long firstRecord) {
+        RecordReader reader;
+        try {
+            reader = new RecordReader(firstRecord * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+        Spliterator<Bet> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Bet> action) {
+                try {
+                    if (!reader.next()) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                action.accept(decode(reader.buffer, reader.index));
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(reader::close);
+    }
+
+    /**
+     * Converts a {@link Constants#DATE_FORMAT} timestamp to minutes since
+     * 2000-01-01 00:00.
+     *
+     * @param timestamp the timestamp text
+     * @return the minutes since the store epoch
+     * @throws IllegalArgumentException if the timestamp is not a valid date
+     */
+    static int toEpochMinutes(String timestamp) {
+        long value = TimestampCodec.parse(timestamp, 0, timestamp.length());
+        if (value == TimestampCodec.INVALID) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_BET);
+        }
+        return TimestampCodec.toEpochMinutes(value);
+    }
+
+    private static Path sidecar(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    /**
+     * Sequential reader that refills a buffer with whole records.
+     */
+    private final class RecordReader implements AutoCloseable {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * RECORDS_PER_READ);
+        int index;
+        int end;
+
+        RecordReader(long from) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.channel.position(from);
+            this.index = 0;
+            this.end = 0;
+        }
+
+        boolean next() throws IOException {
+            index += RECORD_SIZE;
+            if (index + RECORD_SIZE <= end) {
+                return true;
+            }
+            buffer.position(index < end ? index : end);
+            buffer.limit(end);
+            buffer.compact();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read > 0 && buffer.hasRemaining());
+            end = buffer.position();
+            index = 0;
+            return end >= RECORD_SIZE;
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,451 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal of CRC32C checksums of the records appended to a data file, used to
+ * repair the file after a crash.
+ * <p>
+ * The journal is the sidecar file {@code <data file>.crc}, made of
+ * {@value #ENTRY_SIZE}-byte entries: the offset and length of a record (one
+ * insert, which may hold several lines, or one batch) and the CRC32C of its
+ * bytes. The data file itself is not changed, so every reader keeps working
+ * on it as before.
+ * </p>
+ *
+ * <p>
+ * The first entry is a checkpoint marker: every byte of the data file before
+ * its offset has been forced to the device and verified. A checkpoint forces
+ * the data file and replaces the journal with a new one that only holds the
+ * marker, so {@link #recover()} only has to check the records written since
+ * the last checkpoint, at most about {@code checkpointBytes}, whatever the
+ * size of the file. Recovery truncates the data file at the first record whose
+ * bytes do not match their checksum, and drops a trailing partial line (text)
+ * or record (binary) written after the last journaled record.
+ * </p>
+ *
+ * <p>
+ * The journal may be shared by several processes appending to the same file.
+ * Recovery, appends and checkpoints run while holding the {@link AppendLock}
+ * of the data file, which every writer holds while it writes a whole record,
+ * so recovery never cuts a record another process is still writing: the only
+ * partial record it can find is one left by a writer that died mid-write.
+ * Writers call {@link #append(FileChannel, long, byte[]...)} inside the same
+ * locked section as the write of the record, so no other record can be
+ * written between a record and its entry. A journal replaced by the
+ * checkpoint of another process is reopened before the next entry is
+ * written, and a checkpoint covers the whole file as it is when the
+ * checkpoint is taken.
+ * </p>
+ *
+ * <p>
+ * Every public method takes the {@link AppendLock} before the monitor of the
+ * journal, in the same order as the writers, which already hold the lock
+ * when they call {@link #append(FileChannel, long, byte[]...)}.
+ * </p>
+ *
+ * @IOC
+ */
+public class ChecksumJournal implements AutoCloseable {
+
+    public static final String SUFFIX = ".crc";
+    public static final long DEFAULT_CHECKPOINT_BYTES = 64L * 1024 * 1024;
+    public static final int ENTRY_SIZE = 16;
+
+    private static final int CHECKPOINT = -1;
+    private static final int VERIFY_BUFFER = 64 * 1024;
+
+    private final Path dataFile;
+    private final Path journalFile;
+    private final StorageFormat format;
+    private final long checkpointBytes;
+    private final AppendLock lock;
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private FileChannel channel;
+    private Object journalKey;
+    private long checkpointOffset;
+    private long end;
+
+    /**
+     * Result of a recovery.
+     *
+     * @param verifiedRecords number of journaled records whose checksum matched
+     * @param tornRecords     number of records removed from the data file
+     * @param truncatedBytes  number of bytes removed from the end of the data
+     *                        file
+     */
+    public record Recovery(long verifiedRecords, long tornRecords, long truncatedBytes) {
+    }
+
+    /**
+     * Creates the journal of a data file. Nothing is read or written until
+     * {@link #recover()} is called.
+     *
+     * @param dataFile        the data file, stored as text or binary records
+     * @param format          the format of the data file
+     * @param checkpointBytes number of appended bytes after which a checkpoint
+     *                        is taken
+     * @throws IllegalArgumentException if a parameter is null, the format is
+     *                                  segmented or checkpointBytes is not
+     *                                  positive
+     */
+    public ChecksumJournal(Path dataFile, StorageFormat format, long checkpointBytes) {
+        if (dataFile == null || format == null || format == StorageFormat.SEGMENTED || checkpointBytes <= 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_JOURNAL_CONFIG);
+        }
+        this.dataFile = dataFile;
+        this.journalFile = journalOf(dataFile);
+        this.format = format;
+        this.checkpointBytes = checkpointBytes;
+        this.lock = AppendLock.forFile(dataFile);
+    }
+
+    /**
+     * Returns the journal file of a data file.
+     *
+     * @param dataFile the data file
+     * @return the path of its checksum journal
+     */
+    public static Path journalOf(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Checks the records written since the last checkpoint, truncates the data
+     * file before the first torn one and takes a new checkpoint. Without a
+     * journal the whole file is trusted and the journal is created. Must run
+     * before any append and while no one else writes to the data file.
+     *
+     * @return what was checked and removed
+     * @throws IllegalStateException if the data file does not exist
+     * @throws RuntimeException      if an I/O error occurs
+     */
+    public Recovery recover() {
+        if (!Files.exists(dataFile)) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        try {
+            return lock.withLock(() -> {
+                synchronized (this) {
+                    closeChannel();
+                    return recoverLocked();
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    private Recovery recoverLocked() throws IOException {
+        try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = data.size();
+            if (!Files.exists(journalFile)) {
+                end = size;
+                checkpoint(data);
+                return new Recovery(0, 0, 0);
+            }
+            long[][] records = readJournal();
+            long verified = 0;
+            long torn = 0;
+            long cut = Long.MAX_VALUE;
+            long goodEnd = checkpointOffset;
+            for (long[] record : records) {
+                long recordEnd = record[0] + record[1];
+                if (record[0] >= cut) {
+                    torn++;
+                } else if (recordEnd <= size && checksum(data, record[0], record[1]) == (int) record[2]) {
+                    verified++;
+                    goodEnd = Math.max(goodEnd, recordEnd);
+                } else {
+                    torn++;
+                    cut = record[0];
+                }
+            }
+            long newSize;
+            if (cut != Long.MAX_VALUE) {
+                newSize = Math.min(cut, size);
+            } else {
+                newSize = completeTail(data, Math.min(goodEnd, size), size);
+                if (newSize < size) {
+                    torn++;
+                }
+            }
+            if (newSize < size) {
+                data.truncate(newSize);
+            }
+            end = newSize;
+            checkpoint(data);
+            return new Recovery(verified, torn, size - newSize);
+        }
+    }
+
+    /**
+     * Records the checksum of the bytes that have just been written at an
+     * offset of the data file, taking a checkpoint when enough bytes have
+     * been appended since the last one. Meant to be called by a writer inside
+     * the locked section of its write, with the channel it wrote through, so
+     * that the checkpoint does not open the file again. Does nothing once the
+     * journal is closed.
+     *
+     * @param data    a channel on the data file, open for writing
+     * @param offset  the offset of the first byte written
+     * @param records the bytes written, in file order; they get a single
+     *                entry
+     * @throws RuntimeException if an I/O error occurs
+     */
+    public void append(FileChannel data, long offset, byte[]... records) {
+        try {
+            lock.withLock(() -> {
+                synchronized (this) {
+                    if (channel == null) {
+                        return null;
+                    }
+                    crc.reset();
+                    long length = 0;
+                    for (byte[] record : records) {
+                        crc.update(record);
+                        length += record.length;
+                    }
+                    entry.clear();
+                    entry.putLong(offset).putInt((int) length).putInt((int) crc.getValue()).flip();
+                    reopenIfReplaced(data);
+                    while (entry.hasRemaining()) {
+                        channel.write(entry);
+                    }
+                    end = Math.max(end, offset + length);
+                    if (end - checkpointOffset >= checkpointBytes) {
+                        checkpoint(data);
+                    }
+                    return null;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+    }
+
+    /**
+     * Forces the data file to the device and starts a new journal after the
+     * last journaled record.
+     *
+     * @throws IllegalStateException if the journal is closed
+     * @throws RuntimeException      if an I/O error occurs
+     */
+    public void checkpoint() {
+        try {
+            lock.withLock(() -> {
+                synchronized (this) {
+                    if (channel == null) {
+                        throw new IllegalStateException(Constants.MESSAGE_ERROR_WRITER_CLOSED);
+                    }
+                    checkpointFile();
+                    return null;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+    }
+
+    /**
+     * Starts over after the data file has been replaced by an empty one.
+     *
+     * @throws RuntimeException if an I/O error occurs
+     */
+    public void reset() {
+        try {
+            lock.withLock(() -> {
+                synchronized (this) {
+                    end = 0;
+                    checkpointFile();
+                    return null;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+    }
+
+    /**
+     * Returns the offset of the last checkpoint.
+     *
+     * @return the length of the data file known to be valid
+     */
+    public synchronized long checkpointOffset() {
+        return checkpointOffset;
+    }
+
+    /**
+     * Takes a last checkpoint and closes the journal.
+     */
+    @Override
+    public void close() {
+        try {
+            lock.withLock(() -> {
+                synchronized (this) {
+                    if (channel != null) {
+                        try {
+                            checkpointFile();
+                        } finally {
+                            closeChannel();
+                        }
+                    }
+                    return null;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+    }
+
+    /**
+     * Takes a checkpoint through a channel opened for it.
+     */
+    private void checkpointFile() throws IOException {
+        try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            checkpoint(data);
+        }
+    }
+
+    /**
+     * Writes a journal holding only a checkpoint marker next to the current
+     * one and moves it over it atomically. The marker is placed at the end of
+     * the file, which every writer, this one or another process, has written
+     * whole records up to, since the caller holds the {@link AppendLock}.
+     */
+    private void checkpoint(FileChannel data) throws IOException {
+        data.force(false);
+        end = Math.max(end, data.size());
+        closeChannel();
+        Path fresh = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(fresh, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer marker = ByteBuffer.allocate(ENTRY_SIZE).putLong(end).putInt(CHECKPOINT).putInt(0).flip();
+            while (marker.hasRemaining()) {
+                out.write(marker);
+            }
+            out.force(false);
+        }
+        Files.move(fresh, journalFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        checkpointOffset = end;
+        channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalKey = Files.readAttributes(journalFile, BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * Makes the channel point at the journal currently found by name: another
+     * process sharing the file may have replaced it with a checkpoint, or
+     * deleted it along with the data file. Runs while holding the lock.
+     */
+    private void reopenIfReplaced(FileChannel data) throws IOException {
+        Object key;
+        try {
+            key = Files.readAttributes(journalFile, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            checkpoint(data);
+            return;
+        }
+        if (key == null || key.equals(journalKey)) {
+            return;
+        }
+        closeChannel();
+        channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalKey = key;
+    }
+
+    /**
+     * Reads the checkpoint marker into {@link #checkpointOffset} and returns
+     * the complete record entries after it, sorted by offset. A journal
+     * without a valid marker is trusted from offset 0.
+     */
+    private long[][] readJournal() throws IOException {
+        byte[] bytes = Files.readAllBytes(journalFile);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int entries = bytes.length / ENTRY_SIZE;
+        checkpointOffset = 0;
+        int first = 0;
+        if (entries > 0 && buffer.getInt(8) == CHECKPOINT) {
+            checkpointOffset = buffer.getLong(0);
+            first = 1;
+        }
+        long[][] records = new long[entries - first][];
+        for (int i = first; i < entries; i++) {
+            int index = i * ENTRY_SIZE;
+            records[i - first] = new long[] {buffer.getLong(index), buffer.getInt(index + 8),
+                    buffer.getInt(index + 12)};
+        }
+        Arrays.sort(records, Comparator.comparingLong((long[] record) -> record[0]));
+        return records;
+    }
+
+    /**
+     * Returns the end of the last complete line or record in
+     * {@code [from, size)}, or {@code from} if there is none.
+     */
+    private long completeTail(FileChannel data, long from, long size) throws IOException {
+        if (format == StorageFormat.BINARY) {
+            return from + (size - from) / BinaryBetStore.RECORD_SIZE * BinaryBetStore.RECORD_SIZE;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(VERIFY_BUFFER);
+        long position = size;
+        while (position > from) {
+            int length = (int) Math.min(buffer.capacity(), position - from);
+            long start = position - length;
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (data.read(buffer, start + buffer.position()) <= 0) {
+                    break;
+                }
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            position = start;
+        }
+        return from;
+    }
+
+    private int checksum(FileChannel data, long offset, long length) throws IOException {
+        CRC32C check = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(VERIFY_BUFFER, Math.max(length, 1)));
+        long position = offset;
+        long remaining = length;
+        while (remaining > 0) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+            int read = data.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+            check.update(buffer);
+            position += read;
+            remaining -= read;
+        }
+        return (int) check.getValue();
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // entries already written stay in the journal
+        } finally {
+            channel = null;
+        }
+    }
+}
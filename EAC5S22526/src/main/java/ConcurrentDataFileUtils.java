@@ -0,0 +1,112 @@
+/**
+ * Thread-safe variant of {@link DataFileUtils} that many threads can share.
+ * <p>
+ * Inserts from every thread go through a single lock-free
+ * {@link AppendQueue}, which serializes the writes and updates the indexes in
+ * file order. Reads use their own file channels and positional reads, so they
+ * never wait for a writer; the index they consult is lock-striped (see
+ * {@link BetIndex}).
+ * </p>
+ *
+ * <p>
+ * {@link #dataFileExists()} and {@link #dataDirectoryExists()} are answered
+ * from a cache instead of asking the file system on every insert. The cache is
+ * invalidated whenever this instance creates or deletes the file or the
+ * directory; call {@link #invalidateFileState()} if they are changed from
+ * outside.
+ * </p>
+ *
+ * @IOC
+ */
+public class ConcurrentDataFileUtils extends DataFileUtils {
+
+    private volatile Boolean directoryExists;
+    private volatile Boolean fileExists;
+
+    /**
+     * Creates a thread-safe instance that stores bets as text.
+     *
+     * @param dataDirectoryName Name of the data folder
+     * @param dataFileName      Name of the file to read/write bet data
+     * @throws IllegalArgumentException if any parameter is null or empty
+     * @throws RuntimeException         if directory or file creation fails
+     */
+    public ConcurrentDataFileUtils(String dataDirectoryName, String dataFileName) {
+        this(dataDirectoryName, dataFileName, StorageFormat.TEXT);
+    }
+
+    /**
+     * Creates a thread-safe instance that stores bets in the given format.
+     *
+     * @param dataDirectoryName Name of the data folder
+     * @param dataFileName      Name of the file to read/write bet data
+     * @param storageFormat     the on-disk format of the data file
+     * @throws IllegalArgumentException if any parameter is null or empty
+     * @throws RuntimeException         if directory or file creation fails
+     */
+    public ConcurrentDataFileUtils(String dataDirectoryName, String dataFileName, StorageFormat storageFormat) {
+        super(dataDirectoryName, dataFileName, storageFormat);
+        if (storageFormat != StorageFormat.SEGMENTED) {
+            storage.enableAppendQueue();
+        }
+    }
+
+    @Override
+    public boolean dataDirectoryExists() {
+        Boolean exists = directoryExists;
+        if (exists == null) {
+            exists = super.dataDirectoryExists();
+            directoryExists = exists;
+        }
+        return exists;
+    }
+
+    @Override
+    public boolean dataFileExists() {
+        Boolean exists = fileExists;
+        if (exists == null) {
+            exists = super.dataFileExists();
+            fileExists = exists;
+        }
+        return exists;
+    }
+
+    @Override
+    public void createDataDirectory() {
+        super.createDataDirectory();
+        invalidateFileState();
+    }
+
+    @Override
+    public void createDataFile() {
+        super.createDataFile();
+        invalidateFileState();
+    }
+
+    @Override
+    public void deleteDataFile() {
+        try {
+            super.deleteDataFile();
+        } finally {
+            invalidateFileState();
+        }
+    }
+
+    @Override
+    public void deleteDataFolderIfEmpty() {
+        try {
+            super.deleteDataFolderIfEmpty();
+        } finally {
+            invalidateFileState();
+        }
+    }
+
+    /**
+     * Forgets the cached existence of the data file and directory, so the next
+     * check asks the file system again.
+     */
+    public void invalidateFileState() {
+        directoryExists = null;
+        fileExists = null;
+    }
+}
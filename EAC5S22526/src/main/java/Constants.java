@@ -21,7 +21,74 @@ public class Constants {
                                     1) Afegir una aposta.
                                     2) Veure el llistat d'apostes.
                                     3) Reiniciar l'arxiu de sortida.
+                                    4) Veure el resum d'apostes.
+                                    5) Veure les darreres apostes.
                                     0) Sortir.
                                     """;
     public static final String DATE_FORMAT = "yyyyMMddHHmm";
+    public static final String MESSAGE_ERROR_FILE_NOT_FOUND = "El fitxer de dades no existeix";
+    public static final String MESSAGE_ERROR_READING_FILE = "No s'ha pogut llegir el fitxer de dades";
+    public static final String MESSAGE_ERROR_WRITING_FILE = "No s'ha pogut escriure al fitxer de dades";
+    public static final String MESSAGE_ERROR_DELETING_FILE = "No s'ha pogut esborrar el fitxer de dades";
+    public static final String MESSAGE_ERROR_DELETING_FOLDER = "No s'ha pogut esborrar la carpeta de dades";
+    public static final String MESSAGE_ERROR_FOLDER_NOT_EMPTY = "La carpeta de dades no és buida";
+    public static final String MESSAGE_ERROR_RESET = "No s'ha pogut reiniciar el fitxer de dades";
+    public static final String MESSAGE_ERROR_INVALID_BET = "Les dades de l'aposta no són vàlides";
+    public static final String MESSAGE_ERROR_BATCH_CONFIG = "La configuració d'escriptura per lots no és vàlida";
+    public static final String MESSAGE_ERROR_JOURNAL_CONFIG = "La configuració del diari de sumes de verificació no és vàlida";
+    public static final String MESSAGE_ERROR_SNAPSHOT = "La instantània de l'índex no és vàlida";
+    public static final String MESSAGE_ERROR_SNAPSHOT_PERIOD = "El període entre instantànies de l'índex ha de ser positiu";
+    public static final String MESSAGE_ERROR_WATCHER_CONFIG = "La configuració del vigilant del fitxer de dades no és vàlida";
+    public static final String MESSAGE_ERROR_WRITER_CLOSED = "L'escriptor per lots està tancat";
+    public static final String MESSAGE_ERROR_UNKNOWN_ID = "Identificador de diccionari desconegut: ";
+    public static final String MESSAGE_ERROR_GROUP_BY = "Cal indicar el criteri d'agrupació del resum";
+    public static final String MESSAGE_ERROR_WINDOW_SIZE = "La mida de la finestra de lectura no és vàlida";
+    public static final String MESSAGE_ERROR_BLOCK_SIZE = "La mida del bloc de lectura ha de ser positiva";
+    public static final String MESSAGE_ERROR_TEXT_ONLY = "Aquesta operació només està disponible en format de text";
+    public static final String MESSAGE_ERROR_SEGMENTED = "Aquesta operació no està disponible amb fitxers segmentats";
+    public static final String MESSAGE_ERROR_NOT_SEGMENTED = "Aquesta operació només està disponible amb fitxers segmentats";
+    public static final String MESSAGE_ERROR_INVALID_TIMESTAMP = "La data ha de tenir el format " + DATE_FORMAT;
+    public static final String MESSAGE_ERROR_WRITING_OUTPUT = "No s'ha pogut escriure el llistat";
+    public static final String MESSAGE_NEXT_PAGE = "Premi Intro per continuar o 'q' per sortir";
+    public static final int BETS_PAGE_SIZE = 40;
+    public static final String MESSAGE_ERROR_SERVER_START = "No s'ha pogut iniciar el servidor";
+    public static final String MESSAGE_ERROR_METHOD = "Mètode no permès";
+    public static final String MESSAGE_ERROR_INVALID_LINE = "Aposta no vàlida a la línia ";
+    public static final String MESSAGE_ERROR_POOL_FULL = "No hi caben més valors al magatzem en memòria";
+    public static final String MESSAGE_SERVER_STARTED = "Servidor d'apostes escoltant al port ";
+    public static final String SERVER_ARGUMENT = "serve";
+    public static final String SESSION_ARGUMENT = "session";
+    public static final String CHECKSUMS_ARGUMENT = "checksums";
+    public static final String SNAPSHOTS_ARGUMENT = "snapshots";
+    public static final String WATCH_ARGUMENT = "watch";
+    public static final String MESSAGE_ASK_SPORT = "Esport:";
+    public static final String MESSAGE_ASK_EVENT = "Esdeveniment:";
+    public static final String MESSAGE_ASK_BET_TYPE = "Tipus d'aposta:";
+    public static final String MESSAGE_ASK_ODDS = "Quota:";
+    public static final String MESSAGE_ASK_AMOUNT = "Import:";
+    public static final String MESSAGE_ASK_LAST_BETS = "Quantes apostes recents vol veure?";
+    public static final String MESSAGE_BET_SAVED = "Aposta desada correctament";
+    public static final String MESSAGE_TORN_RECORDS = "Registres incomplets eliminats de l'arxiu de sortida: ";
+    public static final String MESSAGE_FILE_RESET = "S'ha reiniciat l'arxiu de sortida";
+    public static final String BETS_HEADER = "LLISTAT D'APOSTES";
+    public static final String BET_ROW_FORMAT = "%-14s %-12s %-22s %-28s";
+    public static final int BET_ODDS_WIDTH = 8;
+    public static final int BET_AMOUNT_WIDTH = 10;
+    public static final int BET_SHOWN_DECIMALS = 2;
+    public static final String GROUP_BY_MENU = """
+                                    Agrupar per:
+                                    1) Esport.
+                                    2) Esdeveniment.
+                                    3) Tipus d'aposta.
+                                    4) Hora.
+                                    5) Dia.
+                                    """;
+    public static final String TOTALS_HEADER = "RESUM D'APOSTES";
+    public static final String TOTALS_ROW_FORMAT = "%-28s";
+    public static final int TOTALS_COUNT_WIDTH = 8;
+    public static final int TOTALS_MONEY_WIDTH = 14;
+    public static final String TOTALS_COLUMNS_HEADER = String.format("%-28s %8s %14s %14s %10s %8s %8s %8s",
+            "Grup", "Apostes", "Import", "Pagament", "Mitjana", "Q. mín", "Q. màx", "Q. mitj");
+    public static final String BET_COLUMNS_HEADER = String.format("%-14s %-12s %-22s %-28s %8s %10s",
+            "Data", "Esport", "Esdeveniment", "Tipus", "Quota", "Import");
 }
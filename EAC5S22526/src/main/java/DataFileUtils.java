@@ -1,5 +1,18 @@
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Utility class for handling bet data files and their containing directories.
@@ -15,12 +28,26 @@ import java.io.IOException;
  * type, odds, and amount.
  * </p>
  * 
+ * <p>
+ * The writers, the indexes and the components that follow the file live in
+ * a {@link BetStorage}; this class checks the arguments and the state of the
+ * file, encodes the bets and reads them back.
+ * </p>
+ * 
+ * <p>
+ * An instance is meant to be used by one thread at a time; share a
+ * {@link ConcurrentDataFileUtils} instead when several threads insert and read
+ * at once.
+ * </p>
+ * 
  * @IOC
  */
-public class DataFileUtils {
+public class DataFileUtils implements AutoCloseable {
 
     String dataDirectoryName;
     String dataFileName;
+    StorageFormat storageFormat;
+    final BetStorage storage;
 
     /**
      * Constructs a DataFileUtils instance with the given directory and file name.
@@ -33,21 +60,49 @@ public class DataFileUtils {
      * @throws RuntimeException         if directory or file creation fails
      */
     public DataFileUtils(String dataDirectoryName, String dataFileName) {
+        this(dataDirectoryName, dataFileName, StorageFormat.TEXT);
+    }
+
+    /**
+     * Constructs a DataFileUtils instance that stores bets in the given format.
+     * <p>
+     * With {@link StorageFormat#BINARY} the data file holds fixed-width records
+     * (see {@link BinaryBetStore}), but every read method still returns bets and
+     * CSV lines exactly as in text mode. With {@link StorageFormat#SEGMENTED}
+     * the data file is the manifest of a {@link SegmentedBetStore} and the bets
+     * live in monthly segment files next to it.
+     * </p>
+     *
+     * @param dataDirectoryName Name of the data folder
+     * @param dataFileName      Name of the file to read/write bet data
+     * @param storageFormat     the on-disk format of the data file
+     * @throws IllegalArgumentException if any parameter is null or empty
+     * @throws RuntimeException         if directory or file creation fails
+     */
+    public DataFileUtils(String dataDirectoryName, String dataFileName, StorageFormat storageFormat) {
         // checking if any of the parameters are empty or null
         if (dataDirectoryName == null || dataDirectoryName.isEmpty() || dataFileName == null
-                || dataFileName.isEmpty()) {
+                || dataFileName.isEmpty() || storageFormat == null) {
             throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
         }
         // if any both are correct their value are given to the class variables
         this.dataDirectoryName = dataDirectoryName;
         this.dataFileName = dataFileName;
-        if (!dataDirectoryExists()) {
-            createDataDirectory();
-        }
-        if (!dataFileExists()) {
-            createDataFile();
-        }
+        this.storageFormat = storageFormat;
+        // both methods check for existence themselves; they are the private
+        // versions, since a subclass is not set up yet
+        makeDataDirectory(dataDirectoryName);
+        makeDataFile(dataDirectoryName, dataFileName);
+        this.storage = new BetStorage(new File(this.dataDirectoryName, this.dataFileName).toPath(), storageFormat);
+    }
 
+    /**
+     * Returns the on-disk format of the data file.
+     *
+     * @return the storage format chosen at construction time
+     */
+    public StorageFormat getStorageFormat() {
+        return storageFormat;
     }
 
     /**
@@ -56,7 +111,11 @@ public class DataFileUtils {
      * @throws RuntimeException if directory creation fails
      */
     public void createDataDirectory() {
-        File dataDirectory = new File(this.dataDirectoryName);
+        makeDataDirectory(this.dataDirectoryName);
+    }
+
+    private static void makeDataDirectory(String dataDirectoryName) {
+        File dataDirectory = new File(dataDirectoryName);
         try {
             if (!dataDirectory.exists()) {
                 if (!dataDirectory.mkdirs()) {
@@ -75,7 +134,11 @@ public class DataFileUtils {
      * @throws RuntimeException if file creation fails
      */
     public void createDataFile() {
-        File file = new File(this.dataDirectoryName, this.dataFileName);
+        makeDataFile(this.dataDirectoryName, this.dataFileName);
+    }
+
+    private static void makeDataFile(String dataDirectoryName, String dataFileName) {
+        File file = new File(dataDirectoryName, dataFileName);
         try {
             if (!file.exists()) {
                 if (!file.createNewFile()) {
@@ -113,16 +176,23 @@ public class DataFileUtils {
      * @return true if the directory exists; false otherwise
      */
     public boolean dataDirectoryExists() {
+        if (storage.isSessionOpen()) {
+            return true;
+        }
         File dataDirectory = new File(this.dataDirectoryName);
         return dataDirectory.exists();
     }
 
     /**
-     * Checks if the data file exists.
+     * Checks if the data file exists. While a session is open the answer is
+     * kept in memory; see {@link #openSession()}.
      *
      * @return true if the file exists; false otherwise
      */
     public boolean dataFileExists() {
+        if (storage.isSessionOpen()) {
+            return true;
+        }
         File file = new File(this.dataDirectoryName, this.dataFileName);
         return file.exists();
     }
@@ -133,16 +203,71 @@ public class DataFileUtils {
      * @throws RuntimeException if directory deletion fails
      */
     public void deleteDataFolderIfEmpty() {
-
+        Path directory = new File(this.dataDirectoryName).toPath();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            if (entries.findAny().isPresent()) {
+                throw new RuntimeException(Constants.MESSAGE_ERROR_FOLDER_NOT_EMPTY);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_DELETING_FOLDER, e);
+        }
     }
 
     /**
      * Deletes the data file if it exists.
+     * <p>
+     * The files that only exist to serve it are deleted too: its
+     * {@link AppendLock} file, its checksum journal and index snapshot, the
+     * dictionaries of a binary store and the
+     * segments of a segmented store. The in-memory indexes are cleared. The
+     * file is unlinked on the calling thread; see
+     * {@link #resetDataFile(boolean)} to empty a large file without waiting.
+     * </p>
      *
      * @throws RuntimeException if file deletion fails
      */
     public void deleteDataFile() {
+        storage.delete();
+    }
 
+    /**
+     * Empties the data file in constant time by swapping in a new empty file.
+     * <p>
+     * An empty file is written next to the data file and moved over it with
+     * an atomic rename, while holding the {@link AppendLock} of the file, so a
+     * reader or writer opening the file by name sees either the old or the new
+     * file and never a missing one. The old file is first linked to a retired
+     * name (renamed, where links are not supported); readers that already have
+     * it open keep reading it until they finish. The retired file is then
+     * deleted on a background thread, or kept as an archive.
+     * </p>
+     *
+     * <p>
+     * A binary store keeps its dictionaries, which stay valid for the new
+     * file; an archived binary file gets a copy of them. Inserts made through
+     * this instance while the reset runs may fail with an
+     * {@link IllegalStateException}.
+     * </p>
+     *
+     * @param archive whether to keep the old file instead of deleting it
+     * @return a future completed with the archived file, or with null once the
+     *         old file has been deleted
+     * @throws IllegalStateException if the data file does not exist or the
+     *                               data is stored in segments
+     * @throws RuntimeException      if the new file cannot be swapped in
+     */
+    public CompletableFuture<Path> resetDataFile(boolean archive) {
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_SEGMENTED);
+        }
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        return storage.reset(archive);
     }
 
     /**
@@ -153,26 +278,326 @@ public class DataFileUtils {
      * @throws RuntimeException      if an I/O error occurs while reading the file
      */
     public String getInfoFromDataFileIntoString() {
-        String info = "";
-        return info;
+        StringBuilder info = new StringBuilder();
+        try (Stream<String> lines = streamLines()) {
+            lines.forEach(line -> info.append(line).append('\n'));
+        }
+        return info.toString();
+    }
+
+    /**
+     * Lazily streams the raw lines of the data file.
+     * <p>
+     * Only one buffered line is held in memory at a time. The returned stream
+     * keeps the file open until it is closed, so it must be used in a
+     * try-with-resources block.
+     * </p>
+     *
+     * @return a stream over the lines of the data file
+     * @throws IllegalStateException if the data file does not exist
+     * @throws RuntimeException      if an I/O error occurs while reading the file
+     */
+    public Stream<String> streamLines() {
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        if (storageFormat == StorageFormat.BINARY) {
+            return storage.binaryStore().stream().map(Bet::toLine);
+        }
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            return storage.segmentedStore().lines();
+        }
+        try {
+            BufferedReader reader = new BufferedReader(
+                    new FileReader(new File(this.dataDirectoryName, this.dataFileName), StandardCharsets.UTF_8));
+            return reader.lines().onClose(() -> {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Lazily streams the bets stored in the data file.
+     * <p>
+     * Malformed lines are skipped. Memory use does not depend on the file size,
+     * and the stream must be closed to release the underlying file. Text files
+     * are read up to their last complete line without taking the
+     * {@link AppendLock}, so a line that another process is still appending is
+     * never returned half written.
+     * </p>
+     *
+     * @return a stream over the parsed bets of the data file
+     * @throws IllegalStateException if the data file does not exist
+     * @throws RuntimeException      if an I/O error occurs while reading the file
+     */
+    public Stream<Bet> streamBets() {
+        return streamBets(0);
+    }
+
+    /**
+     * Lazily streams the bets stored in the data file after its first rows,
+     * as {@link #streamBets()} does.
+     * <p>
+     * The skipped rows are never parsed: binary files start reading at the
+     * offset of the first record wanted, and text files and segments only
+     * count line breaks until they reach it. Rows are lines, so malformed
+     * lines count among the skipped rows.
+     * </p>
+     *
+     * @param firstRow number of rows to skip
+     * @return a stream over the parsed bets that follow the skipped rows
+     * @throws IllegalArgumentException if firstRow is negative
+     * @throws IllegalStateException    if the data file does not exist
+     * @throws RuntimeException         if an I/O error occurs while reading the file
+     */
+    public Stream<Bet> streamBets(long firstRow) {
+        if (firstRow < 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_NOT_VALID_OPTION);
+        }
+        if (storageFormat == StorageFormat.BINARY) {
+            if (!dataFileExists()) {
+                throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+            }
+            return storage.binaryStore().stream(firstRow);
+        }
+        if (storageFormat == StorageFormat.TEXT) {
+            return parallelScanner().stream(false, firstRow);
+        }
+        // one parser per line: the stream may be made parallel by the caller
+        return streamLines().skip(firstRow).map(line -> {
+            BetLineParser parser = new BetLineParser();
+            return parser.parse(line) ? parser.toBet() : null;
+        }).filter(Objects::nonNull);
+    }
+
+    /**
+     * Returns the most recent bets of the data file, newest first.
+     * <p>
+     * The file is read backwards from its end, so the cost depends on the
+     * number of bets requested and not on the file size. Text files and
+     * segments are read in blocks up to the last complete line; binary files
+     * read only the requested records. Malformed lines are skipped.
+     * </p>
+     *
+     * @param count the maximum number of bets to return
+     * @return up to count bets, in reverse file order
+     * @throws IllegalArgumentException if count is negative
+     * @throws IllegalStateException    if the data file does not exist
+     * @throws RuntimeException         if an I/O error occurs while reading the file
+     */
+    public List<Bet> lastBets(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_NOT_VALID_OPTION);
+        }
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        if (storageFormat == StorageFormat.BINARY) {
+            return storage.binaryStore().last(count);
+        }
+        List<Bet> bets = new ArrayList<>();
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            List<SegmentedBetStore.Segment> segments = storage.segmentedStore().segments();
+            for (int i = segments.size() - 1; i >= 0 && bets.size() < count; i--) {
+                Path segment = storage.segmentedStore().pathOf(segments.get(i));
+                if (segment.toFile().exists()) {
+                    addLastBets(segment, count, bets);
+                }
+            }
+        } else {
+            addLastBets(new File(this.dataDirectoryName, this.dataFileName).toPath(), count, bets);
+        }
+        return bets;
+    }
+
+    private static void addLastBets(Path file, int count, List<Bet> bets) {
+        BetLineParser parser = new BetLineParser();
+        try (ReverseLineReader reader = new ReverseLineReader(file)) {
+            while (bets.size() < count && reader.previous()) {
+                if (parser.parse(reader.buffer(), reader.lineStart(), reader.lineEnd())) {
+                    bets.add(parser.toBet());
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads every bet of the data file into an off-heap column store.
+     * <p>
+     * Text files are parsed straight from the mapped file into the columns,
+     * without creating a {@link Bet} per line. Malformed lines are skipped.
+     * Binary files share their persisted dictionaries with the store, so its
+     * sport and bet type ids are the ones stored in the file.
+     * </p>
+     *
+     * @return a new column store with the bets in file order
+     * @throws IllegalStateException if the data file does not exist
+     * @throws RuntimeException      if an I/O error occurs while reading the file
+     */
+    public BetColumnStore loadColumnStore() {
+        BetColumnStore store = storageFormat == StorageFormat.BINARY
+                ? new BetColumnStore(BetColumnStore.DEFAULT_CHUNK_ROWS, storage.binaryStore().sports(),
+                        storage.binaryStore().betTypes())
+                : new BetColumnStore();
+        if (storageFormat == StorageFormat.TEXT) {
+            try (MappedBetScanner scanner = openMappedScanner()) {
+                scanner.scanAllBets((bet, offset) -> store.append(bet));
+            }
+        } else {
+            try (Stream<Bet> bets = streamBets()) {
+                bets.forEach(store::append);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Computes the stake and payout totals of the bets of the data file,
+     * grouped by one column, in a single pass.
+     * <p>
+     * Text files are aggregated straight from the file bytes without creating
+     * {@link Bet} objects; with {@code parallel} the file is split into line
+     * ranges aggregated on the common fork-join pool. Malformed lines are
+     * skipped.
+     * </p>
+     *
+     * @param groupBy  the column to group by
+     * @param parallel whether to aggregate on several threads
+     * @return the totals of every group, sorted by group key
+     * @throws IllegalArgumentException if groupBy is null
+     * @throws IllegalStateException    if the data file does not exist
+     * @throws RuntimeException         if an I/O error occurs while reading the file
+     */
+    public SortedMap<String, BetAggregator.Totals> aggregateBets(BetAggregator.GroupBy groupBy, boolean parallel) {
+        if (groupBy == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_GROUP_BY);
+        }
+        if (storageFormat == StorageFormat.TEXT && parallel) {
+            return parallelScanner().aggregate(() -> new BetAggregator(groupBy), BetAggregator::add,
+                    BetAggregator::merge).result();
+        }
+        if (storageFormat == StorageFormat.TEXT) {
+            BetAggregator aggregator = new BetAggregator(groupBy);
+            try (MappedBetScanner scanner = openMappedScanner()) {
+                scanner.scanAllBets((bet, offset) -> aggregator.add(bet));
+            }
+            return aggregator.result();
+        }
+        try (Stream<Bet> bets = streamBets()) {
+            return BetAggregator.aggregate(parallel ? bets.parallel() : bets, groupBy);
+        }
+    }
+
+    /**
+     * Opens a scanner that reads the data file through memory-mapped windows.
+     * <p>
+     * The scanner must be closed. It is meant for full scans of large files
+     * and for following the file as it grows.
+     * </p>
+     *
+     * @return a new scanner over the data file
+     * @throws IllegalStateException if the data file does not exist or is not
+     *                               stored as text
+     * @throws RuntimeException      if the file cannot be opened
+     */
+    public MappedBetScanner openMappedScanner() {
+        if (storageFormat != StorageFormat.TEXT) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_TEXT_ONLY);
+        }
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        return new MappedBetScanner(new File(this.dataDirectoryName, this.dataFileName).toPath());
+    }
+
+    /**
+     * Returns a scanner that splits the data file into line-aligned ranges and
+     * processes them on a fork-join pool.
+     *
+     * @return a parallel scanner over the data file
+     * @throws IllegalStateException if the data file does not exist or is not
+     *                               stored as text
+     */
+    public ParallelBetScanner parallelScanner() {
+        if (storageFormat != StorageFormat.TEXT) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_TEXT_ONLY);
+        }
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        return new ParallelBetScanner(new File(this.dataDirectoryName, this.dataFileName).toPath());
+    }
+
+    /**
+     * Streams the bets of the data file as a parallel stream whose
+     * spliterator splits the file into line-aligned byte ranges. The stream
+     * must be closed.
+     *
+     * @return a parallel stream over the bets of the data file
+     * @throws IllegalStateException if the data file does not exist or is not
+     *                               stored as text
+     * @throws RuntimeException      if the file cannot be opened
+     */
+    public Stream<Bet> parallelBets() {
+        return parallelScanner().stream(true);
     }
 
     /**
      * Inserts a string into the data file.
      * <p>
      * The method validates the input content and appends it to the file with a
-     * newline.
+     * newline, in a single write however many lines it holds. In
+     * {@link StorageFormat#BINARY} mode every line must be a well-formed bet
+     * line, and the lines are stored as consecutive binary records, also in a
+     * single write. In {@link StorageFormat#SEGMENTED} mode every line must be
+     * a well-formed bet and goes to the segment of its month.
      * </p>
      *
      * @param content the string content to insert (must not be null or empty)
      * @return true if the content was successfully inserted
-     * @throws IllegalArgumentException if content is null or empty
+     * @throws IllegalArgumentException if content is null or empty, or holds a
+     *                                  line that is not a bet in binary or
+     *                                  segmented mode
      * @throws IllegalStateException    if the data file does not exist
      * @throws RuntimeException         if an I/O error occurs while writing to the
      *                                  file
      */
     public boolean insertStringIntoDataFile(String content) {
-        return false;
+        if (content == null || content.isEmpty()) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        if (storageFormat == StorageFormat.BINARY) {
+            List<Bet> bets = new ArrayList<>();
+            for (String line : content.lines().toList()) {
+                Bet bet = Bet.parse(line);
+                if (bet == null) {
+                    throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_BET);
+                }
+                bets.add(bet);
+            }
+            storage.appendBinary(bets);
+        } else if (storageFormat == StorageFormat.SEGMENTED) {
+            List<String> lines = content.lines().toList();
+            BetLineParser parser = new BetLineParser();
+            for (String line : lines) {
+                if (!parser.parse(line)) {
+                    throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_BET);
+                }
+            }
+            storage.appendSegmented(lines);
+        } else {
+            storage.appendText(content);
+        }
+        return true;
     }
 
     /**
@@ -194,7 +619,482 @@ public class DataFileUtils {
      */
     public boolean insertBetIntoDataFile(String sport, String event, String betType, float odds,
             float amount) {
-        return false;
+        if (!(odds > 0) || !(amount > 0)) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_BET);
+        }
+        return insertExactBetIntoDataFile(sport, event, betType,
+                FixedPoint.fromFloat(odds, FixedPoint.ODDS_DECIMALS),
+                FixedPoint.fromFloat(amount, FixedPoint.AMOUNT_DECIMALS));
+    }
+
+    /**
+     * Inserts a new bet record with {@link FixedPoint} odds and amount into the
+     * data file, prepending a timestamp. The values are written exactly, with
+     * no float rounding.
+     *
+     * @param sport           the sport name (must not be null or empty)
+     * @param event           the event name (must not be null or empty)
+     * @param betType         the type of bet (must not be null or empty)
+     * @param oddsThousandths the betting odds in thousandths (must be positive)
+     * @param amountCents     the bet amount in cents (must be positive)
+     * @return true if the bet was successfully inserted
+     * @throws IllegalArgumentException if any parameter is null, empty, or invalid
+     * @throws IllegalStateException    if the data file does not exist
+     * @throws RuntimeException         if an I/O error occurs while writing to the
+     *                                  file
+     */
+    public boolean insertExactBetIntoDataFile(String sport, String event, String betType, long oddsThousandths,
+            long amountCents) {
+        if (!isValidBet(sport, event, betType, oddsThousandths, amountCents)) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_BET);
+        }
+        return insertStringIntoDataFile(
+                new Bet(TimestampCodec.nowText(), sport, event, betType, oddsThousandths, amountCents).toLine());
+    }
+
+    /**
+     * Tells whether {@link #insertExactBetIntoDataFile} accepts a bet: the
+     * fields must not be null or empty nor hold commas or line breaks, and
+     * odds and amount must be positive.
+     *
+     * @param sport           the sport name
+     * @param event           the event name
+     * @param betType         the type of bet
+     * @param oddsThousandths the betting odds in thousandths
+     * @param amountCents     the bet amount in cents
+     * @return true if the bet can be inserted
+     */
+    public static boolean isValidBet(String sport, String event, String betType, long oddsThousandths,
+            long amountCents) {
+        return isValidBetField(sport) && isValidBetField(event) && isValidBetField(betType) && oddsThousandths > 0
+                && amountCents > 0;
+    }
+
+    /**
+     * Returns the in-memory index of the data file by sport and event.
+     *
+     * @return the index kept up to date by the insert methods
+     */
+    public BetIndex getIndex() {
+        return storage.index();
+    }
+
+    /**
+     * Rebuilds the sport and event index with a full scan of the data file.
+     * <p>
+     * The constructor calls it when there is no usable
+     * {@link IndexSnapshot}. Afterwards the insert methods keep the
+     * index up to date, so it only has to be called again when the file is
+     * changed from outside this instance. In segmented mode the offsets are
+     * {@link SegmentedBetStore} addresses and the timestamp index is not used,
+     * since the manifest already prunes segments by time.
+     * </p>
+     *
+     * @throws RuntimeException if an I/O error occurs while reading the file
+     */
+    public void rebuildIndex() {
+        storage.rebuildIndex();
+    }
+
+    /**
+     * Returns the bets of a sport and event using the index, reading only the
+     * matching records.
+     *
+     * @param sport the sport to look up
+     * @param event the event to look up
+     * @return the matching bets in insertion order
+     * @throws IllegalStateException if the data file does not exist
+     * @throws RuntimeException      if an I/O error occurs while reading the file
+     */
+    public List<Bet> findBets(String sport, String event) {
+        return readBetsAt(storage.index().offsets(sport, event));
+    }
+
+    /**
+     * Returns all the bets of a sport using the index, in file order.
+     *
+     * @param sport the sport to look up
+     * @return the matching bets in file order
+     * @throws IllegalStateException if the data file does not exist
+     * @throws RuntimeException      if an I/O error occurs while reading the file
+     */
+    public List<Bet> findBets(String sport) {
+        return readBetsAt(storage.index().offsets(sport));
+    }
+
+    /**
+     * Returns the bets whose timestamp is in {@code [from, to)}.
+     * <p>
+     * The sparse timestamp index narrows the search to the blocks of the file
+     * that can hold matching records, so the cost depends on the size of the
+     * range and not on the size of the file. In segmented mode the segments
+     * whose time range does not overlap the query are skipped entirely.
+     * </p>
+     *
+     * @param from the first timestamp, in {@link Constants#DATE_FORMAT} format,
+     *             inclusive
+     * @param to   the end timestamp, in {@link Constants#DATE_FORMAT} format,
+     *             exclusive
+     * @return the matching bets in file order
+     * @throws IllegalArgumentException if a timestamp is not made of digits
+     * @throws IllegalStateException    if the data file does not exist
+     * @throws RuntimeException         if an I/O error occurs while reading the
+     *                                  file
+     * @see #forEachBetBetween(String, String, Consumer)
+     */
+    public List<Bet> findBetsBetween(String from, String to) {
+        List<Bet> bets = new ArrayList<>();
+        forEachBetBetween(from, to, bets::add);
+        return bets;
+    }
+
+    /**
+     * Hands the bets whose timestamp is in {@code [from, to)} to an action as
+     * they are read, without collecting them, as
+     * {@link #findBetsBetween(String, String)} does.
+     *
+     * @param from   the first timestamp, in {@link Constants#DATE_FORMAT}
+     *               format, inclusive
+     * @param to     the end timestamp, in {@link Constants#DATE_FORMAT} format,
+     *               exclusive
+     * @param action receives the matching bets in file order
+     * @throws IllegalArgumentException if a timestamp is not made of digits
+     * @throws IllegalStateException    if the data file does not exist
+     * @throws RuntimeException         if an I/O error occurs while reading the
+     *                                  file
+     */
+    public void forEachBetBetween(String from, String to, Consumer<Bet> action) {
+        long start = parseTimestamp(from);
+        long end = parseTimestamp(to);
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        storage.forEachBetBetween(start, end, action);
+    }
+
+    /**
+     * Returns the segments listed in the manifest.
+     *
+     * @return the segments in creation order
+     * @throws IllegalStateException if the data is not stored in segments
+     */
+    public List<SegmentedBetStore.Segment> getSegments() {
+        if (storageFormat != StorageFormat.SEGMENTED) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_NOT_SEGMENTED);
+        }
+        return storage.segmentedStore().segments();
+    }
+
+    /**
+     * Drops the segments whose bets are all older than a timestamp. Each one
+     * is removed by deleting its file, so the cost does not depend on how many
+     * bets it holds; the index entries pointing to it are removed in memory.
+     *
+     * @param timestamp the retention limit, in {@link Constants#DATE_FORMAT}
+     *                  format
+     * @return the number of segments dropped
+     * @throws IllegalArgumentException if timestamp is not made of digits
+     * @throws IllegalStateException    if the data is not stored in segments
+     * @throws RuntimeException         if a segment or the manifest cannot be
+     *                                  written
+     */
+    public int dropSegmentsBefore(String timestamp) {
+        long limit = parseTimestamp(timestamp);
+        if (storageFormat != StorageFormat.SEGMENTED) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_NOT_SEGMENTED);
+        }
+        return storage.dropSegmentsBefore(limit);
+    }
+
+    /**
+     * Starts a session that keeps the data file open until {@link #close()}.
+     * <p>
+     * Inserts append through a channel that stays open instead of opening
+     * the file every time. Each insert still holds the {@link AppendLock} of
+     * the file while it writes (see {@link FileSession}). Positional reads of
+     * the index lookups share a second open channel, and the existence of the
+     * file and its directory is answered from memory.
+     * </p>
+     *
+     * <p>
+     * If another writer appends to the file during the session, or replaces
+     * it, call {@link #refresh()}, or watch the file with
+     * {@link #watchDataFile(long)}, so that the index matches the file and
+     * the inserts go to the current file. Calling this method with a session
+     * already open does nothing.
+     * </p>
+     *
+     * @return this instance, to be used in a try-with-resources block
+     * @throws IllegalStateException if the data file does not exist or the
+     *                               data is stored in segments
+     * @throws RuntimeException      if the file cannot be opened
+     */
+    public DataFileUtils openSession() {
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_SEGMENTED);
+        }
+        if (!storage.isSessionOpen()) {
+            if (!dataFileExists()) {
+                throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+            }
+            storage.openSession();
+        }
+        return this;
+    }
+
+    /**
+     * Tells whether a session is open.
+     *
+     * @return true between {@link #openSession()} and {@link #close()}
+     */
+    public boolean isSessionOpen() {
+        return storage.isSessionOpen();
+    }
+
+    /**
+     * Checks the state kept in memory by a session against the file system.
+     * <p>
+     * The session is reopened on the file currently found at the data file
+     * path, and the indexes are rebuilt if its size is not the one tracked by
+     * the session or the session has seen other writers append to the file.
+     * Without a session only the indexes are rebuilt.
+     * </p>
+     *
+     * @throws IllegalStateException if the data file no longer exists
+     * @throws RuntimeException      if the file cannot be opened or read
+     */
+    public void refresh() {
+        storage.refresh();
+    }
+
+    /**
+     * Ends the session, if any, writes the inserts still queued by a
+     * {@link ConcurrentDataFileUtils}, flushes the batched writer, stops
+     * watching the file and saves a last index snapshot, if enabled. A
+     * segmented store writes its manifest and closes its last segment, and the
+     * channel of the {@link AppendLock} file is closed. The instance can still
+     * be used afterwards, opening the file on every operation.
+     */
+    @Override
+    public void close() {
+        storage.close();
+    }
+
+    /**
+     * Turns on the checksum journal with the default checkpoint interval.
+     *
+     * @return what the recovery of the data file checked and removed
+     * @throws IllegalStateException if the data file does not exist or the
+     *                               data is stored in segments
+     * @throws RuntimeException      if an I/O error occurs
+     * @see #enableChecksums(long)
+     */
+    public ChecksumJournal.Recovery enableChecksums() {
+        return enableChecksums(ChecksumJournal.DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    /**
+     * Turns on the checksum journal and repairs the data file after a crash.
+     * <p>
+     * The records written since the last checkpoint of the
+     * {@link ChecksumJournal} are checked against their CRC32C. The data file
+     * is truncated before the first torn record and a trailing partial line
+     * or record is dropped, so the next insert never glues onto half a line.
+     * Only the tail written since the last checkpoint is read, whatever the
+     * size of the file. From then on the checksum of every insert is added to
+     * the journal, and a checkpoint is taken every checkpointBytes bytes and
+     * when the instance is closed.
+     * </p>
+     *
+     * <p>
+     * Meant to be called at startup, before any insert. The first call on a
+     * file without journal trusts its current contents. Calling it again
+     * replaces the previous journal configuration.
+     * </p>
+     *
+     * @param checkpointBytes number of appended bytes between checkpoints
+     * @return what the recovery of the data file checked and removed
+     * @throws IllegalArgumentException if checkpointBytes is not positive
+     * @throws IllegalStateException    if the data file does not exist or the
+     *                                  data is stored in segments
+     * @throws RuntimeException         if an I/O error occurs
+     */
+    public ChecksumJournal.Recovery enableChecksums(long checkpointBytes) {
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_SEGMENTED);
+        }
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        return storage.enableChecksums(checkpointBytes);
+    }
+
+    /**
+     * Takes a last checkpoint and stops recording checksums.
+     */
+    public void disableChecksums() {
+        storage.disableChecksums();
+    }
+
+    /**
+     * Writes a snapshot of the indexes next to the data file, so that the next
+     * instance opened on it only scans the bytes appended afterwards.
+     *
+     * @return the offset of the data file covered by the snapshot, or -1 if
+     *         the file is shorter than the indexes, which means it has been
+     *         changed from outside and nothing is written
+     * @throws IllegalStateException if the data file does not exist or the
+     *                               data is stored in segments
+     * @throws RuntimeException      if an I/O error occurs
+     * @see IndexSnapshot
+     */
+    public long saveSnapshot() {
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_SEGMENTED);
+        }
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        return storage.saveSnapshot();
+    }
+
+    /**
+     * Saves an index snapshot periodically on a background thread, when
+     * records have been indexed since the previous one, and once more when
+     * snapshots are disabled or the instance is closed. Calling it again
+     * replaces the previous period.
+     *
+     * @param periodMillis time between snapshots
+     * @throws IllegalArgumentException if periodMillis is not positive
+     * @throws IllegalStateException    if the data is stored in segments
+     * @see #saveSnapshot()
+     */
+    public void enableSnapshots(long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_SNAPSHOT_PERIOD);
+        }
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_SEGMENTED);
+        }
+        storage.enableSnapshots(periodMillis);
+    }
+
+    /**
+     * Stops the periodic snapshots and saves a last one, if they were
+     * enabled.
+     *
+     * @throws RuntimeException if the last snapshot cannot be written
+     */
+    public void disableSnapshots() {
+        storage.disableSnapshots();
+    }
+
+    /**
+     * Keeps the indexes up to date with the bets other processes append to
+     * the data file.
+     * <p>
+     * A {@link DataFileWatcher} reads the lines appended after the indexed
+     * ones whenever the file changes, and at least every pollMillis
+     * milliseconds, and adds them to the indexes. If the file is truncated or
+     * replaced, the indexes are rebuilt from its new contents and an open
+     * session is reopened on it. Inserts made through this instance are
+     * indexed by the watcher as well, right after they are written, so the
+     * indexes hold every bet in file order. More listeners can be registered
+     * on the returned watcher to follow the file too.
+     * </p>
+     *
+     * <p>
+     * Calling it again replaces the previous watcher.
+     * </p>
+     *
+     * @param pollMillis maximum time between two checks of the file
+     * @return the watcher, already started
+     * @throws IllegalArgumentException if pollMillis is not positive
+     * @throws IllegalStateException    if the data file does not exist or is
+     *                                  not a text file
+     */
+    public DataFileWatcher watchDataFile(long pollMillis) {
+        if (storageFormat != StorageFormat.TEXT) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_TEXT_ONLY);
+        }
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        return storage.watchDataFile(pollMillis);
+    }
+
+    /**
+     * Stops watching the data file, if it was watched. The indexes are kept
+     * up to date by the inserts of this instance only.
+     */
+    public void stopWatching() {
+        storage.stopWatching();
+    }
+
+    /**
+     * Switches inserts to group-commit mode.
+     * <p>
+     * Inserts made from any thread are queued and written together by a
+     * {@link BatchedBetWriter}. Each insert still returns only after the batch
+     * holding its line has been written, and forced to the device when
+     * forceOnFlush is true. Calling this method again replaces the previous
+     * configuration.
+     * </p>
+     *
+     * @param maxBatchSize     maximum number of lines per flush
+     * @param maxLatencyMillis maximum time a flush waits for more lines
+     * @param forceOnFlush     whether each flush forces the data to the device
+     * @throws IllegalArgumentException if the configuration is not valid
+     * @throws IllegalStateException    if the data is stored in segments
+     */
+    public void enableBatchedWrites(int maxBatchSize, long maxLatencyMillis, boolean forceOnFlush) {
+        if (storageFormat == StorageFormat.SEGMENTED) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_SEGMENTED);
+        }
+        storage.enableBatchedWrites(maxBatchSize, maxLatencyMillis, forceOnFlush);
+    }
+
+    /**
+     * Flushes any queued insert and goes back to writing one line per insert.
+     */
+    public void disableBatchedWrites() {
+        storage.disableBatchedWrites();
+    }
+
+    /**
+     * Reads the records found at the given offsets with positional reads.
+     *
+     * @param offsets the offsets of the records
+     * @return the bets read, skipping records that are no longer valid
+     */
+    private List<Bet> readBetsAt(long[] offsets) {
+        if (!dataFileExists()) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_FILE_NOT_FOUND);
+        }
+        return storage.readBetsAt(offsets);
+    }
+
+    /**
+     * Tells whether a timestamp can be used in a time range query.
+     *
+     * @param timestamp the timestamp, in {@link Constants#DATE_FORMAT} format
+     * @return true if it is made of at most 18 digits
+     */
+    public static boolean isValidTimestamp(String timestamp) {
+        return timestamp != null && !timestamp.isEmpty() && timestamp.chars().allMatch(Character::isDigit)
+                && timestamp.length() <= 18;
+    }
+
+    private static long parseTimestamp(String timestamp) {
+        if (!isValidTimestamp(timestamp)) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_TIMESTAMP);
+        }
+        return Long.parseLong(timestamp);
+    }
+
+    private static boolean isValidBetField(String field) {
+        return field != null && !field.isEmpty() && field.indexOf(',') < 0 && field.indexOf('\n') < 0
+                && field.indexOf('\r') < 0;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Follows a text bets file that other processes append to, and hands the new
+ * bets to listeners.
+ * <p>
+ * Every {@link #poll()} compares the file with the position already read.
+ * When the file has grown, only the complete lines after that position are
+ * mapped and parsed; a trailing line without newline is left for the next
+ * poll. When the file is shorter than the position, or has been replaced by
+ * another file (a different {@link BasicFileAttributes#fileKey()}), the
+ * listeners are told to drop what they have and every bet of the file is
+ * delivered again from the start.
+ * </p>
+ *
+ * <p>
+ * {@link #start()} polls on a background thread whenever a
+ * {@link WatchService} reports a change in the directory of the file, and at
+ * least every {@code pollMillis} milliseconds, which also covers file systems
+ * where the watch service is not available or misses events. The watcher is
+ * thread safe; listeners are called by one thread at a time, in file order.
+ * </p>
+ *
+ * @IOC
+ */
+public class DataFileWatcher implements AutoCloseable {
+
+    public static final long DEFAULT_POLL_MILLIS = 1000;
+
+    private final Path file;
+    private final long pollMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private long position;
+    private Object fileKey;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * Receiver of the changes of the file.
+     */
+    public interface Listener {
+
+        /**
+         * Receives a bet appended to the file.
+         *
+         * @param bet    the parsed bet
+         * @param offset offset of the first byte of its line in the file
+         */
+        void betAppended(Bet bet, long offset);
+
+        /**
+         * Called after the bets of a poll have been delivered.
+         *
+         * @param position offset after the last complete line read
+         */
+        default void caughtUp(long position) {
+        }
+
+        /**
+         * Called when the file has been truncated or replaced. Everything
+         * learned from it must be dropped: its bets are delivered again from
+         * offset 0 right afterwards.
+         */
+        void fileReset();
+    }
+
+    /**
+     * Creates a watcher that delivers the bets after a position.
+     *
+     * @param file       the text bets file
+     * @param position   offset of the first line not yet known to the
+     *                   listeners; a line start
+     * @param pollMillis maximum time between two polls of the background
+     *                   thread
+     * @throws IllegalArgumentException if file is null, position is negative
+     *                                  or pollMillis is not positive
+     */
+    public DataFileWatcher(Path file, long position, long pollMillis) {
+        if (file == null || position < 0 || pollMillis <= 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_WATCHER_CONFIG);
+        }
+        this.file = file.toAbsolutePath();
+        this.position = position;
+        this.pollMillis = pollMillis;
+        try {
+            this.fileKey = Files.readAttributes(this.file, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            this.fileKey = null;
+        }
+    }
+
+    /**
+     * Registers a listener. It only receives the bets read from now on.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the position read so far.
+     *
+     * @return offset after the last complete line delivered
+     */
+    public synchronized long position() {
+        return position;
+    }
+
+    /**
+     * Reads the changes of the file since the previous poll and delivers them
+     * to the listeners. A missing file is not a change: it is read again once
+     * it exists.
+     *
+     * @return the position after the poll
+     * @throws RuntimeException if the file cannot be read
+     */
+    public synchronized long poll() {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return position;
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+        Object key = attributes.fileKey();
+        boolean replaced = key != null && fileKey != null && !key.equals(fileKey);
+        fileKey = key;
+        if (replaced || attributes.size() < position) {
+            position = 0;
+            for (Listener listener : listeners) {
+                listener.fileReset();
+            }
+        }
+        if (attributes.size() == position) {
+            return position;
+        }
+        try (MappedBetScanner scanner = new MappedBetScanner(file)) {
+            position = scanner.scanBets(position, (bet, offset) -> {
+                Bet parsed = bet.toBet();
+                for (Listener listener : listeners) {
+                    listener.betAppended(parsed, offset);
+                }
+            });
+        }
+        for (Listener listener : listeners) {
+            listener.caughtUp(position);
+        }
+        return position;
+    }
+
+    /**
+     * Starts over on the file now found at the path, as a poll does when it
+     * finds the file replaced: the listeners are told to drop what they have
+     * and the position goes back to the start. Meant for a writer that has
+     * just replaced the file itself, while it still holds the
+     * {@link AppendLock}, so that its next appends are taken over by
+     * {@link #appended} at once instead of waiting for a poll.
+     */
+    public synchronized void restart() {
+        try {
+            fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            fileKey = null;
+        }
+        position = 0;
+        for (Listener listener : listeners) {
+            listener.fileReset();
+        }
+    }
+
+    /**
+     * Takes over a line that this process has just appended, so that it is
+     * not read back from the file. When the position read so far is the
+     * offset of the line, the line is handed to {@code own} instead of the
+     * listeners and the position moves past it. When other processes have
+     * appended lines before it, the file is polled, which delivers them and
+     * the line to the listeners in file order. A line already delivered by an
+     * earlier poll is left alone.
+     *
+     * @param offset offset of the first byte of the line
+     * @param length length of the line in bytes, newline included
+     * @param own    receives the offset when the line is taken over; it is
+     *               called holding the lock of the watcher, so in file order
+     *               with the listeners
+     * @return true if the line was handed to {@code own}
+     * @throws RuntimeException if the file has to be polled and cannot be read
+     */
+    public synchronized boolean appended(long offset, long length, LongConsumer own) {
+        if (position == offset) {
+            own.accept(offset);
+            position = offset + length;
+            return true;
+        }
+        if (position < offset) {
+            poll();
+        }
+        return false;
+    }
+
+    /**
+     * Starts polling on a background thread, driven by the watch service of
+     * the file system when there is one.
+     *
+     * @return this watcher
+     * @throws IllegalStateException if the watcher has already been started
+     */
+    public synchronized DataFileWatcher start() {
+        if (thread != null) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_WATCHER_CONFIG);
+        }
+        try {
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            closeWatchService();
+        }
+        thread = Thread.ofPlatform().daemon().name("bets-watcher").start(this::run);
+        return this;
+    }
+
+    /**
+     * Tells whether the background thread is driven by a watch service, or
+     * only polls periodically.
+     *
+     * @return true if a watch service is in use
+     */
+    public synchronized boolean usesWatchService() {
+        return watchService != null;
+    }
+
+    /**
+     * Stops the background thread, if started, and waits for it.
+     */
+    @Override
+    public void close() {
+        Thread running;
+        synchronized (this) {
+            running = thread;
+            thread = null;
+            closeWatchService();
+        }
+        if (running == null) {
+            return;
+        }
+        running.interrupt();
+        try {
+            running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        WatchService service;
+        synchronized (this) {
+            service = watchService;
+        }
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (service == null) {
+                    Thread.sleep(pollMillis);
+                } else {
+                    WatchKey key = service.poll(pollMillis, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        // the events only wake the thread up; poll() finds out
+                        // what changed
+                        key.pollEvents();
+                        key.reset();
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                // the file may be being replaced; the next round tries again
+            }
+        }
+    }
+
+    private void closeWatchService() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // the thread stops on the next round anyway
+        } finally {
+            watchService = null;
+        }
+    }
+}
@@ -1,4 +1,7 @@
-import java.util.Locale;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Main class that controls the application's execution flow.
@@ -20,15 +23,61 @@ public class EAC5S22526 {
      * Entry point of the program.
      * <p>
      * It creates an instance of the class and starts the interaction loop
-     * after setting the default locale to US.
+     * after setting the default locale to US. With {@code serve} as first
+     * argument it starts the HTTP ingestion server instead (see
+     * {@link #serve(String[])}). Otherwise the arguments are options of the
+     * console (see {@link #start(Set)}).
      * </p>
      * 
-     * @param args Command-line arguments (not used)
+     * @param args Command-line arguments: console options, such as
+     *             {@code session} or {@code watch}, or
+     *             {@code serve [port] [folder] [file]} for the server
      */
     public static void main(String[] args) {
         EAC5S22526 program = new EAC5S22526();
-        Locale.setDefault(Locale.US);
-        program.start();
+        if (args.length > 0 && Constants.SERVER_ARGUMENT.equals(args[0])) {
+            program.serve(args);
+        } else {
+            program.start(new HashSet<>(Arrays.asList(args)));
+        }
+    }
+
+    /**
+     * Runs the HTTP ingestion server until the JVM is stopped.
+     * <p>
+     * A server runs for long and may share its file with other processes, so
+     * it saves index snapshots periodically and watches the data file for
+     * bets appended by others.
+     * </p>
+     *
+     * @param args {@code serve [port] [folder] [file]}; missing values use
+     *             {@link BetHttpServer#DEFAULT_PORT} and the default data file
+     * @throws NumberFormatException if the port is not a number
+     */
+    public void serve(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : BetHttpServer.DEFAULT_PORT;
+        String nomCarpeta = args.length > 2 ? args[2] : Constants.DEFAULT_DATA_DIRECTORY;
+        String nomFitxer = args.length > 3 ? args[3] : Constants.DEFAULT_FILE_NAME;
+        ConcurrentDataFileUtils dataFile = new ConcurrentDataFileUtils(nomCarpeta, nomFitxer);
+        dataFile.enableSnapshots(IndexSnapshot.DEFAULT_PERIOD_MILLIS);
+        dataFile.watchDataFile(DataFileWatcher.DEFAULT_POLL_MILLIS);
+        BetHttpServer server = new BetHttpServer(dataFile, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            dataFile.close();
+        }));
+        server.start();
+        new UtilsIO().showInfo(Constants.MESSAGE_SERVER_STARTED + server.port());
+    }
+
+    /**
+     * Starts the main program loop with no options, opening the data file
+     * for every operation.
+     *
+     * @see #start(Set)
+     */
+    public void start() {
+        start(Set.of());
     }
 
     /**
@@ -37,8 +86,24 @@ public class EAC5S22526 {
      * Prompts the user for the data directory and file name, then continuously
      * displays a menu and executes selected operations until the user exits.
      * </p>
+     *
+     * <p>
+     * The options turn on features that are off by default:
+     * {@code session} keeps the data file open for the whole run (see
+     * {@link DataFileUtils#openSession()}), {@code checksums} journals the
+     * checksum of every insert and repairs the file after a crash (see
+     * {@link DataFileUtils#enableChecksums()}), {@code snapshots} saves
+     * index snapshots for faster restarts (see
+     * {@link DataFileUtils#enableSnapshots(long)}) and {@code watch} indexes
+     * the bets other processes append to the file (see
+     * {@link DataFileUtils#watchDataFile(long)}). Without them no background
+     * thread is started and no journal or snapshot is written next to the
+     * data file.
+     * </p>
+     *
+     * @param options the names of the features to turn on
      */
-    public void start() {
+    public void start(Set<String> options) {
         UtilsIO io = new UtilsIO();
         String nomCarpeta = io.askForAnyString(Constants.MESSAGE_ASK_FOLDER);
         if (nomCarpeta == null || nomCarpeta.isEmpty()) {
@@ -50,7 +115,26 @@ public class EAC5S22526 {
             nomFitxer = Constants.DEFAULT_FILE_NAME;
         }
         
-        new DataFileUtils(nomCarpeta, nomFitxer);
+        DataFileUtils dataFile = new DataFileUtils(nomCarpeta, nomFitxer);
+        try {
+            if (options.contains(Constants.SESSION_ARGUMENT)) {
+                dataFile.openSession();
+            }
+            if (options.contains(Constants.CHECKSUMS_ARGUMENT)) {
+                long torn = dataFile.enableChecksums().tornRecords();
+                if (torn > 0) {
+                    io.showInfo(Constants.MESSAGE_TORN_RECORDS + torn);
+                }
+            }
+            if (options.contains(Constants.SNAPSHOTS_ARGUMENT)) {
+                dataFile.enableSnapshots(IndexSnapshot.DEFAULT_PERIOD_MILLIS);
+            }
+            if (options.contains(Constants.WATCH_ARGUMENT)) {
+                dataFile.watchDataFile(DataFileWatcher.DEFAULT_POLL_MILLIS);
+            }
+        } catch (RuntimeException e) {
+            io.showError(e.getMessage());
+        }
 
         int opcio;
         do {
@@ -58,12 +142,56 @@ public class EAC5S22526 {
             opcio = io.askForInteger(Constants.MESSAGE_ASK_OPTION_VALUE, Constants.MESSAGE_NOT_VALID_OPTION);
             switch (opcio) {
                 case 1:
+                    String sport = io.askForNotEmptyString(Constants.MESSAGE_ASK_SPORT, Constants.MESSAGE_ERROR_EMPTY_STRING);
+                    String event = io.askForNotEmptyString(Constants.MESSAGE_ASK_EVENT, Constants.MESSAGE_ERROR_EMPTY_STRING);
+                    String betType = io.askForNotEmptyString(Constants.MESSAGE_ASK_BET_TYPE, Constants.MESSAGE_ERROR_EMPTY_STRING);
+                    long odds = io.askForFixedPoint(Constants.MESSAGE_ASK_ODDS, Constants.MESSAGE_ERROR_NO_FLOAT,
+                            FixedPoint.ODDS_DECIMALS);
+                    long amount = io.askForFixedPoint(Constants.MESSAGE_ASK_AMOUNT, Constants.MESSAGE_ERROR_NO_FLOAT,
+                            FixedPoint.AMOUNT_DECIMALS);
+                    try {
+                        dataFile.insertExactBetIntoDataFile(sport, event, betType, odds, amount);
+                        io.showInfo(Constants.MESSAGE_BET_SAVED);
+                    } catch (RuntimeException e) {
+                        io.showError(e.getMessage());
+                    }
                     break;
                 case 2:
+                    try (Stream<Bet> bets = dataFile.streamBets()) {
+                        io.showBetsPaged(bets, Constants.BETS_PAGE_SIZE);
+                    } catch (RuntimeException e) {
+                        io.showError(e.getMessage());
+                    }
                     break;
                 case 3:
+                    try {
+                        dataFile.resetDataFile(false);
+                        io.showInfo(Constants.MESSAGE_FILE_RESET);
+                    } catch (RuntimeException e) {
+                        io.showError(e.getMessage());
+                    }
                     break;
                 case 4:
+                    io.showMenu(Constants.GROUP_BY_MENU);
+                    int grup = io.askForInteger(Constants.MESSAGE_ASK_OPTION_VALUE, Constants.MESSAGE_NOT_VALID_OPTION);
+                    BetAggregator.GroupBy[] grups = BetAggregator.GroupBy.values();
+                    if (grup < 1 || grup > grups.length) {
+                        io.showError(Constants.MESSAGE_NOT_VALID_OPTION);
+                        break;
+                    }
+                    try {
+                        io.showTotals(dataFile.aggregateBets(grups[grup - 1], true));
+                    } catch (RuntimeException e) {
+                        io.showError(e.getMessage());
+                    }
+                    break;
+                case 5:
+                    int darreres = io.askForInteger(Constants.MESSAGE_ASK_LAST_BETS, Constants.MESSAGE_ERROR_NO_INTEGER);
+                    try {
+                        io.showBetsFromStream(dataFile.lastBets(darreres).stream());
+                    } catch (RuntimeException e) {
+                        io.showError(e.getMessage());
+                    }
                     break;
                 default:
                     if(opcio !=0){
@@ -71,6 +199,7 @@ public class EAC5S22526 {
                     }
             }
         } while (opcio != 0);
+        dataFile.close();
         io.showInfo("Has sortit.");
     }
 
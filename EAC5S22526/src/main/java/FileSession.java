@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Open channels on a data file kept for the whole life of a
+ * {@link DataFileUtils} session.
+ * <p>
+ * Appends go through a channel opened in append mode, so the file is not
+ * opened and closed for every record. Each append holds the
+ * {@link AppendLock} of the file, shared with other processes, while it reads
+ * the end of the file and writes: a lock call, a size call, the write and an
+ * unlock call. The size has to be read under the lock, since another process
+ * may have appended since the last write of the session, and it is the
+ * offset the indexes record. Positional reads share a second, read-only
+ * channel.
+ * </p>
+ *
+ * <p>
+ * Whether the path still names the file the channels were opened on is only
+ * checked when an append fails and on {@link #refresh()}. A file replaced by
+ * another process, for example by its reset, keeps receiving the appends of
+ * the session until then; {@link DataFileUtils#refresh()} and the
+ * {@link DataFileWatcher} of the data file both reopen the session.
+ * </p>
+ *
+ * @IOC
+ */
+final class FileSession implements AutoCloseable {
+
+    private final Path file;
+    private final AppendLock lock;
+    private volatile FileChannel appender;
+    private volatile FileChannel reader;
+    private Object fileKey;
+    private long size;
+    private boolean changedOutside;
+
+    /**
+     * Opens the channels of a data file.
+     *
+     * @param file the data file, which must exist
+     * @throws RuntimeException if the file cannot be opened
+     */
+    FileSession(Path file) {
+        this.file = file;
+        this.lock = AppendLock.forFile(file);
+        try {
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Returns the data file of the session.
+     *
+     * @return the path the channels were opened on
+     */
+    Path file() {
+        return file;
+    }
+
+    /**
+     * Appends a record at the end of the file while holding its
+     * {@link AppendLock}, and records its checksum in the same locked
+     * section. When the write fails, the channels are reopened if the file
+     * has been replaced, so that the next append can succeed.
+     *
+     * @param record    the bytes of the record
+     * @param checksums the journal of the file, or null
+     * @return the offset where the record was written
+     * @throws RuntimeException if an I/O error occurs while writing the file
+     */
+    synchronized long append(byte[] record, ChecksumJournal checksums) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        try {
+            return lock.withLock(() -> {
+                long offset = appender.size();
+                if (offset != size) {
+                    changedOutside = true;
+                }
+                while (buffer.hasRemaining()) {
+                    appender.write(buffer);
+                }
+                size = offset + record.length;
+                if (checksums != null) {
+                    checksums.append(appender, offset, record);
+                }
+                return offset;
+            });
+        } catch (IOException e) {
+            try {
+                revalidate();
+            } catch (IOException ignored) {
+                // the next refresh or append reports the error
+            }
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+    }
+
+    /**
+     * Returns the read-only channel of the session. It must not be closed by
+     * the caller.
+     *
+     * @return the channel for positional reads
+     */
+    FileChannel reader() {
+        return reader;
+    }
+
+    /**
+     * Returns the size of the file tracked by the session.
+     *
+     * @return the size after the last append of this session, or when the
+     *         size was last read
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Tells whether another writer has appended to the file, or replaced it,
+     * since the session was opened, as seen by the appends of the session.
+     *
+     * @return true if the file has changed from outside
+     */
+    synchronized boolean changedOutside() {
+        return changedOutside;
+    }
+
+    /**
+     * Reopens the channels if the path names another file than the one they
+     * were opened on, and reads the size of the file again.
+     *
+     * @return the current size of the file
+     * @throws RuntimeException if the file cannot be opened or its size read
+     */
+    synchronized long refresh() {
+        try {
+            revalidate();
+            size = appender.size();
+            return size;
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(appender);
+        closeQuietly(reader);
+    }
+
+    /**
+     * Opens the channels on the file currently found at the path.
+     */
+    private void open() throws IOException {
+        FileChannel opened = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            reader = FileChannel.open(file, StandardOpenOption.READ);
+            fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            appender = opened;
+            size = appender.size();
+        } catch (IOException e) {
+            closeQuietly(opened);
+            throw e;
+        }
+    }
+
+    /**
+     * Reopens the channels on the file found at the path if it is not the
+     * one they were opened on.
+     */
+    private void revalidate() throws IOException {
+        if (!Objects.equals(fileKey, Files.readAttributes(file, BasicFileAttributes.class).fileKey())) {
+            close();
+            open();
+            changedOutside = true;
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing is pending on a closed channel
+        }
+    }
+}
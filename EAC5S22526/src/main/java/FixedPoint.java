@@ -0,0 +1,252 @@
+/**
+ * Locale-independent fixed-point arithmetic for money values.
+ * <p>
+ * A value is a {@code long} holding a whole number of the smallest unit:
+ * odds are kept in thousandths ({@value #ODDS_DECIMALS} decimals) and amounts
+ * in cents ({@value #AMOUNT_DECIMALS} decimals). Sums of millions of values
+ * are exact, and parsing and formatting work on characters directly, always
+ * with a dot as the decimal separator, without allocating beyond the result.
+ * </p>
+ *
+ * @IOC
+ */
+public final class FixedPoint {
+
+    public static final int ODDS_DECIMALS = 3;
+    public static final int AMOUNT_DECIMALS = 2;
+
+    /**
+     * Returned by the parse methods when the text is not a plain decimal.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final int MAX_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Parses {@code [-+]digits[.digits]} into a fixed-point value. Extra
+     * decimals are rounded half up.
+     *
+     * @param text     the text to parse
+     * @param decimals the number of decimals of the result
+     * @return the value, or {@link #INVALID} if the text is not a plain decimal
+     *         or has more than 18 significant digits
+     */
+    public static long parse(CharSequence text, int decimals) {
+        return text == null ? INVALID : parse(text, 0, text.length(), decimals);
+    }
+
+    /**
+     * Parses the window {@code [start, end)} of a character sequence; see
+     * {@link #parse(CharSequence, int)}.
+     *
+     * @param text     the characters holding the number
+     * @param start    index of the first character
+     * @param end      index after the last character
+     * @param decimals the number of decimals of the result
+     * @return the value, or {@link #INVALID} if the window is not a plain
+     *         decimal
+     */
+    public static long parse(CharSequence text, int start, int end, int decimals) {
+        Accumulator number = new Accumulator(decimals);
+        for (int i = start; i < end; i++) {
+            if (!number.accept(text.charAt(i), i == start)) {
+                return INVALID;
+            }
+        }
+        return number.result();
+    }
+
+    /**
+     * Converts a float to the closest fixed-point value.
+     *
+     * @param value    the value to convert
+     * @param decimals the number of decimals of the result
+     * @return the rounded fixed-point value
+     */
+    public static long fromFloat(float value, int decimals) {
+        return Math.round(value * (double) POWERS_OF_TEN[decimals]);
+    }
+
+    /**
+     * Converts a fixed-point value to the closest float.
+     *
+     * @param value    the fixed-point value
+     * @param decimals the number of decimals of the value
+     * @return the value as a float
+     */
+    public static float toFloat(long value, int decimals) {
+        return (float) ((double) value / POWERS_OF_TEN[decimals]);
+    }
+
+    /**
+     * Formats a value without trailing zeros but with at least one decimal,
+     * for example {@code 1.8}, {@code 75.5} or {@code 2.0}.
+     *
+     * @param value    the fixed-point value
+     * @param decimals the number of decimals of the value
+     * @return the formatted value
+     */
+    public static String toString(long value, int decimals) {
+        return appendCompact(new StringBuilder(MAX_DIGITS + 2), value, decimals).toString();
+    }
+
+    /**
+     * Appends a value without trailing zeros but with at least one decimal.
+     *
+     * @param target   the builder to append to
+     * @param value    the fixed-point value
+     * @param decimals the number of decimals of the value
+     * @return the target builder
+     */
+    public static StringBuilder appendCompact(StringBuilder target, long value, int decimals) {
+        long unit = POWERS_OF_TEN[decimals];
+        long fraction = Math.abs(value % unit);
+        int shown = decimals;
+        while (shown > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            shown--;
+        }
+        appendSign(target, value);
+        target.append(Math.abs(value / unit));
+        return appendFraction(target, fraction, shown);
+    }
+
+    /**
+     * Appends a value right-aligned in a column, rounded half up to the given
+     * number of decimals, like {@code %<width>.<shown>f} in the root locale.
+     *
+     * @param target   the builder to append to
+     * @param value    the fixed-point value
+     * @param decimals the number of decimals of the value
+     * @param shown    the number of decimals to show, at most decimals
+     * @param width    the minimum width of the column
+     * @return the target builder
+     */
+    public static StringBuilder appendPadded(StringBuilder target, long value, int decimals, int shown,
+            int width) {
+        long divisor = POWERS_OF_TEN[decimals - shown];
+        long rounded = Math.abs(value) / divisor + (Math.abs(value) % divisor * 2 >= divisor ? 1 : 0);
+        long unit = POWERS_OF_TEN[shown];
+        int start = target.length();
+        if (value < 0) {
+            target.append('-');
+        }
+        target.append(rounded / unit);
+        appendFraction(target, rounded % unit, shown);
+        for (int length = target.length() - start; length < width; length++) {
+            target.insert(start, ' ');
+        }
+        return target;
+    }
+
+    private static void appendSign(StringBuilder target, long value) {
+        if (value < 0) {
+            target.append('-');
+        }
+    }
+
+    private static StringBuilder appendFraction(StringBuilder target, long fraction, int digits) {
+        if (digits == 0) {
+            return target;
+        }
+        target.append('.');
+        for (long limit = POWERS_OF_TEN[digits - 1]; limit > 1 && fraction < limit; limit /= 10) {
+            target.append('0');
+        }
+        return target.append(fraction);
+    }
+
+    /**
+     * Digit-by-digit decoder shared by the text and byte parsers. It is a
+     * small object that escape analysis keeps off the heap; parsers that
+     * decode many fields keep one and {@link #reset} it for each.
+     */
+    static final class Accumulator {
+        private int decimals;
+        private long mantissa;
+        private int digits;
+        private int scale = -1;
+        private boolean negative;
+        private boolean anyDigit;
+        private boolean roundUp;
+
+        Accumulator(int decimals) {
+            this.decimals = decimals;
+        }
+
+        /**
+         * Clears the decoder for a new number.
+         *
+         * @param decimals the decimals of the new number
+         */
+        void reset(int decimals) {
+            this.decimals = decimals;
+            mantissa = 0;
+            digits = 0;
+            scale = -1;
+            negative = false;
+            anyDigit = false;
+            roundUp = false;
+        }
+
+        /**
+         * Feeds one character.
+         *
+         * @param c     the character
+         * @param first whether it is the first character of the number
+         * @return false if the character makes the number invalid
+         */
+        boolean accept(char c, boolean first) {
+            if (first && (c == '-' || c == '+')) {
+                negative = c == '-';
+                return true;
+            }
+            if (c == '.' && scale < 0) {
+                scale = 0;
+                return true;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            anyDigit = true;
+            if (scale >= decimals) {
+                if (scale++ == decimals) {
+                    roundUp = digit >= 5;
+                }
+                return true;
+            }
+            if (scale >= 0) {
+                scale++;
+            }
+            if (mantissa == 0 && digit == 0) {
+                return true;
+            }
+            if (++digits + decimals > MAX_DIGITS) {
+                return false;
+            }
+            mantissa = mantissa * 10 + digit;
+            return true;
+        }
+
+        /**
+         * Returns the decoded value.
+         *
+         * @return the value, or {@link FixedPoint#INVALID} if no digit was read
+         */
+        long result() {
+            if (!anyDigit) {
+                return INVALID;
+            }
+            int fractionDigits = Math.min(Math.max(scale, 0), decimals);
+            long value = mantissa * POWERS_OF_TEN[decimals - fractionDigits] + (roundUp ? 1 : 0);
+            return negative ? -value : value;
+        }
+    }
+}
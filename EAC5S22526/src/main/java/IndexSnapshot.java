@@ -0,0 +1,243 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot of the in-memory indexes of a data file, so that a new instance
+ * only has to scan the bytes appended since it was taken.
+ * <p>
+ * The snapshot is the sidecar file {@code <data file>.snapshot}. It holds the
+ * byte offset of the data file it covers, the {@link BetIndex} and
+ * {@link SparseTimestampIndex} entries of the records before that offset and
+ * a trailing CRC32C of the whole snapshot. Offsets are written as variable
+ * length deltas, so a snapshot takes a few bytes per bet. A new snapshot is
+ * written next to the current one, forced to the device and moved over it
+ * atomically, so a crash leaves either the old or the new one.
+ * </p>
+ *
+ * <p>
+ * A snapshot is only used if the data file still holds the bytes it covers:
+ * the file must be at least as long as the covered offset, and the CRC32C of
+ * the last {@value #FINGERPRINT_BYTES} covered bytes must match the one taken
+ * with the snapshot. That catches a reset or a replaced file; a change in the
+ * middle of the file made by another program is not noticed, and needs a
+ * call to {@link DataFileUtils#rebuildIndex()}.
+ * </p>
+ *
+ * @IOC
+ */
+public class IndexSnapshot {
+
+    public static final String SUFFIX = ".snapshot";
+    public static final long DEFAULT_PERIOD_MILLIS = 60_000;
+    public static final int FINGERPRINT_BYTES = 4096;
+
+    private static final int MAGIC = 0x42494458;
+    private static final int VERSION = 1;
+
+    private final Path dataFile;
+    private final Path snapshotFile;
+    private final StorageFormat format;
+
+    /**
+     * Creates the snapshot of a data file. Nothing is read or written until
+     * {@link #save} or {@link #load} is called.
+     *
+     * @param dataFile the data file, stored as text or binary records
+     * @param format   the format of the data file
+     * @throws IllegalArgumentException if a parameter is null or the format is
+     *                                  segmented
+     */
+    public IndexSnapshot(Path dataFile, StorageFormat format) {
+        if (dataFile == null || format == null || format == StorageFormat.SEGMENTED) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_SNAPSHOT);
+        }
+        this.dataFile = dataFile;
+        this.snapshotFile = snapshotOf(dataFile);
+        this.format = format;
+    }
+
+    /**
+     * Returns the snapshot file of a data file.
+     *
+     * @param dataFile the data file
+     * @return the path of its index snapshot
+     */
+    public static Path snapshotOf(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Writes the entries of the indexes for the records before an offset.
+     * Both indexes must hold every record before it; later records may be
+     * added while the snapshot is written.
+     *
+     * @param index          the sport and event index
+     * @param timestampIndex the timestamp index
+     * @param covered        the offset up to which the indexes are complete
+     * @return false if the data file is shorter than the covered offset, in
+     *         which case nothing is written
+     * @throws RuntimeException if an I/O error occurs
+     */
+    public boolean save(BetIndex index, SparseTimestampIndex timestampIndex, long covered) {
+        Path fresh = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            int fingerprint;
+            try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                if (data.size() < covered) {
+                    return false;
+                }
+                fingerprint = fingerprint(data, covered);
+            }
+            try (FileChannel channel = FileChannel.open(fresh, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32C crc = new CRC32C();
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new CheckedOutputStream(Channels.newOutputStream(channel), crc)));
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeByte(format.ordinal());
+                out.writeLong(covered);
+                out.writeInt(fingerprint);
+                index.writeTo(out, covered);
+                timestampIndex.writeTo(out, covered);
+                out.flush();
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                channel.force(false);
+            }
+            Files.move(fresh, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+    }
+
+    /**
+     * Adds the entries of the snapshot to empty indexes, if the snapshot
+     * matches the data file.
+     *
+     * @param index          the sport and event index to fill
+     * @param timestampIndex the timestamp index to fill
+     * @return the offset of the data file covered by the snapshot, from which
+     *         the caller must index the rest of the file; -1 if there is no
+     *         usable snapshot, in which case both indexes are left empty
+     */
+    public long load(BetIndex index, SparseTimestampIndex timestampIndex) {
+        try {
+            byte[] bytes = Files.readAllBytes(snapshotFile);
+            if (bytes.length < Integer.BYTES) {
+                return -1;
+            }
+            int length = bytes.length - Integer.BYTES;
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, 0, length);
+            if ((int) crc.getValue() != ByteBuffer.wrap(bytes, length, Integer.BYTES).getInt()) {
+                return -1;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+            if (in.readInt() != MAGIC || in.readByte() != VERSION || in.readByte() != format.ordinal()) {
+                return -1;
+            }
+            long covered = in.readLong();
+            int fingerprint = in.readInt();
+            try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                if (covered < 0 || data.size() < covered || fingerprint(data, covered) != fingerprint) {
+                    return -1;
+                }
+            }
+            index.readFrom(in);
+            timestampIndex.readFrom(in);
+            if (in.available() != 0) {
+                throw new IOException(Constants.MESSAGE_ERROR_SNAPSHOT);
+            }
+            return covered;
+        } catch (NoSuchFileException e) {
+            return -1;
+        } catch (IOException | RuntimeException e) {
+            index.clear();
+            timestampIndex.clear();
+            return -1;
+        }
+    }
+
+    /**
+     * Deletes the snapshot, if any.
+     *
+     * @throws RuntimeException if the file cannot be deleted
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(snapshotFile);
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_DELETING_FILE, e);
+        }
+    }
+
+    /**
+     * Returns the CRC32C of the last {@value #FINGERPRINT_BYTES} bytes before
+     * an offset.
+     */
+    private static int fingerprint(FileChannel data, long end) throws IOException {
+        long start = Math.max(0, end - FINGERPRINT_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (data.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.flip());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes a non-negative value in 7-bit groups, lowest first.
+     */
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException(Constants.MESSAGE_ERROR_SNAPSHOT);
+    }
+
+    /**
+     * Maps signed values to unsigned ones so that small negative deltas stay
+     * short.
+     */
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scanner that reads a text bets file through memory-mapped windows.
+ * <p>
+ * The file is mapped in windows of at most {@code windowSize} bytes, so files
+ * larger than 2 GB are supported. Each window ends at its last complete line;
+ * the next window starts right after it. Lines are handed to the visitors as
+ * byte ranges of the mapped buffer, with no copy and no {@code String}.
+ * </p>
+ *
+ * <p>
+ * The scanner remembers the offset after the last complete line it has seen.
+ * {@link #scanNewBets(BetVisitor)} maps only the bytes appended since then, so
+ * a caller can follow a growing file cheaply. A trailing line without newline
+ * is treated as still being written and is left for the next scan.
+ * </p>
+ *
+ * @IOC
+ */
+public class MappedBetScanner implements AutoCloseable {
+
+    public static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long windowSize;
+    private long scannedUpTo;
+
+    /**
+     * Visitor of raw lines.
+     */
+    @FunctionalInterface
+    public interface LineVisitor {
+
+        /**
+         * Receives one complete line, without its newline.
+         *
+         * @param window     the mapped window holding the line
+         * @param start      index of the first byte of the line in the window
+         * @param end        index after the last byte of the line in the window
+         * @param fileOffset offset of the first byte of the line in the file
+         */
+        void visit(MappedByteBuffer window, int start, int end, long fileOffset);
+    }
+
+    /**
+     * Visitor of well-formed bets.
+     */
+    @FunctionalInterface
+    public interface BetVisitor {
+
+        /**
+         * Receives one well-formed bet. The parser is reused for the next line,
+         * so it must not be kept after the call.
+         *
+         * @param bet        the parser positioned on the bet
+         * @param fileOffset offset of the first byte of the line in the file
+         */
+        void visit(BetLineParser bet, long fileOffset);
+    }
+
+    /**
+     * Opens a scanner with the default window size.
+     *
+     * @param file the text bets file
+     * @throws RuntimeException if the file cannot be opened
+     */
+    public MappedBetScanner(Path file) {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a scanner with a given window size.
+     *
+     * @param file       the text bets file
+     * @param windowSize maximum number of bytes mapped at once, at most
+     *                   {@link Integer#MAX_VALUE}
+     * @throws IllegalArgumentException if windowSize is out of range
+     * @throws RuntimeException         if the file cannot be opened
+     */
+    public MappedBetScanner(Path file, long windowSize) {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_WINDOW_SIZE);
+        }
+        this.windowSize = windowSize;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Returns the offset after the last complete line seen by a scan.
+     *
+     * @return the scanned offset
+     */
+    public long scannedUpTo() {
+        return scannedUpTo;
+    }
+
+    /**
+     * Scans the lines between an offset and the last complete line of the
+     * file.
+     *
+     * @param from    offset of the first line to scan; must be a line start
+     * @param visitor the visitor receiving the lines
+     * @return the offset after the last complete line scanned
+     * @throws IllegalStateException if a single line is longer than the window
+     * @throws RuntimeException      if an I/O error occurs while mapping
+     */
+    public long scanLines(long from, LineVisitor visitor) {
+        return scanLines(from, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Scans the complete lines that start in {@code [from, to)}. Only that
+     * region of the file is mapped.
+     *
+     * @param from    offset of the first line to scan; must be a line start
+     * @param to      offset where scanning stops; a line start or beyond the
+     *                end of the file
+     * @param visitor the visitor receiving the lines
+     * @return the offset after the last complete line scanned
+     * @throws IllegalStateException if a single line is longer than the window
+     * @throws RuntimeException      if an I/O error occurs while mapping
+     */
+    public long scanLines(long from, long to, LineVisitor visitor) {
+        try {
+            long size = Math.min(channel.size(), to);
+            long position = from;
+            while (position < size) {
+                long length = Math.min(windowSize, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int limit = (int) length;
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (window.get(i) == '\n') {
+                        visitor.visit(window, lineStart, i, position + lineStart);
+                        lineStart = i + 1;
+                    }
+                }
+                if (lineStart == 0) {
+                    if (length < windowSize) {
+                        break;
+                    }
+                    throw new IllegalStateException(Constants.MESSAGE_ERROR_WINDOW_SIZE);
+                }
+                position += lineStart;
+            }
+            scannedUpTo = position;
+            return position;
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Scans the well-formed bets between an offset and the last complete line
+     * of the file. Malformed lines are skipped.
+     *
+     * @param from    offset of the first line to scan; must be a line start
+     * @param visitor the visitor receiving the bets
+     * @return the offset after the last complete line scanned
+     * @throws RuntimeException if an I/O error occurs while mapping
+     */
+    public long scanBets(long from, BetVisitor visitor) {
+        return scanBets(from, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Scans the well-formed bets whose lines start in {@code [from, to)}.
+     *
+     * @param from    offset of the first line to scan; must be a line start
+     * @param to      offset where scanning stops; a line start or beyond the
+     *                end of the file
+     * @param visitor the visitor receiving the bets
+     * @return the offset after the last complete line scanned
+     * @throws RuntimeException if an I/O error occurs while mapping
+     */
+    public long scanBets(long from, long to, BetVisitor visitor) {
+        BetLineParser parser = new BetLineParser();
+        return scanLines(from, to, (window, start, end, offset) -> {
+            if (parser.parse(window, start, end)) {
+                visitor.visit(parser, offset);
+            }
+        });
+    }
+
+    /**
+     * Scans every well-formed bet of the file.
+     *
+     * @param visitor the visitor receiving the bets
+     * @return the offset after the last complete line scanned
+     */
+    public long scanAllBets(BetVisitor visitor) {
+        return scanBets(0, visitor);
+    }
+
+    /**
+     * Scans only the bets appended since the previous scan, mapping just the
+     * new region of the file.
+     *
+     * @param visitor the visitor receiving the bets
+     * @return the offset after the last complete line scanned
+     */
+    public long scanNewBets(BetVisitor visitor) {
+        return scanBets(scannedUpTo, visitor);
+    }
+
+    /**
+     * Releases the file. Mapped windows are unmapped by the garbage collector.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+}
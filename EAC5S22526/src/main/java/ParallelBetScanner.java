@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parallel scanner of a text bets file.
+ * <p>
+ * The file is split into byte ranges aligned to line boundaries (see
+ * {@link BetRangeSpliterator}). {@link #aggregate} parses every range on a
+ * fork-join pool into its own partial result and merges the partial results
+ * pairwise, keeping file order. {@link #stream} exposes the same ranges as a
+ * {@code Stream} so that {@code parallel()} pipelines split the file too.
+ * </p>
+ *
+ * @IOC
+ */
+public class ParallelBetScanner {
+
+    private final Path file;
+    private final long minSplitSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a scanner that runs on the common fork-join pool.
+     *
+     * @param file the text bets file
+     */
+    public ParallelBetScanner(Path file) {
+        this(file, BetRangeSpliterator.DEFAULT_MIN_SPLIT_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a scanner with explicit split size and pool.
+     *
+     * @param file         the text bets file
+     * @param minSplitSize ranges smaller than this many bytes are not split
+     * @param pool         the pool running the range tasks
+     * @throws IllegalArgumentException if minSplitSize is not positive or pool
+     *                                  is null
+     */
+    public ParallelBetScanner(Path file, long minSplitSize, ForkJoinPool pool) {
+        if (minSplitSize <= 0 || pool == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_WINDOW_SIZE);
+        }
+        this.file = file;
+        this.minSplitSize = minSplitSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Streams the bets of the file. The stream must be closed.
+     *
+     * @param parallel whether the stream is parallel
+     * @return a stream over the well-formed bets of the file
+     * @throws RuntimeException if the file cannot be opened
+     */
+    public Stream<Bet> stream(boolean parallel) {
+        return stream(parallel, 0);
+    }
+
+    /**
+     * Streams the bets of the file that follow its first lines. The skipped
+     * lines are counted, not parsed, so malformed lines count among them. The
+     * stream must be closed.
+     *
+     * @param parallel     whether the stream is parallel
+     * @param skippedLines number of lines left out at the start of the file
+     * @return a stream over the well-formed bets of the rest of the file
+     * @throws RuntimeException if the file cannot be opened
+     */
+    public Stream<Bet> stream(boolean parallel, long skippedLines) {
+        FileChannel channel = open();
+        try {
+            return StreamSupport.stream(BetRangeSpliterator.overFile(channel, skippedLines, minSplitSize), parallel)
+                    .onClose(() -> close(channel));
+        } catch (RuntimeException e) {
+            close(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Aggregates the bets of the file in parallel without creating
+     * {@link Bet} objects.
+     *
+     * @param <A>         the type of the partial and final results
+     * @param identity    creates an empty partial result for each range
+     * @param accumulator adds the bet the parser is positioned on to a partial
+     *                    result; the parser must not be kept
+     * @param combiner    merges the partial result of an earlier range with
+     *                    the one of a later range
+     * @return the merged result
+     * @throws RuntimeException if the file cannot be read
+     */
+    public <A> A aggregate(Supplier<A> identity, BiConsumer<A, BetLineParser> accumulator,
+            BinaryOperator<A> combiner) {
+        FileChannel channel = open();
+        try {
+            return pool.invoke(new RangeTask<>(BetRangeSpliterator.overFile(channel, minSplitSize), identity,
+                    accumulator, combiner));
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        } finally {
+            close(channel);
+        }
+    }
+
+    private FileChannel open() {
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    private static void close(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fork-join task that splits its range until it is small enough and then
+     * scans it. It is serializable only because every fork-join task is; it
+     * holds an open channel and is never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static final class RangeTask<A> extends RecursiveTask<A> {
+        private final BetRangeSpliterator range;
+        private final Supplier<A> identity;
+        private final BiConsumer<A, BetLineParser> accumulator;
+        private final BinaryOperator<A> combiner;
+
+        RangeTask(BetRangeSpliterator range, Supplier<A> identity, BiConsumer<A, BetLineParser> accumulator,
+                BinaryOperator<A> combiner) {
+            this.range = range;
+            this.identity = identity;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected A compute() {
+            BetRangeSpliterator prefix = range.trySplit();
+            if (prefix == null) {
+                A partial = identity.get();
+                range.forEachParsed(bet -> accumulator.accept(partial, bet));
+                return partial;
+            }
+            RangeTask<A> left = new RangeTask<>(prefix, identity, accumulator, combiner);
+            left.fork();
+            A right = compute();
+            return combiner.apply(left.join(), right);
+        }
+    }
+}
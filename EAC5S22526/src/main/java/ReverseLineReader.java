@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader that returns the lines of a text file from the last one to the first.
+ * <p>
+ * The file is read backwards from its end in blocks of {@code blockSize} bytes,
+ * so reading the last lines costs the same whatever the size of the file. Only
+ * the current block and the part of the line being read are kept in memory.
+ * A trailing line without newline is treated as still being written and is
+ * never returned, as in {@link MappedBetScanner}.
+ * </p>
+ *
+ * <p>
+ * After {@link #previous()} the current line is the byte range
+ * {@code [lineStart(), lineEnd())} of {@link #buffer()}. The buffer may be
+ * replaced by the next call, so ranges must not be kept across calls.
+ * </p>
+ *
+ * @IOC
+ */
+public class ReverseLineReader implements AutoCloseable {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private byte[] block;
+    private ByteBuffer buffer;
+    private long blockOffset;
+    private long cursor;
+    private int lineStart;
+    private int lineEnd;
+
+    /**
+     * Opens a reader with the default block size.
+     *
+     * @param file the text file
+     * @throws RuntimeException if the file cannot be opened or read
+     */
+    public ReverseLineReader(Path file) {
+        this(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Opens a reader with a given block size. Only the lines that are complete
+     * when the reader is opened are returned.
+     *
+     * @param file      the text file
+     * @param blockSize number of bytes read from the file at once
+     * @throws IllegalArgumentException if blockSize is not positive
+     * @throws RuntimeException         if the file cannot be opened or read
+     */
+    public ReverseLineReader(Path file, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_BLOCK_SIZE);
+        }
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        this.buffer = ByteBuffer.wrap(block);
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+        try {
+            this.blockOffset = channel.size();
+            this.cursor = newlineBefore(blockOffset);
+        } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Moves to the line before the current one.
+     *
+     * @return true if there was a previous line; false at the start of the file
+     * @throws RuntimeException if an I/O error occurs while reading the file
+     */
+    public boolean previous() {
+        if (cursor < 0) {
+            return false;
+        }
+        try {
+            long newline = newlineBefore(cursor);
+            lineStart = (int) (newline + 1 - blockOffset);
+            lineEnd = (int) (cursor - blockOffset);
+            cursor = newline;
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Returns the buffer holding the current line.
+     *
+     * @return a heap buffer over the current block
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the index of the first byte of the current line.
+     *
+     * @return the start of the line in {@link #buffer()}
+     */
+    public int lineStart() {
+        return lineStart;
+    }
+
+    /**
+     * Returns the index after the last byte of the current line, without its
+     * newline.
+     *
+     * @return the end of the line in {@link #buffer()}
+     */
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    /**
+     * Returns the offset of the current line in the file.
+     *
+     * @return the file offset of the first byte of the line
+     */
+    public long lineOffset() {
+        return blockOffset + lineStart;
+    }
+
+    /**
+     * Decodes the current line.
+     *
+     * @return the line as UTF-8 text, without newline or carriage return
+     */
+    public String line() {
+        int end = lineEnd > lineStart && block[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+        return new String(block, lineStart, end - lineStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the offset of the last newline before {@code end}, reading
+     * earlier blocks as needed, or -1 if there is none. The bytes between the
+     * newline and {@code end} stay in the block.
+     */
+    private long newlineBefore(long end) throws IOException {
+        for (long i = end - 1; i >= 0; i--) {
+            if (i < blockOffset) {
+                readBlockBefore(end);
+            }
+            if (block[(int) (i - blockOffset)] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the block that precedes the current one, keeping the bytes of the
+     * current block up to {@code keepEnd} after it.
+     */
+    private void readBlockBefore(long keepEnd) throws IOException {
+        int keep = (int) (keepEnd - blockOffset);
+        int length = (int) Math.min(blockSize, blockOffset);
+        byte[] target = block;
+        if (length + keep > block.length) {
+            target = new byte[Math.max(block.length * 2, length + keep)];
+        }
+        System.arraycopy(block, 0, target, length, keep);
+        long offset = blockOffset - length;
+        ByteBuffer read = ByteBuffer.wrap(target, 0, length);
+        while (read.hasRemaining()) {
+            if (channel.read(read, offset + read.position()) < 0) {
+                throw new IOException(Constants.MESSAGE_ERROR_READING_FILE);
+            }
+        }
+        if (target != block) {
+            block = target;
+            buffer = ByteBuffer.wrap(block);
+        }
+        blockOffset = offset;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Storage of text bets split into time-partitioned segment files.
+ * <p>
+ * Bets are appended to a segment per month, named
+ * {@code <manifest>.<yyyyMM>.<id>} and kept next to the manifest. When a
+ * segment reaches {@code maxSegmentBytes} the month rolls over into a new one.
+ * The manifest lists every segment with its time range, record count and
+ * size, one line per segment, so queries can skip whole segments and
+ * retention can drop old ones by deleting their files.
+ * </p>
+ *
+ * <p>
+ * A record is addressed by a single {@code long}: the segment id in the high
+ * bits and the offset inside the segment in the low {@value #OFFSET_BITS}
+ * bits. All methods synchronize on the instance.
+ * </p>
+ *
+ * <p>
+ * The statistics of the segments are kept in memory, and the segment being
+ * appended to stays open, so an append is a single write. The manifest is
+ * rewritten atomically only when a segment is created or dropped, on
+ * {@link #checkpoint()} and on {@link #close()}. A manifest left behind by a
+ * crash may therefore record fewer bytes than a segment holds: when the store
+ * is opened, the bytes of each segment past its recorded size are scanned to
+ * bring its count and time range up to date, and a line torn by the crash at
+ * the end of the file is cut off, so the next append starts a line of its own.
+ * </p>
+ *
+ * @IOC
+ */
+public class SegmentedBetStore implements AutoCloseable {
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+    static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final int MONTH_DIGITS = 6;
+    private static final int MANIFEST_COLUMNS = 7;
+
+    private final Path manifest;
+    private final long maxSegmentBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private final BetLineParser parser = new BetLineParser();
+    private int nextId;
+    private FileChannel tail;
+    private int tailId = -1;
+    private boolean dirty;
+
+    /**
+     * One segment file as recorded in the manifest.
+     *
+     * @param id           the segment id, never reused
+     * @param name         the file name of the segment
+     * @param month        the {@code yyyyMM} month of its bets
+     * @param minTimestamp the lowest timestamp stored in it
+     * @param maxTimestamp the highest timestamp stored in it
+     * @param count        the number of bets stored in it
+     * @param bytes        the size of the segment file
+     */
+    public record Segment(int id, String name, String month, long minTimestamp, long maxTimestamp, long count,
+            long bytes) {
+
+        /**
+         * Tells whether the segment can hold bets with a timestamp in
+         * {@code [from, to)}.
+         *
+         * @param from the first timestamp, inclusive
+         * @param to   the end timestamp, exclusive
+         * @return true if the ranges overlap
+         */
+        public boolean overlaps(long from, long to) {
+            return count > 0 && minTimestamp < to && maxTimestamp >= from;
+        }
+    }
+
+    /**
+     * Opens the segments listed in a manifest with the default segment size.
+     *
+     * @param manifest the manifest file; its directory holds the segments
+     * @throws RuntimeException if the manifest exists but cannot be read
+     */
+    public SegmentedBetStore(Path manifest) {
+        this(manifest, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens the segments listed in a manifest.
+     *
+     * @param manifest        the manifest file; its directory holds the
+     *                        segments
+     * @param maxSegmentBytes size after which a month rolls over into a new
+     *                        segment
+     * @throws IllegalArgumentException if maxSegmentBytes is not positive
+     * @throws RuntimeException         if the manifest exists but cannot be read
+     */
+    public SegmentedBetStore(Path manifest, long maxSegmentBytes) {
+        if (maxSegmentBytes <= 0 || maxSegmentBytes > OFFSET_MASK) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_WINDOW_SIZE);
+        }
+        this.manifest = manifest;
+        this.maxSegmentBytes = maxSegmentBytes;
+        if (Files.exists(manifest)) {
+            load();
+        }
+    }
+
+    /**
+     * Builds the address of a record.
+     *
+     * @param segmentId the id of the segment
+     * @param offset    the offset of the record inside the segment
+     * @return the address of the record
+     */
+    public static long address(int segmentId, long offset) {
+        return ((long) segmentId << OFFSET_BITS) | offset;
+    }
+
+    /**
+     * Returns the segment id of an address.
+     *
+     * @param address the address of a record
+     * @return the segment id
+     */
+    public static int segmentId(long address) {
+        return (int) (address >>> OFFSET_BITS);
+    }
+
+    /**
+     * Returns the offset inside its segment of an address.
+     *
+     * @param address the address of a record
+     * @return the offset in the segment file
+     */
+    public static long offset(long address) {
+        return address & OFFSET_MASK;
+    }
+
+    /**
+     * Appends one bet line to the segment of its month.
+     *
+     * @param line a well-formed bet line, without newline
+     * @return the address of the stored record
+     * @throws IllegalArgumentException if line is not a well-formed bet
+     * @throws RuntimeException         if the segment or the manifest cannot be
+     *                                  written
+     */
+    public synchronized long append(String line) {
+        if (line == null || !parser.parse(line)) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_BET);
+        }
+        String timestampText = parser.fieldAsString(BetLineParser.TIMESTAMP);
+        long timestamp = parser.timestamp();
+        String month = timestampText.substring(0, Math.min(MONTH_DIGITS, timestampText.length()));
+        byte[] record = (line + "\n").getBytes(StandardCharsets.UTF_8);
+
+        int position = segmentFor(month, record.length);
+        Segment segment = segments.get(position);
+        long offset = segment.bytes();
+        try {
+            FileChannel channel = tailOf(segment);
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            closeTail();
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+        segments.set(position, new Segment(segment.id(), segment.name(), month,
+                Math.min(segment.minTimestamp(), timestamp), Math.max(segment.maxTimestamp(), timestamp),
+                segment.count() + 1, offset + record.length));
+        dirty = true;
+        return address(segment.id(), offset);
+    }
+
+    /**
+     * Writes the manifest if any segment has changed since it was last
+     * written.
+     *
+     * @throws RuntimeException if the manifest cannot be written
+     */
+    public synchronized void checkpoint() {
+        if (dirty) {
+            save();
+        }
+    }
+
+    /**
+     * Writes the manifest, if needed, and closes the segment being appended
+     * to. The store can still be used afterwards.
+     *
+     * @throws RuntimeException if the manifest cannot be written
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            checkpoint();
+        } finally {
+            closeTail();
+        }
+    }
+
+    /**
+     * Returns the segments in creation order.
+     *
+     * @return a copy of the segment list
+     */
+    public synchronized List<Segment> segments() {
+        return new ArrayList<>(segments);
+    }
+
+    /**
+     * Returns the segments that can hold bets with a timestamp in
+     * {@code [from, to)}, in creation order.
+     *
+     * @param from the first timestamp, inclusive
+     * @param to   the end timestamp, exclusive
+     * @return the overlapping segments
+     */
+    public synchronized List<Segment> segmentsBetween(long from, long to) {
+        List<Segment> result = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.overlaps(from, to)) {
+                result.add(segment);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the file of a segment.
+     *
+     * @param segment the segment
+     * @return the path of the segment file
+     */
+    public Path pathOf(Segment segment) {
+        return manifest.resolveSibling(segment.name());
+    }
+
+    /**
+     * Returns the file of the segment holding an address.
+     *
+     * @param address the address of a record
+     * @return the path of the segment file, or null if the segment was dropped
+     */
+    public synchronized Path pathOf(long address) {
+        int id = segmentId(address);
+        for (Segment segment : segments) {
+            if (segment.id() == id) {
+                return pathOf(segment);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lazily streams the lines of every segment in creation order. The stream
+     * must be closed.
+     *
+     * @return a stream over the lines of all the segments
+     * @throws RuntimeException if a segment cannot be read
+     */
+    public Stream<String> lines() {
+        return segments().stream().flatMap(segment -> {
+            try {
+                Path path = pathOf(segment);
+                return Files.exists(path) ? Files.lines(path, StandardCharsets.UTF_8) : Stream.empty();
+            } catch (IOException e) {
+                throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+            }
+        });
+    }
+
+    /**
+     * Drops every segment whose bets are all older than a timestamp. Each
+     * segment is removed by deleting its file, whatever its size.
+     *
+     * @param timestamp bets older than this may be dropped
+     * @return the dropped segments
+     * @throws RuntimeException if a segment or the manifest cannot be written
+     */
+    public synchronized List<Segment> dropBefore(long timestamp) {
+        List<Segment> dropped = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.count() > 0 && segment.maxTimestamp() < timestamp) {
+                dropped.add(segment);
+            }
+        }
+        if (dropped.isEmpty()) {
+            return dropped;
+        }
+        segments.removeAll(dropped);
+        for (Segment segment : dropped) {
+            if (segment.id() == tailId) {
+                closeTail();
+            }
+        }
+        save();
+        try {
+            for (Segment segment : dropped) {
+                Files.deleteIfExists(pathOf(segment));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+        return dropped;
+    }
+
+    /**
+     * Returns the index of the segment that receives a record of a month,
+     * creating a new segment when the month has none or the last one is full.
+     */
+    private int segmentFor(String month, int length) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Segment segment = segments.get(i);
+            if (segment.month().equals(month)) {
+                if (segment.bytes() + length <= maxSegmentBytes || segment.bytes() == 0) {
+                    return i;
+                }
+                break;
+            }
+        }
+        int id = nextId++;
+        segments.add(new Segment(id, manifest.getFileName() + "." + month + "." + id, month, Long.MAX_VALUE,
+                Long.MIN_VALUE, 0, 0));
+        // a new segment always reaches the manifest, so no segment file is
+        // ever unknown to it
+        save();
+        return segments.size() - 1;
+    }
+
+    /**
+     * Returns the open channel of the segment being appended to, switching
+     * segments if needed.
+     */
+    private FileChannel tailOf(Segment segment) throws IOException {
+        if (tail == null || tailId != segment.id()) {
+            closeTail();
+            tail = FileChannel.open(pathOf(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            tailId = segment.id();
+        }
+        return tail;
+    }
+
+    private void closeTail() {
+        if (tail == null) {
+            return;
+        }
+        try {
+            tail.close();
+        } catch (IOException ignored) {
+            // every write has already returned
+        } finally {
+            tail = null;
+            tailId = -1;
+        }
+    }
+
+    /**
+     * Brings the statistics of a segment up to date with the complete lines
+     * of its file past the size recorded in the manifest, and truncates the
+     * file after the last of them.
+     */
+    private Segment reconcile(Segment segment) throws IOException {
+        // not pathOf, which a subclass could override before it is set up
+        Path path = manifest.resolveSibling(segment.name());
+        if (!Files.exists(path) || Files.size(path) <= segment.bytes()) {
+            return segment;
+        }
+        long[] stats = {segment.minTimestamp(), segment.maxTimestamp(), segment.count()};
+        long size;
+        try (MappedBetScanner scanner = new MappedBetScanner(path)) {
+            size = scanner.scanBets(segment.bytes(), (bet, offset) -> {
+                stats[0] = Math.min(stats[0], bet.timestamp());
+                stats[1] = Math.max(stats[1], bet.timestamp());
+                stats[2]++;
+            });
+        }
+        if (Files.size(path) > size) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(size);
+            }
+        }
+        dirty = true;
+        return new Segment(segment.id(), segment.name(), segment.month(), stats[0], stats[1], stats[2], size);
+    }
+
+    private void load() {
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",");
+                if (columns.length != MANIFEST_COLUMNS) {
+                    continue;
+                }
+                Segment segment = new Segment(Integer.parseInt(columns[0]), columns[1], columns[2],
+                        Long.parseLong(columns[3]), Long.parseLong(columns[4]), Long.parseLong(columns[5]),
+                        Long.parseLong(columns[6]));
+                segments.add(reconcile(segment));
+                nextId = Math.max(nextId, segment.id() + 1);
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+        }
+    }
+
+    /**
+     * Writes the manifest to a temporary file and moves it over the old one,
+     * so a crash never leaves a half-written manifest.
+     */
+    private void save() {
+        dirty = false;
+        Path temporary = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                for (Segment segment : segments) {
+                    writer.write(segment.id() + "," + segment.name() + "," + segment.month() + ","
+                            + segment.minTimestamp() + "," + segment.maxTimestamp() + "," + segment.count() + ","
+                            + segment.bytes() + "\n");
+                }
+            }
+            Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sparse index of record timestamps by file block.
+ * <p>
+ * The data file is divided into blocks of about {@link #BLOCK_SIZE} bytes and
+ * the index keeps one entry per block: the offset of its first record and the
+ * highest timestamp seen up to the end of the block. Because bets are almost
+ * always appended in time order, a time range maps to a contiguous run of
+ * blocks that can be found with two binary searches.
+ * </p>
+ *
+ * <p>
+ * Records that arrive out of order are handled by tracking the lateness: the
+ * largest gap between the highest timestamp already seen and the timestamp of
+ * a later record. Every record is at least as recent as the running maximum
+ * before it minus the lateness, so once that bound is past the end of the
+ * range no later block can hold a match. A slightly late record widens the
+ * scanned range a little; it never makes a query miss records.
+ * </p>
+ *
+ * <p>
+ * Timestamps are {@link Constants#DATE_FORMAT} values read as numbers, for
+ * example {@code 202405101530}. The index is thread safe.
+ * </p>
+ *
+ * @IOC
+ */
+public class SparseTimestampIndex {
+
+    public static final int BLOCK_SIZE = 4096;
+
+    private long[] blockOffsets = new long[16];
+    private long[] prefixMax = new long[16];
+    private int blocks;
+    private long lateness;
+
+    /**
+     * Adds a record. Records must be added in file order.
+     *
+     * @param timestamp the timestamp of the record
+     * @param offset    the offset of the record in the data file
+     */
+    public synchronized void add(long timestamp, long offset) {
+        long maxBefore = blocks == 0 ? Long.MIN_VALUE : prefixMax[blocks - 1];
+        if (blocks == 0 || offset >= blockOffsets[blocks - 1] + BLOCK_SIZE) {
+            if (blocks == blockOffsets.length) {
+                blockOffsets = Arrays.copyOf(blockOffsets, blocks * 2);
+                prefixMax = Arrays.copyOf(prefixMax, blocks * 2);
+            }
+            blockOffsets[blocks] = offset;
+            prefixMax[blocks] = maxBefore;
+            blocks++;
+        }
+        if (timestamp > prefixMax[blocks - 1]) {
+            prefixMax[blocks - 1] = timestamp;
+        }
+        if (maxBefore != Long.MIN_VALUE && maxBefore - timestamp > lateness) {
+            lateness = maxBefore - timestamp;
+        }
+    }
+
+    /**
+     * Returns the byte range of the data file that holds every record with a
+     * timestamp in {@code [from, to)}. The range may also hold records outside
+     * the interval, which the caller must filter out.
+     *
+     * @param from the first timestamp of the interval, inclusive
+     * @param to   the end of the interval, exclusive
+     * @return {@code {start, end}} offsets; end is {@link Long#MAX_VALUE} when
+     *         the range reaches the end of the file, and start equals end when
+     *         no record can match
+     */
+    public synchronized long[] range(long from, long to) {
+        if (blocks == 0 || from >= to) {
+            return new long[] {0, 0};
+        }
+        int low = 0;
+        int high = blocks;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prefixMax[middle] >= from) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        int first = low;
+        if (first == blocks) {
+            return new long[] {0, 0};
+        }
+        low = first + 1;
+        high = blocks;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prefixMax[middle - 1] - lateness >= to) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        long end = low == blocks ? Long.MAX_VALUE : blockOffsets[low];
+        return new long[] {blockOffsets[first], end};
+    }
+
+    /**
+     * Returns the number of blocks in the index.
+     *
+     * @return the block count
+     */
+    public synchronized int blocks() {
+        return blocks;
+    }
+
+    /**
+     * Writes the blocks that start below a limit. The maximum of the last one
+     * may count records past the limit, which only widens the ranges found
+     * after the rest is added again.
+     *
+     * @param out   the output
+     * @param limit the first offset not written
+     * @throws IOException if the output fails
+     * @see IndexSnapshot
+     */
+    synchronized void writeTo(DataOutput out, long limit) throws IOException {
+        int count = 0;
+        while (count < blocks && blockOffsets[count] < limit) {
+            count++;
+        }
+        out.writeLong(lateness);
+        IndexSnapshot.writeVarLong(out, count);
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            IndexSnapshot.writeVarLong(out, blockOffsets[i] - previous);
+            out.writeLong(prefixMax[i]);
+            previous = blockOffsets[i];
+        }
+    }
+
+    /**
+     * Replaces the entries with those written by
+     * {@link #writeTo(DataOutput, long)}.
+     *
+     * @param in the input
+     * @throws IOException if the input fails or is not well formed
+     */
+    synchronized void readFrom(DataInput in) throws IOException {
+        long readLateness = in.readLong();
+        long count = IndexSnapshot.readVarLong(in);
+        if (readLateness < 0 || count < 0 || count > Integer.MAX_VALUE - 8) {
+            throw new IOException(Constants.MESSAGE_ERROR_SNAPSHOT);
+        }
+        long[] offsets = new long[Math.max(16, (int) count)];
+        long[] maxima = new long[offsets.length];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += IndexSnapshot.readVarLong(in);
+            offsets[i] = previous;
+            maxima[i] = in.readLong();
+        }
+        blockOffsets = offsets;
+        prefixMax = maxima;
+        blocks = (int) count;
+        lateness = readLateness;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void clear() {
+        blocks = 0;
+        lateness = 0;
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * On-disk formats supported by {@link DataFileUtils}.
+ *
+ * @IOC
+ */
+public enum StorageFormat {
+
+    /**
+     * One CSV line per bet, as in {@code data/bets.txt}.
+     */
+    TEXT,
+
+    /**
+     * Fixed-width binary records handled by {@link BinaryBetStore}.
+     */
+    BINARY,
+
+    /**
+     * CSV lines split into monthly segment files listed in a manifest, handled
+     * by {@link SegmentedBetStore}. The data file is the manifest.
+     */
+    SEGMENTED
+}
@@ -0,0 +1,443 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Dictionary that maps repeated strings to small int ids and one shared
+ * canonical instance.
+ * <p>
+ * Ids are assigned in insertion order starting at 0. When the dictionary is
+ * backed by a file, every new value is appended to it (one value per line)
+ * before its id is returned, so ids stay stable across restarts.
+ * </p>
+ *
+ * <p>
+ * A dictionary can be bounded. Once it holds {@code maxSize} values,
+ * {@link #idOf(String)} fails and the {@code intern} methods fall back to
+ * returning an unshared string, so high-cardinality columns cannot make it
+ * grow without limit.
+ * </p>
+ *
+ * <p>
+ * Values are found through an open-addressing table hashed on their UTF-8
+ * bytes, which lets {@link #lookup(ByteBuffer, int, int)} and
+ * {@link #intern(ByteBuffer, int, int)} resolve a field of a mapped file
+ * without creating a {@code String}. The {@link CharSequence} overloads
+ * encode the characters on the fly while hashing and comparing, so they do
+ * not allocate either. Lookups do not lock: additions are
+ * synchronized and publish each value through the table before readers can
+ * reach it.
+ * </p>
+ *
+ * @IOC
+ */
+public class StringDictionary {
+
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Path file;
+    private final int maxSize;
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private volatile int size;
+
+    /**
+     * Creates an in-memory dictionary that is not persisted.
+     */
+    public StringDictionary() {
+        this(null, UNBOUNDED);
+    }
+
+    /**
+     * Creates a dictionary persisted in the given file, loading the values
+     * already stored in it.
+     *
+     * @param file the file holding one value per line
+     * @throws RuntimeException if the file exists but cannot be read
+     */
+    public StringDictionary(Path file) {
+        this(file, UNBOUNDED);
+    }
+
+    /**
+     * Creates a bounded dictionary, persisted in the given file if it is not
+     * null. Values stored in the file beyond the bound are still loaded, so
+     * the ids of an existing file never change.
+     *
+     * @param file    the file holding one value per line, or null
+     * @param maxSize the maximum number of values to add
+     * @throws IllegalArgumentException if maxSize is not positive
+     * @throws RuntimeException         if the file exists but cannot be read
+     */
+    public StringDictionary(Path file, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_POOL_FULL);
+        }
+        this.file = file;
+        this.maxSize = maxSize;
+        if (file != null && Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String value;
+                while ((value = reader.readLine()) != null) {
+                    add(value);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(Constants.MESSAGE_ERROR_READING_FILE, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a value, adding it to the dictionary if needed.
+     *
+     * @param value the value to look up (must not contain line breaks)
+     * @return the id of the value
+     * @throws IllegalArgumentException if value is null or has line breaks
+     * @throws IllegalStateException    if the dictionary is full
+     * @throws RuntimeException         if the new value cannot be persisted
+     */
+    public int idOf(String value) {
+        int id = lookup(value);
+        if (id >= 0) {
+            return id;
+        }
+        id = tryAdd(value);
+        if (id < 0) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_POOL_FULL);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the canonical instance of a value, adding it if there is room.
+     *
+     * @param value the value to intern
+     * @return the shared instance, or value itself if the dictionary is full
+     *         or the value cannot be stored
+     * @throws RuntimeException if the new value cannot be persisted
+     */
+    public String intern(String value) {
+        int id = lookup(value);
+        if (id < 0 && !isStorable(value)) {
+            return value;
+        }
+        if (id < 0) {
+            id = tryAdd(value);
+        }
+        return id < 0 ? value : table.values[id];
+    }
+
+    /**
+     * Returns the canonical instance of the UTF-8 text {@code [start, end)} of
+     * a buffer, adding it if there is room. Known values are resolved without
+     * allocating. The buffer position and limit are not modified.
+     *
+     * @param source the buffer holding the text
+     * @param start  absolute index of the first byte
+     * @param end    absolute index after the last byte
+     * @return the shared instance, or a new string if the dictionary is full
+     * @throws RuntimeException if the new value cannot be persisted
+     */
+    public String intern(ByteBuffer source, int start, int end) {
+        int id = lookup(source, start, end);
+        if (id >= 0) {
+            return table.values[id];
+        }
+        byte[] text = new byte[end - start];
+        source.get(start, text);
+        return intern(new String(text, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the canonical instance of the characters {@code [start, end)}
+     * of a sequence, adding it if there is room. Known values are resolved
+     * without allocating.
+     *
+     * @param source the characters holding the text
+     * @param start  index of the first character
+     * @param end    index after the last character
+     * @return the shared instance, or a new string if the dictionary is full
+     * @throws RuntimeException if the new value cannot be persisted
+     */
+    public String intern(CharSequence source, int start, int end) {
+        int id = lookup(source, start, end);
+        if (id >= 0) {
+            return table.values[id];
+        }
+        return intern(source.subSequence(start, end).toString());
+    }
+
+    /**
+     * Returns the id of a value without adding it.
+     *
+     * @param value the value to look up
+     * @return the id of the value, or -1 if it is not in the dictionary
+     */
+    public int lookup(String value) {
+        if (value == null) {
+            return -1;
+        }
+        return lookup(value, 0, value.length());
+    }
+
+    /**
+     * Returns the id of the characters {@code [start, end)} of a sequence
+     * without adding it or allocating.
+     *
+     * @param source the characters holding the text
+     * @param start  index of the first character
+     * @param end    index after the last character
+     * @return the id of the value, or -1 if it is not in the dictionary
+     */
+    public int lookup(CharSequence source, int start, int end) {
+        Table current = table;
+        int mask = current.slots.length() - 1;
+        for (int slot = hash(source, start, end) & mask; ; slot = (slot + 1) & mask) {
+            int id = current.slots.get(slot) - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (matches(current.encoded[id], source, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the UTF-8 text {@code [start, end)} of a buffer
+     * without adding it or allocating.
+     *
+     * @param source the buffer holding the text
+     * @param start  absolute index of the first byte
+     * @param end    absolute index after the last byte
+     * @return the id of the value, or -1 if it is not in the dictionary
+     */
+    public int lookup(ByteBuffer source, int start, int end) {
+        Table current = table;
+        int mask = current.slots.length() - 1;
+        for (int slot = hash(source, start, end) & mask; ; slot = (slot + 1) & mask) {
+            int id = current.slots.get(slot) - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (matches(current.encoded[id], source, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the value of an id.
+     *
+     * @param id the id to resolve
+     * @return the value for the id
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public String valueOf(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_UNKNOWN_ID + id);
+        }
+        return table.values[id];
+    }
+
+    /**
+     * Returns the number of values in the dictionary.
+     *
+     * @return the dictionary size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the dictionary refuses new values.
+     *
+     * @return true if the dictionary holds maxSize values or more
+     */
+    public boolean isFull() {
+        return size >= maxSize;
+    }
+
+    /**
+     * Adds a value unless it is already present or the dictionary is full.
+     *
+     * @return the id of the value, or -1 if the dictionary is full
+     */
+    private synchronized int tryAdd(String value) {
+        if (!isStorable(value)) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_BET);
+        }
+        int id = lookup(value);
+        if (id >= 0) {
+            return id;
+        }
+        if (isFull()) {
+            return -1;
+        }
+        if (file != null) {
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                writer.write(value + "\n");
+            } catch (IOException e) {
+                throw new RuntimeException(Constants.MESSAGE_ERROR_WRITING_FILE, e);
+            }
+        }
+        return add(value);
+    }
+
+    /**
+     * Stores a value. Only called while holding the monitor or from the
+     * constructor. The value arrays are written before the slot, whose
+     * volatile write makes them visible to lookups.
+     */
+    private int add(String value) {
+        int id = size;
+        Table current = table;
+        if ((id + 1) * 2 > current.slots.length()) {
+            current = current.grow();
+            table = current;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        current.values[id] = value;
+        current.encoded[id] = encoded;
+        current.insert(hash(ByteBuffer.wrap(encoded), 0, encoded.length), id);
+        size = id + 1;
+        return id;
+    }
+
+    private static boolean isStorable(String value) {
+        return value != null && value.indexOf('\n') < 0 && value.indexOf('\r') < 0;
+    }
+
+    private static boolean matches(byte[] encoded, ByteBuffer source, int start, int end) {
+        if (encoded.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < encoded.length; i++) {
+            if (encoded[i] != source.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(byte[] encoded, CharSequence source, int start, int end) {
+        int pos = 0;
+        for (int i = start; i < end; i++) {
+            int cp = codePointAt(source, i, end);
+            int count = utf8Length(cp);
+            if (pos + count > encoded.length) {
+                return false;
+            }
+            for (int k = 0; k < count; k++) {
+                if (encoded[pos++] != utf8Byte(cp, count, k)) {
+                    return false;
+                }
+            }
+            if (cp > Character.MAX_VALUE) {
+                i++;
+            }
+        }
+        return pos == encoded.length;
+    }
+
+    private static int hash(ByteBuffer source, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.get(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of the characters, giving the same hash as
+     * the buffer overload over the encoded bytes.
+     */
+    private static int hash(CharSequence source, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            int cp = codePointAt(source, i, end);
+            int count = utf8Length(cp);
+            for (int k = 0; k < count; k++) {
+                hash = 31 * hash + utf8Byte(cp, count, k);
+            }
+            if (cp > Character.MAX_VALUE) {
+                i++;
+            }
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the code point at an index. A lone surrogate reads as
+     * {@code '?'}, which is what {@code String.getBytes} encodes it as.
+     */
+    private static int codePointAt(CharSequence source, int index, int end) {
+        char c = source.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(source.charAt(index + 1))) {
+            return Character.toCodePoint(c, source.charAt(index + 1));
+        }
+        return Character.isSurrogate(c) ? '?' : c;
+    }
+
+    private static int utf8Length(int cp) {
+        return cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+    }
+
+    private static byte utf8Byte(int cp, int count, int index) {
+        if (count == 1) {
+            return (byte) cp;
+        }
+        int shift = 6 * (count - 1 - index);
+        if (index == 0) {
+            int lead = count == 2 ? 0xC0 : count == 3 ? 0xE0 : 0xF0;
+            return (byte) (lead | (cp >> shift));
+        }
+        return (byte) (0x80 | ((cp >> shift) & 0x3F));
+    }
+
+    /**
+     * Values and hash slots. A slot holds id + 1, or 0 when it is free.
+     */
+    private static final class Table {
+        final String[] values;
+        final byte[][] encoded;
+        final AtomicIntegerArray slots;
+
+        Table(int capacity) {
+            this(new String[capacity / 2], new byte[capacity / 2][], capacity);
+        }
+
+        private Table(String[] values, byte[][] encoded, int capacity) {
+            this.values = values;
+            this.encoded = encoded;
+            this.slots = new AtomicIntegerArray(capacity);
+        }
+
+        Table grow() {
+            int capacity = slots.length() * 2;
+            Table larger = new Table(Arrays.copyOf(values, capacity / 2), Arrays.copyOf(encoded, capacity / 2),
+                    capacity);
+            for (int id = 0; id < values.length && values[id] != null; id++) {
+                larger.insert(hash(ByteBuffer.wrap(encoded[id]), 0, encoded[id].length), id);
+            }
+            return larger;
+        }
+
+        void insert(int hash, int id) {
+            int mask = slots.length() - 1;
+            int slot = hash & mask;
+            while (slots.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots.set(slot, id + 1);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact, deduplicated pool of strings stored off-heap.
+ * <p>
+ * Every distinct value is encoded once as UTF-8 into a direct
+ * {@code ByteBuffer} that doubles when it is full, and gets an int id in
+ * insertion order. The heap only holds two primitive arrays: the offset of
+ * each value in the buffer and an open-addressing hash table of ids used to
+ * find existing values. Strings are decoded again only when
+ * {@link #get(int)} is called.
+ * </p>
+ *
+ * <p>
+ * The pool is not thread safe.
+ * </p>
+ *
+ * @IOC
+ */
+public class StringPool {
+
+    private static final int INITIAL_BYTES = 64 * 1024;
+    private static final int INITIAL_TABLE = 1024;
+
+    private ByteBuffer bytes = ByteBuffer.allocateDirect(INITIAL_BYTES);
+    private int[] offsets = new int[INITIAL_TABLE + 1];
+    private int[] table = new int[INITIAL_TABLE];
+    private int size;
+
+    /**
+     * Returns the id of a value, adding it to the pool if needed.
+     *
+     * @param value the value to look up
+     * @return the id of the value
+     * @throws IllegalArgumentException if value is null
+     * @throws IllegalStateException    if the pool would exceed 2 GB
+     */
+    public int intern(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(encoded);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                break;
+            }
+            if (matches(id, encoded)) {
+                return id;
+            }
+        }
+        int id = add(encoded);
+        if ((long) size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            insert(table, hash, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the value of an id.
+     *
+     * @param id the id of the value
+     * @return the value
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_UNKNOWN_ID + id);
+        }
+        byte[] encoded = new byte[offsets[id + 1] - offsets[id]];
+        bytes.get(offsets[id], encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of distinct values.
+     *
+     * @return the value count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of off-heap bytes used by the values.
+     *
+     * @return the encoded size of all the values
+     */
+    public long bytesUsed() {
+        return offsets[size];
+    }
+
+    private int add(byte[] encoded) {
+        int start = offsets[size];
+        long end = (long) start + encoded.length;
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalStateException(Constants.MESSAGE_ERROR_POOL_FULL);
+        }
+        if (end > bytes.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE,
+                    Math.max(end, (long) bytes.capacity() * 2)));
+            larger.put(0, bytes, 0, start);
+            bytes = larger;
+        }
+        bytes.put(start, encoded);
+        if (size + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[size + 1] = (int) end;
+        return size++;
+    }
+
+    private boolean matches(int id, byte[] encoded) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start != encoded.length) {
+            return false;
+        }
+        for (int i = 0; i < encoded.length; i++) {
+            if (bytes.get(start + i) != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        int[] larger = new int[capacity];
+        byte[] encoded;
+        for (int id = 0; id < size; id++) {
+            encoded = new byte[offsets[id + 1] - offsets[id]];
+            bytes.get(offsets[id], encoded);
+            insert(larger, hash(encoded), id);
+        }
+        table = larger;
+    }
+
+    private static void insert(int[] table, int hash, int id) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private static int hash(byte[] encoded) {
+        int hash = Arrays.hashCode(encoded);
+        return hash ^ (hash >>> 16);
+    }
+}
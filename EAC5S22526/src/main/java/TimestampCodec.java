@@ -0,0 +1,244 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Encoder and decoder of {@link Constants#DATE_FORMAT} timestamps.
+ * <p>
+ * A timestamp is handled as a {@code long} whose decimal digits are the
+ * date, for example {@code 202405101530}, or as an {@code int} of minutes
+ * since 2000-01-01 00:00 (the epoch of {@link BinaryBetStore} records). The
+ * conversions use plain calendar arithmetic, and the text forms are read from
+ * and written to 12 ASCII digits in place, so none of them allocates.
+ * </p>
+ *
+ * <p>
+ * The current minute is formatted once and cached: every insert made in the
+ * same minute gets the same {@code String} back from {@link #nowText()}.
+ * </p>
+ *
+ * @IOC
+ */
+public final class TimestampCodec {
+
+    public static final int DIGITS = 12;
+
+    /**
+     * Returned by the parse methods when the text is not 12 digits.
+     */
+    public static final long INVALID = -1;
+
+    private static final long EPOCH_DAY = daysFromCivil(2000, 1, 1);
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long MILLIS_PER_MINUTE = 60_000;
+
+    private static volatile CachedMinute current;
+
+    private TimestampCodec() {
+    }
+
+    /**
+     * The formatted local time of one minute of the wall clock.
+     */
+    private record CachedMinute(long startMillis, long endMillis, long timestamp, String text) {
+    }
+
+    /**
+     * Parses the window {@code [start, end)} of a character sequence.
+     *
+     * @param text  the characters holding the timestamp
+     * @param start index of the first character
+     * @param end   index after the last character
+     * @return the numeric timestamp, or {@link #INVALID} if the window is not
+     *         exactly 12 digits
+     */
+    public static long parse(CharSequence text, int start, int end) {
+        if (end - start != DIGITS) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses the ASCII digits {@code [start, end)} of a buffer. The buffer
+     * position and limit are not modified.
+     *
+     * @param source the buffer holding the timestamp
+     * @param start  absolute index of the first byte
+     * @param end    absolute index after the last byte
+     * @return the numeric timestamp, or {@link #INVALID} if the window is not
+     *         exactly 12 digits
+     */
+    public static long parse(ByteBuffer source, int start, int end) {
+        if (end - start != DIGITS) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = source.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Writes a timestamp as 12 ASCII digits.
+     *
+     * @param timestamp the numeric timestamp
+     * @param target    the array receiving the digits
+     * @param offset    the index of the first digit
+     * @return the index after the last digit
+     */
+    public static int encode(long timestamp, byte[] target, int offset) {
+        long rest = timestamp;
+        for (int i = offset + DIGITS - 1; i >= offset; i--) {
+            target[i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return offset + DIGITS;
+    }
+
+    /**
+     * Formats a timestamp as 12 digits.
+     *
+     * @param timestamp the numeric timestamp
+     * @return the timestamp text
+     */
+    public static String format(long timestamp) {
+        byte[] digits = new byte[DIGITS];
+        encode(timestamp, digits, 0);
+        return new String(digits, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Checks that a numeric timestamp is a real date and time.
+     *
+     * @param timestamp the numeric timestamp
+     * @return true if month, day, hour and minute are in range
+     */
+    public static boolean isValid(long timestamp) {
+        if (timestamp < 0 || timestamp > 999_999_999_999L) {
+            return false;
+        }
+        int year = (int) (timestamp / 100_000_000L);
+        int month = (int) (timestamp / 1_000_000L % 100);
+        int day = (int) (timestamp / 10_000L % 100);
+        return month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)
+                && timestamp / 100 % 100 < 24 && timestamp % 100 < 60;
+    }
+
+    /**
+     * Converts a timestamp to minutes since 2000-01-01 00:00.
+     *
+     * @param timestamp the numeric timestamp
+     * @return the minutes since the epoch
+     * @throws IllegalArgumentException if the timestamp is not a valid date or
+     *                                  does not fit in an int of minutes
+     */
+    public static int toEpochMinutes(long timestamp) {
+        if (!isValid(timestamp)) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_TIMESTAMP);
+        }
+        long days = daysFromCivil((int) (timestamp / 100_000_000L), (int) (timestamp / 1_000_000L % 100),
+                (int) (timestamp / 10_000L % 100)) - EPOCH_DAY;
+        long minutes = days * MINUTES_PER_DAY + timestamp / 100 % 100 * 60 + timestamp % 100;
+        if (minutes < Integer.MIN_VALUE || minutes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_INVALID_TIMESTAMP);
+        }
+        return (int) minutes;
+    }
+
+    /**
+     * Converts minutes since 2000-01-01 00:00 to a numeric timestamp.
+     *
+     * @param minutes the minutes since the epoch
+     * @return the numeric timestamp, for example {@code 202405101530}
+     */
+    public static long fromEpochMinutes(int minutes) {
+        long day = Math.floorDiv(minutes, MINUTES_PER_DAY) + EPOCH_DAY;
+        int minuteOfDay = Math.floorMod(minutes, MINUTES_PER_DAY);
+        // civil-from-days on a calendar that starts on March 1st, so that the
+        // leap day is the last day of the year
+        long shifted = day + 719_468;
+        long era = Math.floorDiv(shifted, 146_097);
+        long dayOfEra = shifted - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        long dayOfMonth = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        long month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 100_000_000L + month * 1_000_000L + dayOfMonth * 10_000L + minuteOfDay / 60 * 100L
+                + minuteOfDay % 60;
+    }
+
+    /**
+     * Returns the current local time as a numeric timestamp.
+     *
+     * @return the timestamp of the current minute
+     */
+    public static long now() {
+        return currentMinute().timestamp();
+    }
+
+    /**
+     * Returns the current local time as a {@link Constants#DATE_FORMAT} text.
+     * The text is built once per minute and shared by every caller.
+     *
+     * @return the timestamp text of the current minute
+     */
+    public static String nowText() {
+        return currentMinute().text();
+    }
+
+    private static CachedMinute currentMinute() {
+        long millis = System.currentTimeMillis();
+        CachedMinute cached = current;
+        if (cached != null && millis >= cached.startMillis() && millis < cached.endMillis()) {
+            return cached;
+        }
+        ZonedDateTime minute = Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault())
+                .truncatedTo(ChronoUnit.MINUTES);
+        long timestamp = minute.getYear() * 100_000_000L + minute.getMonthValue() * 1_000_000L
+                + minute.getDayOfMonth() * 10_000L + minute.getHour() * 100L + minute.getMinute();
+        long start = minute.toInstant().toEpochMilli();
+        cached = new CachedMinute(start, start + MILLIS_PER_MINUTE, timestamp, format(timestamp));
+        current = cached;
+        return cached;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Returns the days from 1970-01-01 to a date of the proleptic Gregorian
+     * calendar.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int shiftedYear = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(shiftedYear, 400);
+        long yearOfEra = shiftedYear - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+}
@@ -1,4 +1,6 @@
+import java.util.Map;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 /**
  * Utility class for handling user input and output in the console.
@@ -251,6 +253,40 @@ public class UtilsIO {
         return numDec;
     }
 
+    /**
+     * Prompts the user to enter a decimal value and returns it as a
+     * {@link FixedPoint} value. A dot is always the decimal separator, whatever
+     * the default locale. Repeats until a valid number is entered.
+     *
+     * @param message      prompt shown to the user. If not provided, a default
+     *                     prompt is used.
+     * @param errorMessage message shown when the input is invalid. If not provided,
+     *                     a default error message is used.
+     * @param decimals     the number of decimals of the result, for example
+     *                     {@link FixedPoint#AMOUNT_DECIMALS}
+     * @return the value entered by the user, scaled by 10^decimals
+     */
+    public long askForFixedPoint(String message, String errorMessage, int decimals) {
+        if (message == null || message.isEmpty()) {
+            message = "Intrueixi un número amb decimals";
+        }
+        if (errorMessage == null || errorMessage.isEmpty()) {
+            errorMessage = "S'ha introduït un format invàlid";
+        }
+        long value = FixedPoint.INVALID;
+        do {
+            System.out.println(message);
+            String input = scan.nextLine();
+            if (input != null) {
+                value = FixedPoint.parse(input.trim(), decimals);
+            }
+            if (value == FixedPoint.INVALID) {
+                showError(errorMessage);
+            }
+        } while (value == FixedPoint.INVALID);
+        return value;
+    }
+
     /**
      * Displays a list of bets formatted using a predefined template.
      * Each bet must have exactly the expected number of columns (timestamp, sport,
@@ -261,6 +297,59 @@ public class UtilsIO {
      * @throws IllegalArgumentException if betList is null or empty
      */
     public void showBets(String betList) {
+        if (betList == null || betList.isEmpty()) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        BetLineParser parser = new BetLineParser();
+        showBetsFromStream(betList.lines().filter(parser::parse).map(line -> parser.toBet()));
+    }
 
+    /**
+     * Displays the bets of a stream using the same template as
+     * {@link #showBets(String)}.
+     * <p>
+     * Bets are printed as they are pulled from the stream, so the full list is
+     * never held in memory. Rows go through a {@link BetRenderer} buffer and
+     * are flushed once at the end.
+     * </p>
+     *
+     * @param bets the bets to display
+     * @throws IllegalArgumentException if bets is null
+     */
+    public void showBetsFromStream(Stream<Bet> bets) {
+        if (bets == null) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        new BetRenderer(System.out, null, 0).render(bets);
+    }
+
+    /**
+     * Displays the bets of a stream page by page, waiting for the user after
+     * each page. An empty line shows the next page and {@code q} stops. To
+     * start at a later row, pass a stream from
+     * {@link DataFileUtils#streamBets(long)}.
+     *
+     * @param bets     the bets to display
+     * @param pageSize rows per page
+     * @return the number of rows shown
+     * @throws IllegalArgumentException if bets is null or pageSize is not
+     *                                  positive
+     */
+    public long showBetsPaged(Stream<Bet> bets, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException(Constants.MESSAGE_ERROR_EMPTY_STRING);
+        }
+        return new BetRenderer(System.out, scan, pageSize).render(bets);
+    }
+
+    /**
+     * Displays the totals of an aggregation, one row per group, with the
+     * stake, potential payout and odds columns.
+     *
+     * @param totals the totals by group key, in display order
+     * @throws IllegalArgumentException if totals is null
+     */
+    public void showTotals(Map<String, BetAggregator.Totals> totals) {
+        new BetRenderer(System.out, null, 0).renderTotals(totals);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("AppendLock")
+class AppendLockTest {
+
+    private static final int PROCESSES = 3;
+    private static final int BETS = 300;
+
+    private String directoryName;
+    private String fileName;
+
+    @BeforeEach
+    void setup() {
+        directoryName = "append-lock-test-" + UUID.randomUUID();
+        fileName = "bets-test.txt";
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(Paths.get(directoryName))) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Child process entry point: appends bets of one sport to the data file.
+     *
+     * @param args folder, file, sport and number of bets
+     */
+    public static void main(String[] args) {
+        DataFileUtils utils = new DataFileUtils(args[0], args[1]);
+        for (int i = 0; i < Integer.parseInt(args[3]); i++) {
+            utils.insertBetIntoDataFile(args[2], "Event" + i, "Guanyador amb un nom prou llarg", 1.5f, i + 1);
+        }
+    }
+
+    @Test
+    @DisplayName("is reentrant and can be reused after closing")
+    void reentrant() throws IOException {
+        Path file = Files.createDirectories(Paths.get(directoryName)).resolve(fileName);
+        AppendLock lock = AppendLock.forFile(file);
+        assertEquals("inner", lock.withLock(() -> lock.withLock(() -> "inner")));
+        assertFalse(lock.isHeldByCurrentThread());
+        lock.close();
+        assertEquals(1, lock.withLock(() -> lock.isHeldByCurrentThread() ? 1 : 0));
+        lock.close();
+    }
+
+    @Test
+    @DisplayName("appends from several processes never interleave")
+    void processesDoNotInterleave() throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        try (ConcurrentDataFileUtils utils = new ConcurrentDataFileUtils(directoryName, fileName)) {
+            for (int p = 0; p < PROCESSES; p++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        AppendLockTest.class.getName(), directoryName, fileName, "Proces" + p, String.valueOf(BETS))
+                        .directory(new File(System.getProperty("user.dir")))
+                        .inheritIO()
+                        .start());
+            }
+            for (int i = 0; i < BETS; i++) {
+                utils.insertBetIntoDataFile("Local", "Event" + i, "Guanyador amb un nom prou llarg", 1.5f, i + 1);
+            }
+            for (Process process : processes) {
+                assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+                assertEquals(0, process.exitValue());
+            }
+        }
+
+        List<String> lines = Files.readAllLines(Paths.get(directoryName, fileName), StandardCharsets.UTF_8);
+        assertEquals((PROCESSES + 1) * BETS, lines.size());
+        BetLineParser parser = new BetLineParser();
+        assertTrue(lines.stream().allMatch(parser::parse));
+        DataFileUtils reopened = new DataFileUtils(directoryName, fileName);
+        assertEquals(BETS, reopened.findBets("Proces0").size());
+        assertEquals(BETS, reopened.findBets("Local").size());
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SortedMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("BetAggregator")
+class BetAggregatorTest {
+
+    private static final String CSV = """
+            202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00
+            202405101545,Futbol,Girona-Betis,Més de 2.5 gols,2.10,20.50
+            malformed line
+            202405101610,Tenis,Nadal-Alcaraz,Guanyador Set 1 Nadal,1.55,100.00
+            202405111000,Futbol,Barça-Madrid,Empat,3.333,0.10
+            """;
+
+    private Path directory;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("aggregator-test-");
+        Files.writeString(directory.resolve("bets.txt"), CSV);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Totals")
+    class TotalsTests {
+
+        @Test
+        @DisplayName("groups by sport with exact stake and payout")
+        void bySport() {
+            SortedMap<String, BetAggregator.Totals> totals = new DataFileUtils(directory.toString(), "bets.txt")
+                    .aggregateBets(BetAggregator.GroupBy.SPORT, false);
+
+            assertEquals(2, totals.size());
+            BetAggregator.Totals futbol = totals.get("Futbol");
+            assertEquals(3, futbol.count());
+            assertEquals(5000 + 2050 + 10, futbol.stakeCents());
+            assertEquals(9250 + 4305 + 33, futbol.payoutCents());
+            assertEquals(1850, futbol.minOddsThousandths());
+            assertEquals(3333, futbol.maxOddsThousandths());
+            assertEquals(2428, futbol.averageOddsThousandths());
+            assertEquals(2353, futbol.averageStakeCents());
+            assertEquals(15500, totals.get("Tenis").payoutCents());
+        }
+
+        @Test
+        @DisplayName("groups by hour and day in chronological order")
+        void byTimeBucket() {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.txt");
+
+            SortedMap<String, BetAggregator.Totals> hours = utils.aggregateBets(BetAggregator.GroupBy.HOUR, false);
+            assertEquals(java.util.List.of("2024051015", "2024051016", "2024051110"), hours.keySet().stream().toList());
+            assertEquals(2, hours.get("2024051015").count());
+
+            SortedMap<String, BetAggregator.Totals> days = utils.aggregateBets(BetAggregator.GroupBy.DAY, false);
+            assertEquals(3, days.get("20240510").count());
+        }
+    }
+
+    @Nested
+    @DisplayName("Execution")
+    class ExecutionTests {
+
+        @Test
+        @DisplayName("parallel, stream and binary runs give the same totals")
+        void sameResults() throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 20_000; i++) {
+                text.append("2024051").append(i % 3).append("1530,Esport").append(i % 7).append(",Partit")
+                        .append(i % 101).append(",Guanyador,").append(1 + i % 9).append(".25,").append(i % 500)
+                        .append(".05\n");
+            }
+            Files.writeString(directory.resolve("bets.txt"), text);
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.txt");
+            BetFileConverter.csvToBinary(directory.resolve("bets.txt"), directory.resolve("bets.bin"));
+            DataFileUtils binary = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+
+            for (BetAggregator.GroupBy groupBy : BetAggregator.GroupBy.values()) {
+                SortedMap<String, BetAggregator.Totals> expected = utils.aggregateBets(groupBy, false);
+                assertSame(expected, utils.aggregateBets(groupBy, true));
+                assertSame(expected, binary.aggregateBets(groupBy, true));
+                try (Stream<Bet> bets = utils.streamBets()) {
+                    assertSame(expected, BetAggregator.aggregate(bets, groupBy));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("segmented stores aggregate the same in parallel")
+        void segmentedParallel() throws IOException {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.seg", StorageFormat.SEGMENTED);
+            for (int i = 0; i < 5_000; i++) {
+                utils.insertStringIntoDataFile("2024051" + i % 3 + "1530,Esport" + i % 7 + ",Partit" + i % 101
+                        + ",Guanyador," + (1 + i % 9) + ".25," + (1 + i % 500) + ".05");
+            }
+            for (BetAggregator.GroupBy groupBy : BetAggregator.GroupBy.values()) {
+                assertSame(utils.aggregateBets(groupBy, false), utils.aggregateBets(groupBy, true));
+            }
+            assertEquals(5_000, utils.aggregateBets(BetAggregator.GroupBy.DAY, true).values().stream()
+                    .mapToLong(BetAggregator.Totals::count).sum());
+        }
+
+        private void assertSame(SortedMap<String, BetAggregator.Totals> expected,
+                SortedMap<String, BetAggregator.Totals> actual) {
+            assertEquals(expected.keySet(), actual.keySet());
+            expected.forEach((key, totals) -> {
+                BetAggregator.Totals other = actual.get(key);
+                assertEquals(totals.count(), other.count());
+                assertEquals(totals.stakeCents(), other.stakeCents());
+                assertEquals(totals.payoutCents(), other.payoutCents());
+                assertEquals(totals.minOddsThousandths(), other.minOddsThousandths());
+                assertEquals(totals.maxOddsThousandths(), other.maxOddsThousandths());
+            });
+        }
+    }
+}
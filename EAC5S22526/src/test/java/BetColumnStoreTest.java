@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("BetColumnStore")
+class BetColumnStoreTest {
+
+    private static final String CSV = """
+            202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00
+            malformed line
+            202405101645,Futbol,Girona-Betis,Més de 2.5 gols,2.10,20.50
+            202405111000,Tenis,Nadal-Alcaraz,Guanyador Set 1 Nadal,1.55,100.00
+            """;
+
+    private Path directory;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("column-store-test-");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Columns")
+    class ColumnTests {
+
+        @Test
+        @DisplayName("rows are readable across chunk boundaries")
+        void acrossChunks() {
+            BetColumnStore store = new BetColumnStore(4);
+            for (int i = 0; i < 10; i++) {
+                store.append(new Bet(String.valueOf(202405101500L + i), "Futbol", "Partit " + (i % 3), "Guanyador",
+                        1.5f + i, 10.25f * i));
+            }
+
+            assertEquals(10, store.size());
+            assertEquals(3 * 4 * BetColumnStore.ROW_BYTES + 3 * "Partit 0".length(), store.offHeapBytes());
+            assertEquals(202405101507L, store.timestamp(7));
+            assertEquals(8500, store.oddsThousandths(7));
+            assertEquals(7175, store.amountCents(7));
+            assertEquals("Partit 1", store.get(7).event());
+            assertEquals(new Bet("202405101509", "Futbol", "Partit 0", "Guanyador", 10.5f, 92.25f), store.get(9));
+            assertThrows(IndexOutOfBoundsException.class, () -> store.get(10));
+        }
+
+        @Test
+        @DisplayName("repeated strings share one id")
+        void sharesIds() {
+            BetColumnStore store = new BetColumnStore(4);
+            store.append(new Bet("202405101530", "Futbol", "Barça-Madrid", "Guanyador Local", 1.85f, 50f));
+            store.append(new Bet("202405101531", "Tenis", "Nadal-Alcaraz", "Guanyador Local", 1.55f, 10f));
+            store.append(new Bet("202405101532", "Futbol", "Barça-Madrid", "Empat", 3.1f, 5f));
+
+            assertEquals(store.sportId(0), store.sportId(2));
+            assertEquals(store.eventId(0), store.eventId(2));
+            assertEquals(store.betTypeId(0), store.betTypeId(1));
+            assertEquals(store.sportId(1), store.sportIdOf("Tenis"));
+            assertEquals(-1, store.sportIdOf("Hoquei"));
+        }
+
+        @Test
+        @DisplayName("rejects timestamps that are not numbers")
+        void rejectsBadTimestamp() {
+            BetColumnStore store = new BetColumnStore();
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> store.append(new Bet("ahir", "Futbol", "Barça-Madrid", "Empat", 3.1f, 5f)));
+            assertThrows(IllegalArgumentException.class, () -> new BetColumnStore(0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Loading")
+    class LoadingTests {
+
+        @Test
+        @DisplayName("loads the well-formed bets of text and binary files")
+        void loadsDataFile() throws IOException {
+            Files.writeString(directory.resolve("bets.csv"), CSV);
+            DataFileUtils text = new DataFileUtils(directory.toString(), "bets.csv");
+            BetColumnStore fromText = text.loadColumnStore();
+
+            BetFileConverter.csvToBinary(directory.resolve("bets.csv"), directory.resolve("bets.bin"));
+            DataFileUtils binary = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+            BetColumnStore fromBinary = binary.loadColumnStore();
+
+            assertEquals(3, fromText.size());
+            assertEquals(3, fromBinary.size());
+            for (int row = 0; row < 3; row++) {
+                assertEquals(fromText.get(row), fromBinary.get(row));
+            }
+            assertEquals("Girona-Betis", fromText.get(1).event());
+            assertEquals(2100, fromText.oddsThousandths(1));
+            assertEquals(2050, fromText.amountCents(1));
+        }
+    }
+}
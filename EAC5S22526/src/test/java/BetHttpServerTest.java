@@ -0,0 +1,111 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("BetHttpServer")
+class BetHttpServerTest {
+
+    private String directoryName;
+    private ConcurrentDataFileUtils dataFile;
+    private BetHttpServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setup() {
+        directoryName = "http-test-" + UUID.randomUUID();
+        dataFile = new ConcurrentDataFileUtils(directoryName, "bets-test.txt");
+        server = new BetHttpServer(dataFile, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        server.close();
+        dataFile.close();
+        try (Stream<Path> paths = Files.walk(Paths.get(directoryName))) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private URI uri(String query) {
+        return URI.create("http://localhost:" + server.port() + BetHttpServer.PATH + query);
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri("")).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String query) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(query)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("stores single and batched submissions and lists them")
+    void insertAndList() throws Exception {
+        assertEquals(201, post("Futbol,Barça-Madrid,Guanyador Local,1.85,50").statusCode());
+        HttpResponse<String> batch = post("Tenis,Nadal-Alcaraz,Guanyador,1.55,100\nFutbol,Girona-Betis,Empat,3.2,10\n");
+        assertEquals(201, batch.statusCode());
+        assertEquals("2", batch.body().trim());
+
+        assertEquals(3, get("").body().lines().count());
+        List<String> futbol = get("?sport=Futbol").body().lines().toList();
+        assertEquals(2, futbol.size());
+        assertTrue(futbol.get(0).contains("Barça-Madrid"));
+        assertEquals(1, get("?sport=Futbol&event=Girona-Betis").body().lines().count());
+        assertEquals(3, get("?from=200001010000").body().lines().count());
+    }
+
+    @Test
+    @DisplayName("rejects the whole batch when a line is invalid")
+    void rejectsInvalidBatch() throws Exception {
+        HttpResponse<String> response = post("Tenis,Nadal-Alcaraz,Guanyador,1.55,100\nFutbol,Girona-Betis,Empat,x,10");
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("2"));
+        assertEquals(400, post("Futbol,Barça-Madrid,Guanyador Local,-1,50").statusCode());
+        HttpResponse<String> zero = post("Tenis,Nadal-Alcaraz,Guanyador,1.55,100\nFutbol,Girona-Betis,Empat,3.2,0");
+        assertEquals(400, zero.statusCode());
+        assertTrue(zero.body().contains("2"));
+        assertEquals(400, post("Futbol,,Empat,3.2,10").statusCode());
+        assertEquals(0, dataFile.getIndex().size());
+        assertEquals(400, get("?from=ahir").statusCode());
+    }
+
+    @Test
+    @DisplayName("serves many concurrent submissions")
+    void concurrentSubmissions() {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uri(""))
+                    .POST(HttpRequest.BodyPublishers.ofString("Futbol,Event" + i + ",Empat,3.2," + (i + 1)))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(201, response.join().statusCode());
+        }
+        assertEquals(200, dataFile.getIndex().size());
+    }
+}
@@ -0,0 +1,150 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("BetLineParser")
+class BetLineParserTest {
+
+    private static final String LINE = "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00";
+
+    @Nested
+    @DisplayName("CharSequence windows")
+    class CharSequenceTests {
+
+        @Test
+        @DisplayName("parses all columns of a valid line")
+        void parsesValidLine() {
+            BetLineParser parser = new BetLineParser();
+
+            assertTrue(parser.parse(LINE));
+            assertEquals(202405101530L, parser.timestamp());
+            assertEquals(1.85f, parser.odds());
+            assertEquals(50.0f, parser.amount());
+            assertTrue(parser.fieldEquals(BetLineParser.SPORT, "Futbol"));
+            assertTrue(parser.fieldEquals(BetLineParser.EVENT, "Barça-Madrid"));
+            assertEquals("Guanyador Local", parser.fieldAsString(BetLineParser.BET_TYPE));
+        }
+
+        @Test
+        @DisplayName("parses a window in the middle of a larger text")
+        void parsesWindow() {
+            String text = "garbage\n" + LINE + "\r\nmore";
+            BetLineParser parser = new BetLineParser();
+            int start = text.indexOf('\n') + 1;
+            int end = text.indexOf('\n', start);
+
+            assertTrue(parser.parse(text, start, end));
+            assertEquals(start, parser.fieldStart(BetLineParser.TIMESTAMP));
+            assertEquals(50.0f, parser.amount());
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {
+            "This is a random String without data",
+            "DateTime1,Supermarket1,City1,1,1",
+            "20231201,John,Doe,12345678A,invalid_odds,75.5",
+            "20231201,John,Doe,12345678A,1.8,invalid_amount",
+            "20231201,John,Doe,12345678A,1.8,75.5,extra",
+            "DateTime1,John,Doe,12345678A,1.8,75.5",
+            "20231201,,Doe,12345678A,1.8,75.5",
+            "20231201,John,Doe,12345678A,.,75.5",
+            "20231201,John,Doe,12345678A,1.8,"
+        })
+        @DisplayName("rejects malformed lines")
+        void rejectsMalformed(String line) {
+            assertFalse(new BetLineParser().parse(line));
+        }
+
+        @Test
+        @DisplayName("matches Float.parseFloat for plain decimals, up to cents for amounts")
+        void matchesFloatParsing() {
+            BetLineParser parser = new BetLineParser();
+            String[] values = {"0.05", "12.00", "3.2", "100", "-2.5", "+7.125", "0001.10"};
+            for (String value : values) {
+                assertTrue(parser.parse("202405101530,A,B,C," + value + "," + value));
+                assertEquals(Float.parseFloat(value), parser.odds());
+                assertEquals(Math.round(Double.parseDouble(value) * 1000), parser.oddsThousandths());
+                assertEquals(new BigDecimal(value).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValue(),
+                        parser.amountCents());
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("ByteBuffer windows")
+    class ByteBufferTests {
+
+        @Test
+        @DisplayName("parses UTF-8 bytes and compares text columns in place")
+        void parsesBytes() {
+            ByteBuffer buffer = ByteBuffer.wrap((LINE + "\n").getBytes(StandardCharsets.UTF_8));
+            BetLineParser parser = new BetLineParser();
+
+            assertTrue(parser.parse(buffer, 0, buffer.limit() - 1));
+            assertEquals(202405101530L, parser.timestamp());
+            assertEquals(1.85f, parser.odds());
+            assertTrue(parser.fieldEquals(BetLineParser.EVENT, "Barça-Madrid"));
+            assertFalse(parser.fieldEquals(BetLineParser.EVENT, "Barca-Madrid"));
+            assertEquals("Barça-Madrid", parser.fieldAsString(BetLineParser.EVENT));
+            assertEquals(0, buffer.position());
+        }
+
+        @Test
+        @DisplayName("materialises the same bet as the text path")
+        void sameBetAsText() {
+            ByteBuffer buffer = ByteBuffer.wrap(LINE.getBytes(StandardCharsets.UTF_8));
+            BetLineParser parser = new BetLineParser();
+
+            assertTrue(parser.parse(buffer, 0, buffer.limit()));
+            assertEquals(Bet.parse(LINE), parser.toBet());
+        }
+    }
+
+    @Nested
+    @DisplayName("Interning")
+    class InterningTests {
+
+        @Test
+        @DisplayName("sports and bet types resolve to one shared instance")
+        void sharesInstances() {
+            ByteBuffer buffer = ByteBuffer.wrap(LINE.getBytes(StandardCharsets.UTF_8));
+            BetLineParser parser = new BetLineParser(new StringDictionary(), new StringDictionary());
+
+            assertTrue(parser.parse(buffer, 0, buffer.limit()));
+            Bet first = parser.toBet();
+            assertTrue(parser.parse(LINE));
+            Bet second = parser.toBet();
+
+            assertSame(first.sport(), second.sport());
+            assertSame(first.betType(), second.betType());
+            assertNotSame(first.event(), second.event());
+        }
+
+        @Test
+        @DisplayName("values past the bound are returned unshared")
+        void boundedFallback() {
+            StringDictionary sports = new StringDictionary(null, 1);
+            BetLineParser parser = new BetLineParser(sports, null);
+
+            assertTrue(parser.parse(LINE));
+            assertSame(parser.fieldAsString(BetLineParser.SPORT), parser.fieldAsString(BetLineParser.SPORT));
+            assertTrue(parser.parse(LINE.replace("Futbol", "Tenis")));
+            assertEquals("Tenis", parser.fieldAsString(BetLineParser.SPORT));
+            assertNotSame(parser.fieldAsString(BetLineParser.SPORT), parser.fieldAsString(BetLineParser.SPORT));
+            assertEquals(1, sports.size());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("BinaryBetStore")
+class BinaryBetStoreTest {
+
+    private static final String CSV = """
+            202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00
+            202405101645,Futbol,Girona-Betis,Més de 2.5 gols,2.10,20.50
+            malformed line
+            202405111000,Tenis,Nadal-Alcaraz,Guanyador Set 1 Nadal,1.55,100.00
+            """;
+
+    private Path directory;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("binary-store-test-");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Converter")
+    class ConverterTests {
+
+        @Test
+        @DisplayName("converts CSV to binary and back")
+        void roundTrip() throws IOException {
+            Path csv = directory.resolve("bets.txt");
+            Path binary = directory.resolve("bets.bin");
+            Path back = directory.resolve("back.txt");
+            Files.writeString(csv, CSV);
+
+            assertEquals(3, BetFileConverter.csvToBinary(csv, binary));
+            assertEquals(3 * BinaryBetStore.RECORD_SIZE, Files.size(binary));
+            assertEquals(3, BetFileConverter.binaryToCsv(binary, back));
+
+            List<String> lines = Files.readAllLines(back);
+            assertEquals(3, lines.size());
+            Bet first = Bet.parse(lines.get(0));
+            assertEquals("202405101530", first.timestamp());
+            assertEquals("Barça-Madrid", first.event());
+            assertEquals(1.85f, first.odds());
+            assertEquals(50.0f, first.amount());
+        }
+
+        @Test
+        @DisplayName("scans raw records without decoding strings")
+        void scansRawRecords() throws IOException {
+            Path csv = directory.resolve("bets.txt");
+            Path binary = directory.resolve("bets.bin");
+            Files.writeString(csv, CSV);
+            BetFileConverter.csvToBinary(csv, binary);
+
+            long[] totalCents = new long[1];
+            new BinaryBetStore(binary).forEachRecord(
+                    (minutes, sport, type, event, odds, amount) -> totalCents[0] += amount);
+            assertEquals(17050, totalCents[0]);
+        }
+    }
+
+    @Nested
+    @DisplayName("DataFileUtils in binary mode")
+    class DataFileUtilsBinaryTests {
+
+        @Test
+        @DisplayName("inserted bets are read back as bets and lines")
+        void insertAndRead() {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+
+            assertTrue(utils.insertBetIntoDataFile("Futbol", "Barça-Madrid", "Guanyador Local", 1.85f, 50f));
+            assertTrue(utils.insertStringIntoDataFile("202405111000,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00"));
+
+            try (Stream<Bet> bets = utils.streamBets()) {
+                List<Bet> list = bets.toList();
+                assertEquals(2, list.size());
+                assertEquals("Futbol", list.get(0).sport());
+                assertEquals("202405111000", list.get(1).timestamp());
+            }
+            assertEquals(2, utils.getInfoFromDataFileIntoString().trim().split("\n").length);
+        }
+
+        @Test
+        @DisplayName("several lines are stored as consecutive records in one insert")
+        void insertSeveralLines() {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+
+            assertTrue(utils.insertStringIntoDataFile("202405111000,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00\n"
+                    + "202405121000,Futbol,Girona-Betis,Empat,3.20,10.00"));
+            assertThrows(IllegalArgumentException.class,
+                    () -> utils.insertStringIntoDataFile("202405111000,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00\nx"));
+
+            assertEquals(1, utils.findBets("Tenis").size());
+            assertEquals("202405121000", utils.findBets("Futbol", "Girona-Betis").get(0).timestamp());
+            try (Stream<Bet> bets = utils.streamBets()) {
+                assertEquals(2, bets.count());
+            }
+            try (Stream<Bet> bets = utils.streamBets(1)) {
+                assertEquals(List.of("Futbol"), bets.map(Bet::sport).toList());
+            }
+        }
+
+        @Test
+        @DisplayName("dictionary ids survive a reopen")
+        void dictionariesArePersisted() {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+            utils.insertBetIntoDataFile("Futbol", "Barça-Madrid", "Guanyador Local", 1.85f, 50f);
+
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+            reopened.insertBetIntoDataFile("Tenis", "Nadal-Alcaraz", "Guanyador", 1.55f, 10f);
+            try (Stream<Bet> bets = reopened.streamBets()) {
+                assertEquals(List.of("Futbol", "Tenis"), bets.map(Bet::sport).toList());
+            }
+        }
+
+        @Test
+        @DisplayName("rejects lines that are not bets")
+        void rejectsNonBetLines() {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+
+            assertThrows(IllegalArgumentException.class, () -> utils.insertStringIntoDataFile("Some content"));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("ChecksumJournal")
+class ChecksumJournalTest {
+
+    private static final String BET = "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00";
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("journal-test-");
+        file = directory.resolve("bets.txt");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Inserts bets and abandons the instance without closing it, as a crash
+     * would.
+     */
+    private DataFileUtils crashAfterInserts(StorageFormat format, String name, int bets) {
+        DataFileUtils utils = new DataFileUtils(directory.toString(), name, format);
+        utils.enableChecksums();
+        for (int i = 0; i < bets; i++) {
+            utils.insertStringIntoDataFile(BET);
+        }
+        return utils;
+    }
+
+    @Nested
+    @DisplayName("Recovery")
+    class RecoveryTests {
+
+        @Test
+        @DisplayName("a clean close leaves nothing to check")
+        void cleanClose() {
+            try (DataFileUtils utils = crashAfterInserts(StorageFormat.TEXT, "bets.txt", 3)) {
+                assertEquals(3, utils.findBets("Futbol").size());
+            }
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.txt");
+            assertEquals(new ChecksumJournal.Recovery(0, 0, 0), reopened.enableChecksums());
+        }
+
+        @Test
+        @DisplayName("drops a line torn by a crash and keeps the journaled ones")
+        void tornLine() throws IOException {
+            crashAfterInserts(StorageFormat.TEXT, "bets.txt", 3);
+            Files.writeString(file, "202405101700,Fut", StandardOpenOption.APPEND);
+
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.txt");
+            assertEquals(new ChecksumJournal.Recovery(3, 1, 16), reopened.enableChecksums());
+            reopened.insertStringIntoDataFile(BET);
+            assertEquals(List.of(BET, BET, BET, BET), Files.readAllLines(file));
+        }
+
+        @Test
+        @DisplayName("truncates the file at the first record that fails its checksum")
+        void corruptedRecord() throws IOException {
+            crashAfterInserts(StorageFormat.TEXT, "bets.txt", 3);
+            byte[] bytes = Files.readAllBytes(file);
+            int secondLine = Files.readAllLines(file).get(0).getBytes(StandardCharsets.UTF_8).length + 1;
+            bytes[secondLine + "202405101530,F".length()] = 'X';
+            Files.write(file, bytes);
+
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.txt");
+            ChecksumJournal.Recovery recovery = reopened.enableChecksums();
+            assertEquals(1, recovery.verifiedRecords());
+            assertEquals(2, recovery.tornRecords());
+            assertEquals(List.of(BET), Files.readAllLines(file));
+            assertEquals(1, reopened.findBets("Futbol").size());
+        }
+
+        @Test
+        @DisplayName("drops a partial binary record")
+        void partialBinaryRecord() throws IOException {
+            crashAfterInserts(StorageFormat.BINARY, "bets.bin", 2);
+            Path binary = directory.resolve("bets.bin");
+            Files.write(binary, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+            assertEquals(new ChecksumJournal.Recovery(2, 1, 3), reopened.enableChecksums());
+            assertEquals(2L * BinaryBetStore.RECORD_SIZE, Files.size(binary));
+        }
+    }
+
+    @Nested
+    @DisplayName("Checkpoints")
+    class CheckpointTests {
+
+        @Test
+        @DisplayName("only the records written since the last checkpoint are checked")
+        void checksOnlyTheTail() throws IOException {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.txt");
+            utils.enableChecksums(4L * (BET.length() + 2));
+            for (int i = 0; i < 10; i++) {
+                utils.insertStringIntoDataFile(BET);
+            }
+            assertTrue(Files.size(ChecksumJournal.journalOf(file)) <= 4L * ChecksumJournal.ENTRY_SIZE);
+
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.txt");
+            ChecksumJournal.Recovery recovery = reopened.enableChecksums();
+            assertTrue(recovery.verifiedRecords() < 4);
+            assertEquals(0, recovery.tornRecords());
+            assertEquals(10, reopened.findBets("Futbol").size());
+        }
+
+        @Test
+        @DisplayName("a reset starts a new journal")
+        void resetJournal() throws Exception {
+            DataFileUtils utils = crashAfterInserts(StorageFormat.TEXT, "bets.txt", 2);
+            utils.resetDataFile(false).get();
+            utils.insertStringIntoDataFile(BET);
+
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.txt");
+            assertEquals(new ChecksumJournal.Recovery(1, 0, 0), reopened.enableChecksums());
+        }
+
+        @Test
+        @DisplayName("entries follow a journal replaced by another writer's checkpoint")
+        void sharedJournal() throws IOException {
+            DataFileUtils first = new DataFileUtils(directory.toString(), "bets.txt");
+            first.enableChecksums();
+            DataFileUtils second = new DataFileUtils(directory.toString(), "bets.txt");
+            second.enableChecksums(1);
+            second.insertStringIntoDataFile(BET);
+            long offset = Files.size(file);
+            first.insertStringIntoDataFile(BET);
+
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[(int) offset + "202405101530,F".length()] = 'X';
+            Files.write(file, bytes);
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.txt");
+            assertEquals(new ChecksumJournal.Recovery(0, 1, bytes.length - offset), reopened.enableChecksums());
+            assertEquals(List.of(BET), Files.readAllLines(file));
+        }
+
+        @Test
+        @DisplayName("combined and batched writes are journaled with their records")
+        void combinedWrites() throws Exception {
+            ConcurrentDataFileUtils utils = new ConcurrentDataFileUtils(directory.toString(), "bets.txt");
+            utils.enableChecksums();
+            Thread[] writers = new Thread[4];
+            for (int t = 0; t < writers.length; t++) {
+                writers[t] = Thread.ofPlatform().start(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        utils.insertStringIntoDataFile(BET);
+                    }
+                });
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            utils.enableBatchedWrites(16, 1, false);
+            utils.insertStringIntoDataFile(BET);
+            utils.disableBatchedWrites();
+
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.txt");
+            ChecksumJournal.Recovery recovery = reopened.enableChecksums();
+            assertTrue(recovery.verifiedRecords() > 0);
+            assertEquals(0, recovery.tornRecords());
+            assertEquals(201, reopened.findBets("Futbol").size());
+        }
+
+        @Test
+        @DisplayName("is not available for segmented storage")
+        void segmented() {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.txt", StorageFormat.SEGMENTED);
+            assertThrows(IllegalStateException.class, utils::enableChecksums);
+        }
+    }
+}
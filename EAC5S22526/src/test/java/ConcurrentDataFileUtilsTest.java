@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("ConcurrentDataFileUtils")
+class ConcurrentDataFileUtilsTest {
+
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int BETS_PER_WRITER = 500;
+
+    private String directoryName;
+    private String fileName;
+
+    @BeforeEach
+    void setup() {
+        directoryName = "concurrent-test-" + UUID.randomUUID();
+        fileName = "bets-test.txt";
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Path directory = Paths.get(directoryName);
+        if (Files.exists(directory)) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("many writers and readers share one instance")
+    void stress() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        try (ConcurrentDataFileUtils utils = new ConcurrentDataFileUtils(directoryName, fileName)) {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                String sport = "Esport" + w;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < BETS_PER_WRITER; i++) {
+                        String timestamp = String.format("202405%02d%02d%02d", 1 + i / 100, i / 60 % 24, i % 60);
+                        utils.insertStringIntoDataFile(timestamp + "," + sport + ",Event" + (i % 5) + ",Empat,2.0,"
+                                + (i + 1) + ".0");
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                String sport = "Esport" + r;
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    while (writing.get()) {
+                        List<Bet> bets = utils.findBets(sport);
+                        for (Bet bet : bets) {
+                            assertEquals(sport, bet.sport());
+                        }
+                        try (Stream<Bet> all = utils.streamBets()) {
+                            assertTrue(all.count() >= bets.size());
+                        }
+                        assertTrue(utils.dataFileExists());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+
+            long total = (long) WRITERS * BETS_PER_WRITER;
+            assertEquals(total, utils.getIndex().size());
+            try (Stream<Bet> bets = utils.streamBets()) {
+                assertEquals(total, bets.count());
+            }
+            for (int w = 0; w < WRITERS; w++) {
+                List<Bet> bets = utils.findBets("Esport" + w);
+                assertEquals(BETS_PER_WRITER, bets.size());
+                assertEquals(BETS_PER_WRITER / 5, utils.findBets("Esport" + w, "Event3").size());
+            }
+            assertEquals(total, utils.findBetsBetween("202405010000", "202406010000").size());
+            assertEquals((long) WRITERS * 100, utils.findBetsBetween("202405030000", "202405040000").size());
+
+            DataFileUtils reopened = new DataFileUtils(directoryName, fileName);
+            assertEquals(total, reopened.getIndex().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("caches file checks until the instance changes the file")
+    void cachesFileState() throws IOException {
+        try (ConcurrentDataFileUtils utils = new ConcurrentDataFileUtils(directoryName, fileName)) {
+            assertTrue(utils.dataFileExists());
+            Files.delete(Paths.get(directoryName, fileName));
+            assertTrue(utils.dataFileExists());
+            utils.invalidateFileState();
+            assertFalse(utils.dataFileExists());
+        }
+    }
+
+    @Test
+    @DisplayName("inserts after a delete and recreate, or after close, reach the file")
+    void deleteRecreateAndClose() throws IOException {
+        String bet = "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00";
+        ConcurrentDataFileUtils utils = new ConcurrentDataFileUtils(directoryName, fileName);
+        utils.insertStringIntoDataFile(bet);
+        utils.deleteDataFile();
+        utils.createDataFile();
+        utils.insertStringIntoDataFile(bet);
+        assertEquals(List.of(bet), Files.readAllLines(Paths.get(directoryName, fileName)));
+
+        utils.close();
+        utils.insertStringIntoDataFile(bet);
+        assertEquals(List.of(bet, bet), Files.readAllLines(Paths.get(directoryName, fileName)));
+        utils.close();
+    }
+}
@@ -8,7 +8,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -206,6 +213,65 @@ class DataFileUtilsTest {
         }
     }
 
+    @Nested
+    @DisplayName("Streaming")
+    class StreamBetsTests {
+
+        @Test
+        @DisplayName("streams parsed bets and skips malformed lines")
+        void streamBetsSkipsMalformed() throws IOException {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+            Files.writeString(filePath(), "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00\n"
+                    + "malformed line\n"
+                    + "202405111000,Tenis,Nadal-Alcaraz,Guanyador Set 1 Nadal,1.55,100.00\n");
+
+            try (Stream<Bet> bets = utils.streamBets()) {
+                List<Bet> list = bets.toList();
+                assertEquals(2, list.size());
+                assertEquals("Futbol", list.get(0).sport());
+                assertEquals(100.0f, list.get(1).amount());
+            }
+        }
+
+        @Test
+        @DisplayName("starts after the skipped rows, counting malformed lines")
+        void streamBetsFromRow() throws IOException {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+            Files.writeString(filePath(), "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00\n"
+                    + "malformed line\n"
+                    + "202405111000,Tenis,Nadal-Alcaraz,Guanyador Set 1 Nadal,1.55,100.00\n");
+
+            try (Stream<Bet> bets = utils.streamBets(2)) {
+                assertEquals(List.of("Tenis"), bets.map(Bet::sport).toList());
+            }
+            try (Stream<Bet> bets = utils.streamBets(5)) {
+                assertEquals(0, bets.count());
+            }
+            assertThrows(IllegalArgumentException.class, () -> utils.streamBets(-1));
+        }
+
+        @Test
+        @DisplayName("releases the file when the stream is closed")
+        void streamBetsClosesFile() throws IOException {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+            Files.writeString(filePath(), "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00\n");
+
+            try (Stream<Bet> bets = utils.streamBets()) {
+                assertEquals(1, bets.count());
+            }
+            assertTrue(Files.deleteIfExists(filePath()));
+        }
+
+        @Test
+        @DisplayName("throws IllegalStateException when file missing")
+        void streamBetsMissingFile() throws IOException {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+            Files.deleteIfExists(filePath());
+
+            assertThrows(IllegalStateException.class, utils::streamBets);
+        }
+    }
+
     @Nested
     @DisplayName("Writing String Content")
     class InsertStringTests {
@@ -410,6 +476,325 @@ class DataFileUtilsTest {
         }
     }
 
+    @Nested
+    @DisplayName("Batched writes")
+    class BatchedWriteTests {
+
+        @Test
+        @DisplayName("concurrent inserts are all written as complete lines")
+        void concurrentInsertsAreWritten() throws Exception {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+            utils.enableBatchedWrites(64, 2, false);
+            int threads = 8;
+            int perThread = 200;
+            try {
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int id = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            assertTrue(utils.insertBetIntoDataFile("Futbol", "Event " + id, "WIN", 1.5f, i + 1f));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                executor.shutdown();
+            } finally {
+                utils.disableBatchedWrites();
+            }
+
+            try (Stream<Bet> bets = utils.streamBets()) {
+                assertEquals(threads * perThread, bets.count());
+            }
+        }
+
+        @Test
+        @DisplayName("insert returns after the line is on disk")
+        void insertIsVisibleOnReturn() throws IOException {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+            utils.enableBatchedWrites(16, 50, true);
+            try {
+                assertTrue(utils.insertStringIntoDataFile("First line"));
+                assertEquals("First line", Files.readString(filePath()).trim());
+            } finally {
+                utils.disableBatchedWrites();
+            }
+        }
+
+        @Test
+        @DisplayName("rejects invalid configuration")
+        void rejectsInvalidConfiguration() {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+
+            assertThrows(IllegalArgumentException.class, () -> utils.enableBatchedWrites(0, 1, false));
+            assertThrows(IllegalArgumentException.class, () -> utils.enableBatchedWrites(1, -1, false));
+        }
+    }
+
+    @Nested
+    @DisplayName("Sport and event index")
+    class IndexTests {
+
+        @Test
+        @DisplayName("index is built from the existing file at construction")
+        void indexBuiltAtConstruction() throws IOException {
+            Files.createDirectories(dirPath());
+            Files.writeString(filePath(), "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00\n"
+                    + "202405101645,Futbol,Girona-Betis,Més de 2.5 gols,2.10,20.50\n"
+                    + "malformed line\n"
+                    + "202405111000,Futbol,Barça-Madrid,Empat,3.20,10.00\n");
+
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+
+            assertEquals(3, utils.getIndex().size());
+            List<Bet> bets = utils.findBets("Futbol", "Barça-Madrid");
+            assertEquals(2, bets.size());
+            assertEquals("Empat", bets.get(1).betType());
+            assertEquals(3, utils.findBets("Futbol").size());
+            assertTrue(utils.findBets("Tenis", "Nadal-Alcaraz").isEmpty());
+        }
+
+        @Test
+        @DisplayName("inserts update the index incrementally")
+        void insertsUpdateIndex() {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+
+            utils.insertBetIntoDataFile("Futbol", "Barça-Madrid", "Guanyador Local", 1.85f, 50f);
+            utils.insertStringIntoDataFile("202405111000,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00\n"
+                    + "202405111100,Futbol,Barça-Madrid,Empat,3.20,10.00");
+            utils.insertStringIntoDataFile("Not a bet");
+
+            List<Bet> bets = utils.findBets("Futbol", "Barça-Madrid");
+            assertEquals(2, bets.size());
+            assertEquals(10.0f, bets.get(1).amount());
+            assertEquals(List.of("Nadal-Alcaraz"), utils.findBets("Tenis").stream().map(Bet::event).toList());
+        }
+
+        @Test
+        @DisplayName("binary files are indexed by record offset")
+        void binaryIndex() {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName, StorageFormat.BINARY);
+            utils.insertBetIntoDataFile("Futbol", "Barça-Madrid", "Guanyador Local", 1.85f, 50f);
+            utils.insertBetIntoDataFile("Tenis", "Nadal-Alcaraz", "Guanyador", 1.55f, 10f);
+
+            DataFileUtils reopened = new DataFileUtils(directoryName, fileName, StorageFormat.BINARY);
+            assertEquals(1, reopened.findBets("Tenis", "Nadal-Alcaraz").size());
+            assertEquals(50.0f, reopened.findBets("Futbol").get(0).amount());
+        }
+    }
+
+    @Nested
+    @DisplayName("Time-range queries")
+    class TimeRangeTests {
+
+        @Test
+        @DisplayName("returns the bets in [from, to) including late records")
+        void findsBetsBetween() throws IOException {
+            Files.createDirectories(dirPath());
+            StringBuilder content = new StringBuilder();
+            for (int minute = 0; minute < 60; minute++) {
+                content.append(String.format("2024051015%02d,Futbol,Barça-Madrid,Empat,3.20,10.00%n", minute));
+                if (minute == 40) {
+                    content.append("202405101505,Futbol,Girona-Betis,Empat,3.20,10.00\n");
+                }
+            }
+            Files.writeString(filePath(), content.toString());
+
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+            utils.insertStringIntoDataFile("202405101600,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00");
+
+            assertEquals(5, utils.findBetsBetween("202405101510", "202405101515").size());
+            assertEquals(List.of("Girona-Betis"), utils.findBetsBetween("202405101505", "202405101506").stream()
+                    .map(Bet::event).filter("Girona-Betis"::equals).toList());
+            assertEquals(List.of("Nadal-Alcaraz"), utils.findBetsBetween("202405101600", "202405101700")
+                    .stream().map(Bet::event).toList());
+            assertTrue(utils.findBetsBetween("202405101700", "202405101800").isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> utils.findBetsBetween("10/05/2024", "202405101800"));
+        }
+
+        @Test
+        @DisplayName("works on binary files")
+        void findsBinaryBetsBetween() {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName, StorageFormat.BINARY);
+            utils.insertStringIntoDataFile("202405101530,Futbol,Barça-Madrid,Empat,3.20,10.00");
+            utils.insertStringIntoDataFile("202405101645,Futbol,Girona-Betis,Empat,3.20,10.00");
+
+            DataFileUtils reopened = new DataFileUtils(directoryName, fileName, StorageFormat.BINARY);
+            List<Bet> bets = reopened.findBetsBetween("202405101600", "202405101700");
+            assertEquals(1, bets.size());
+            assertEquals("202405101645", bets.get(0).timestamp());
+        }
+    }
+
+    @Nested
+    @DisplayName("Segmented storage")
+    class SegmentedTests {
+
+        @Test
+        @DisplayName("reads, indexes and queries bets across segments")
+        void segmentedReads() {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName, StorageFormat.SEGMENTED);
+            utils.insertStringIntoDataFile("202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00\n"
+                    + "202406011000,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00");
+            utils.insertStringIntoDataFile("202405201530,Futbol,Barça-Madrid,Empat,3.20,10.00");
+            assertThrows(IllegalArgumentException.class, () -> utils.insertStringIntoDataFile("Not a bet"));
+
+            DataFileUtils reopened = new DataFileUtils(directoryName, fileName, StorageFormat.SEGMENTED);
+            assertEquals(2, reopened.getSegments().size());
+            assertEquals(3, reopened.getInfoFromDataFileIntoString().lines().count());
+            assertEquals(2, reopened.findBets("Futbol", "Barça-Madrid").size());
+            assertEquals(List.of("Nadal-Alcaraz"), reopened.findBetsBetween("202406010000", "202407010000")
+                    .stream().map(Bet::event).toList());
+        }
+
+        @Test
+        @DisplayName("retention drops whole segments and their index entries")
+        void dropSegments() {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName, StorageFormat.SEGMENTED);
+            utils.insertStringIntoDataFile("202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00");
+            utils.insertStringIntoDataFile("202406011000,Futbol,Barça-Madrid,Empat,3.20,10.00");
+
+            assertEquals(1, utils.dropSegmentsBefore("202406010000"));
+            assertEquals(1, utils.getIndex().size());
+            assertEquals("Empat", utils.findBets("Futbol").get(0).betType());
+            assertThrows(IllegalStateException.class, () -> new DataFileUtils(directoryName, "plain.txt")
+                    .dropSegmentsBefore("202406010000"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Session")
+    class SessionTests {
+
+        @Test
+        @DisplayName("appends and reads through the open channels")
+        void sessionInsertsAndReads() throws IOException {
+            try (DataFileUtils utils = new DataFileUtils(directoryName, fileName).openSession()) {
+                assertTrue(utils.isSessionOpen());
+                utils.insertStringIntoDataFile("202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00");
+                utils.insertExactBetIntoDataFile("Futbol", "Barça-Madrid", "Empat", 3200, 1000);
+
+                assertEquals(List.of("Guanyador Local", "Empat"),
+                        utils.findBets("Futbol", "Barça-Madrid").stream().map(Bet::betType).toList());
+                assertEquals(2, Files.readAllLines(filePath()).size());
+                utils.close();
+                assertFalse(utils.isSessionOpen());
+                utils.insertStringIntoDataFile("202405101600,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00");
+                assertEquals(3, utils.findBets("Futbol").size() + utils.findBets("Tenis").size());
+            }
+        }
+
+        @Test
+        @DisplayName("refresh picks up appends made from outside")
+        void sessionRefresh() throws IOException {
+            try (DataFileUtils utils = new DataFileUtils(directoryName, fileName).openSession()) {
+                utils.insertStringIntoDataFile("202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00");
+                Files.writeString(filePath(), "202405101545,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00\n",
+                        java.nio.file.StandardOpenOption.APPEND);
+                utils.insertStringIntoDataFile("202405101600,Futbol,Girona-Betis,Empat,3.10,5.00");
+
+                utils.refresh();
+                assertEquals(List.of("Barça-Madrid", "Girona-Betis"),
+                        utils.findBets("Futbol").stream().map(Bet::event).toList());
+                assertEquals("Nadal-Alcaraz", utils.findBets("Tenis").get(0).event());
+
+                utils.resetDataFile(false).join();
+                utils.insertStringIntoDataFile("202405101700,Futbol,Girona-Betis,Empat,3.10,5.00");
+                assertEquals(1, Files.readAllLines(filePath()).size());
+                assertEquals(1, utils.findBets("Futbol").size());
+            }
+        }
+
+        @Test
+        @DisplayName("inserts follow a file replaced by another process after a refresh")
+        void sessionReplacedFile() throws IOException {
+            try (DataFileUtils utils = new DataFileUtils(directoryName, fileName).openSession()) {
+                utils.insertStringIntoDataFile("202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00");
+                Path replacement = dirPath().resolve("replacement.txt");
+                Files.writeString(replacement, "202405101545,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00\n");
+                Files.move(replacement, filePath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                utils.refresh();
+                assertEquals(1, utils.findBets("Tenis").size());
+                utils.insertStringIntoDataFile("202405101600,Futbol,Girona-Betis,Empat,3.10,5.00");
+                assertEquals(List.of("202405101545,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00",
+                        "202405101600,Futbol,Girona-Betis,Empat,3.10,5.00"), Files.readAllLines(filePath()));
+            }
+        }
+
+        @Test
+        @DisplayName("is not available for segmented storage")
+        void sessionSegmented() {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName, StorageFormat.SEGMENTED);
+            assertThrows(IllegalStateException.class, utils::openSession);
+        }
+    }
+
+    @Nested
+    @DisplayName("Reset")
+    class ResetTests {
+
+        @Test
+        @DisplayName("swaps in an empty file while open readers finish on the old one")
+        void resetKeepsReaders() throws Exception {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName);
+            utils.insertStringIntoDataFile("202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00");
+            utils.insertStringIntoDataFile("202405101545,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00");
+
+            try (Stream<Bet> before = utils.streamBets()) {
+                assertEquals(null, utils.resetDataFile(false).get());
+                assertEquals(2, before.count());
+            }
+            assertEquals(0, Files.size(filePath()));
+            assertTrue(utils.findBets("Futbol").isEmpty());
+            try (Stream<Path> files = Files.list(dirPath())) {
+                assertEquals(List.of(fileName, fileName + AppendLock.SUFFIX),
+                        files.map(path -> path.getFileName().toString()).sorted().toList());
+            }
+
+            utils.insertStringIntoDataFile("202405101600,Futbol,Girona-Betis,Empat,3.10,5.00");
+            assertEquals(List.of("Girona-Betis"), utils.lastBets(10).stream().map(Bet::event).toList());
+        }
+
+        @Test
+        @DisplayName("archives the old file, with its dictionaries in binary mode")
+        void resetArchives() throws Exception {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName, StorageFormat.BINARY);
+            utils.insertStringIntoDataFile("202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00");
+
+            Path archived = utils.resetDataFile(true).get();
+            assertTrue(archived.getFileName().toString().endsWith(BetStorage.RETIRED_SUFFIX));
+            assertEquals(0, Files.size(filePath()));
+            List<Bet> old = new BinaryBetStore(archived).last(1);
+            assertEquals("Barça-Madrid", old.get(0).event());
+
+            utils.insertStringIntoDataFile("202405101600,Futbol,Girona-Betis,Empat,3.10,5.00");
+            assertEquals(1, utils.streamBets().count());
+            assertEquals("Girona-Betis", utils.lastBets(1).get(0).event());
+        }
+
+        @Test
+        @DisplayName("concurrent instances keep appending to the new file")
+        void resetWithAppendQueue() throws Exception {
+            try (ConcurrentDataFileUtils utils = new ConcurrentDataFileUtils(directoryName, fileName)) {
+                utils.insertStringIntoDataFile("202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00");
+                utils.resetDataFile(false).get();
+                utils.insertStringIntoDataFile("202405101600,Futbol,Girona-Betis,Empat,3.10,5.00");
+            }
+            assertEquals(List.of("202405101600,Futbol,Girona-Betis,Empat,3.10,5.00"), Files.readAllLines(filePath()));
+        }
+
+        @Test
+        @DisplayName("is not available for segmented storage")
+        void resetSegmented() {
+            DataFileUtils utils = new DataFileUtils(directoryName, fileName, StorageFormat.SEGMENTED);
+            assertThrows(IllegalStateException.class, () -> utils.resetDataFile(false));
+        }
+    }
+
     @Nested
     @DisplayName("Flags and Paths")
     class FlagsAndPathsTests {
@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("DataFileWatcher")
+class DataFileWatcherTest {
+
+    private static final String BET = "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00";
+    private static final String TENNIS = "202405111200,Tennis,Nadal-Federer,Guanyador,2.10,20.00";
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("watcher-test-");
+        file = directory.resolve("bets.txt");
+        Files.writeString(file, BET + "\n");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Records what a watcher delivers.
+     */
+    private static final class Recorder implements DataFileWatcher.Listener {
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void betAppended(Bet bet, long offset) {
+            events.add(offset + ":" + bet.sport());
+        }
+
+        @Override
+        public void fileReset() {
+            events.add("reset");
+        }
+    }
+
+    @Nested
+    @DisplayName("Polling")
+    class PollingTests {
+
+        @Test
+        @DisplayName("delivers only the complete lines appended after the position")
+        void appendedLines() throws IOException {
+            long start = Files.size(file);
+            DataFileWatcher watcher = new DataFileWatcher(file, start, DataFileWatcher.DEFAULT_POLL_MILLIS);
+            Recorder recorder = new Recorder();
+            watcher.addListener(recorder);
+
+            assertEquals(start, watcher.poll());
+            append(file, TENNIS + "\n" + "202405111300,Fut");
+            watcher.poll();
+            assertEquals(List.of(start + ":Tennis"), recorder.events);
+
+            append(file, "bol,Girona-Betis,Empat,3.10,5.00\n");
+            long next = start + TENNIS.length() + 1;
+            assertEquals(Files.size(file), watcher.poll());
+            assertEquals(List.of(start + ":Tennis", next + ":Futbol"), recorder.events);
+        }
+
+        @Test
+        @DisplayName("an own append is taken over unless other lines come before it")
+        void ownAppends() throws IOException {
+            long start = Files.size(file);
+            DataFileWatcher watcher = new DataFileWatcher(file, start, DataFileWatcher.DEFAULT_POLL_MILLIS);
+            Recorder recorder = new Recorder();
+            watcher.addListener(recorder);
+            List<Long> own = new CopyOnWriteArrayList<>();
+
+            append(file, TENNIS + "\n");
+            assertTrue(watcher.appended(start, TENNIS.length() + 1, own::add));
+            assertEquals(List.of(start), own);
+            assertEquals(List.of(), recorder.events);
+
+            long other = Files.size(file);
+            append(file, BET + "\n" + TENNIS + "\n");
+            long mine = other + (BET + "\n").getBytes(StandardCharsets.UTF_8).length;
+            assertFalse(watcher.appended(mine, TENNIS.length() + 1, own::add));
+            assertEquals(List.of(other + ":Futbol", mine + ":Tennis"), recorder.events);
+            assertFalse(watcher.appended(mine, TENNIS.length() + 1, own::add));
+            assertEquals(2, recorder.events.size());
+            assertEquals(Files.size(file), watcher.position());
+        }
+
+        @Test
+        @DisplayName("a truncated or replaced file is delivered again from the start")
+        void resets() throws IOException {
+            DataFileWatcher watcher = new DataFileWatcher(file, Files.size(file), DataFileWatcher.DEFAULT_POLL_MILLIS);
+            Recorder recorder = new Recorder();
+            watcher.addListener(recorder);
+
+            Files.writeString(file, "");
+            watcher.poll();
+            assertEquals(List.of("reset"), recorder.events);
+
+            recorder.events.clear();
+            append(file, BET + "\n" + BET + "\n");
+            watcher.poll();
+            Path replacement = directory.resolve("replacement.txt");
+            Files.writeString(replacement, TENNIS + "\n" + TENNIS + "\n" + TENNIS + "\n");
+            Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            watcher.poll();
+            long first = BET.getBytes(StandardCharsets.UTF_8).length + 1;
+            long second = TENNIS.length() + 1;
+            assertEquals(List.of("0:Futbol", first + ":Futbol", "reset", "0:Tennis", second + ":Tennis",
+                    2 * second + ":Tennis"), recorder.events);
+        }
+
+        @Test
+        @DisplayName("the background thread picks up appends by itself")
+        void background() throws Exception {
+            CountDownLatch delivered = new CountDownLatch(1);
+            try (DataFileWatcher watcher = new DataFileWatcher(file, Files.size(file), 50)) {
+                watcher.addListener(new DataFileWatcher.Listener() {
+                    @Override
+                    public void betAppended(Bet bet, long offset) {
+                        delivered.countDown();
+                    }
+
+                    @Override
+                    public void fileReset() {
+                    }
+                });
+                watcher.start();
+                append(file, TENNIS + "\n");
+                assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("DataFileUtils")
+    class DataFileUtilsTests {
+
+        @Test
+        @DisplayName("bets appended by other processes reach the index once")
+        void externalAppends() throws IOException {
+            try (DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.txt").openSession()) {
+                utils.watchDataFile(DataFileWatcher.DEFAULT_POLL_MILLIS);
+                append(file, TENNIS + "\n");
+                utils.insertStringIntoDataFile(BET);
+                assertEquals(1, utils.findBets("Tennis").size());
+                assertEquals(2, utils.findBets("Futbol").size());
+                assertEquals(3, utils.getIndex().size());
+            }
+        }
+
+        @Test
+        @DisplayName("a replaced file rebuilds the index")
+        void replaced() throws IOException {
+            try (DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.txt").openSession()) {
+                DataFileWatcher watcher = utils.watchDataFile(DataFileWatcher.DEFAULT_POLL_MILLIS);
+                Path replacement = directory.resolve("replacement.txt");
+                Files.writeString(replacement, TENNIS + "\n" + TENNIS + "\n");
+                Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                watcher.poll();
+                assertEquals(0, utils.findBets("Futbol").size());
+                assertEquals(2, utils.findBets("Tennis").size());
+            }
+        }
+
+        @Test
+        @DisplayName("a local reset hands the new file to the watcher at once")
+        void localReset() throws IOException {
+            try (DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.txt").openSession()) {
+                DataFileWatcher watcher = utils.watchDataFile(60_000);
+                utils.resetDataFile(false).join();
+                assertEquals(0, watcher.position());
+                utils.insertStringIntoDataFile(TENNIS);
+                assertEquals(1, utils.findBets("Tennis").size());
+                assertEquals(0, utils.findBets("Futbol").size());
+                assertEquals(TENNIS.length() + 1, watcher.position());
+            }
+        }
+
+        @Test
+        @DisplayName("only text files can be watched")
+        void textOnly() {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+            assertThrows(IllegalStateException.class, () -> utils.watchDataFile(DataFileWatcher.DEFAULT_POLL_MILLIS));
+        }
+    }
+}
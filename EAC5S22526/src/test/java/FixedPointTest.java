@@ -0,0 +1,87 @@
+import java.util.Locale;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@DisplayName("FixedPoint")
+class FixedPointTest {
+
+    @Nested
+    @DisplayName("Parsing")
+    class ParsingTests {
+
+        @Test
+        @DisplayName("parses plain decimals into thousandths and cents")
+        void parsesDecimals() {
+            assertEquals(1850, FixedPoint.parse("1.85", FixedPoint.ODDS_DECIMALS));
+            assertEquals(7550, FixedPoint.parse("75.5", FixedPoint.AMOUNT_DECIMALS));
+            assertEquals(5, FixedPoint.parse("0.05", FixedPoint.AMOUNT_DECIMALS));
+            assertEquals(-200, FixedPoint.parse("-2", FixedPoint.AMOUNT_DECIMALS));
+            assertEquals(1000, FixedPoint.parse("+10.", FixedPoint.AMOUNT_DECIMALS));
+        }
+
+        @Test
+        @DisplayName("rounds extra decimals half up")
+        void roundsExtraDecimals() {
+            assertEquals(1856, FixedPoint.parse("1.8555", FixedPoint.ODDS_DECIMALS));
+            assertEquals(1001, FixedPoint.parse("10.005", FixedPoint.AMOUNT_DECIMALS));
+            assertEquals(1000, FixedPoint.parse("10.0049", FixedPoint.AMOUNT_DECIMALS));
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"", "-", ".", "1,5", "1e3", "1.2.3", "12345678901234567"})
+        @DisplayName("rejects text that is not a plain decimal")
+        void rejectsInvalid(String text) {
+            assertEquals(FixedPoint.INVALID, FixedPoint.parse(text, FixedPoint.AMOUNT_DECIMALS));
+        }
+    }
+
+    @Nested
+    @DisplayName("Formatting")
+    class FormattingTests {
+
+        @Test
+        @DisplayName("compact form keeps one decimal at least")
+        void compact() {
+            assertEquals("1.8", FixedPoint.toString(1800, FixedPoint.ODDS_DECIMALS));
+            assertEquals("1.855", FixedPoint.toString(1855, FixedPoint.ODDS_DECIMALS));
+            assertEquals("75.5", FixedPoint.toString(7550, FixedPoint.AMOUNT_DECIMALS));
+            assertEquals("2.0", FixedPoint.toString(200, FixedPoint.AMOUNT_DECIMALS));
+            assertEquals("-0.05", FixedPoint.toString(-5, FixedPoint.AMOUNT_DECIMALS));
+        }
+
+        @Test
+        @DisplayName("padded form matches %.2f whatever the default locale")
+        void padded() {
+            Locale previous = Locale.getDefault();
+            Locale.setDefault(Locale.GERMANY);
+            try {
+                assertEquals("    1.86", FixedPoint.appendPadded(new StringBuilder(), 1855, 3, 2, 8).toString());
+                assertEquals("     75.50", FixedPoint.appendPadded(new StringBuilder(), 7550, 2, 2, 10).toString());
+                assertEquals("-0.05", FixedPoint.appendPadded(new StringBuilder(), -5, 2, 2, 3).toString());
+            } finally {
+                Locale.setDefault(previous);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("sums of many cents are exact")
+    void exactSums() {
+        long total = 0;
+        float floatTotal = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            total += FixedPoint.parse("0.10", FixedPoint.AMOUNT_DECIMALS);
+            floatTotal += 0.10f;
+        }
+
+        assertEquals("100000.0", FixedPoint.toString(total, FixedPoint.AMOUNT_DECIMALS));
+        assertNotEquals(100000f, floatTotal);
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("IndexSnapshot")
+class IndexSnapshotTest {
+
+    private static final String BET = "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00";
+    private static final String TENNIS = "202405111200,Tennis,Nadal-Federer,Guanyador,2.10,20.00";
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test-");
+        file = directory.resolve("bets.txt");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private DataFileUtils withBets(StorageFormat format, String name, int bets) {
+        DataFileUtils utils = new DataFileUtils(directory.toString(), name, format);
+        for (int i = 0; i < bets; i++) {
+            utils.insertStringIntoDataFile(i % 2 == 0 ? BET : TENNIS);
+        }
+        return utils;
+    }
+
+    @Nested
+    @DisplayName("Format")
+    class FormatTests {
+
+        @Test
+        @DisplayName("restores the entries before the covered offset")
+        void roundTrip() throws IOException {
+            Files.writeString(file, "x".repeat(10_000));
+            BetIndex index = new BetIndex();
+            SparseTimestampIndex timestamps = new SparseTimestampIndex();
+            for (int i = 0; i < 100; i++) {
+                index.add(i % 3 == 0 ? "Futbol" : "Tennis", "event " + (i % 7), i * 100L);
+                timestamps.add(202405101530L + i, i * 100L);
+            }
+            IndexSnapshot snapshot = new IndexSnapshot(file, StorageFormat.TEXT);
+            assertTrue(snapshot.save(index, timestamps, 5_000));
+
+            BetIndex loaded = new BetIndex();
+            SparseTimestampIndex loadedTimestamps = new SparseTimestampIndex();
+            assertEquals(5_000, snapshot.load(loaded, loadedTimestamps));
+            assertEquals(50, loaded.size());
+            assertEquals(index.sports(), loaded.sports());
+            long[] covered = Arrays.stream(index.offsets("Tennis", "event 4")).filter(offset -> offset < 5_000)
+                    .toArray();
+            assertArrayEquals(covered, loaded.offsets("Tennis", "event 4"));
+            assertArrayEquals(timestamps.range(202405101535L, 202405101540L),
+                    loadedTimestamps.range(202405101535L, 202405101540L));
+        }
+
+        @Test
+        @DisplayName("is rejected when the covered bytes changed or the file is corrupt")
+        void rejected() throws IOException {
+            Files.writeString(file, "x".repeat(100));
+            BetIndex index = new BetIndex();
+            index.add("Futbol", "Barça-Madrid", 0);
+            IndexSnapshot snapshot = new IndexSnapshot(file, StorageFormat.TEXT);
+            assertFalse(snapshot.save(index, new SparseTimestampIndex(), 200));
+            assertTrue(snapshot.save(index, new SparseTimestampIndex(), 100));
+
+            BetIndex loaded = new BetIndex();
+            assertEquals(-1, new IndexSnapshot(file, StorageFormat.BINARY).load(loaded, new SparseTimestampIndex()));
+            Files.writeString(file, "y".repeat(100));
+            assertEquals(-1, snapshot.load(loaded, new SparseTimestampIndex()));
+
+            Files.writeString(file, "x".repeat(100));
+            Path snapshotFile = IndexSnapshot.snapshotOf(file);
+            byte[] bytes = Files.readAllBytes(snapshotFile);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(snapshotFile, bytes);
+            assertEquals(-1, snapshot.load(loaded, new SparseTimestampIndex()));
+            assertEquals(0, loaded.size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Startup")
+    class StartupTests {
+
+        @Test
+        @DisplayName("only the bytes appended after the snapshot are scanned")
+        void replaysTheTail() throws IOException {
+            DataFileUtils utils = withBets(StorageFormat.TEXT, "bets.txt", 200);
+            long covered = utils.saveSnapshot();
+            assertEquals(Files.size(file), covered);
+            Files.writeString(file, BET + "\n", StandardOpenOption.APPEND);
+            // a change before the fingerprinted tail is trusted to the snapshot
+            byte[] bytes = Files.readAllBytes(file);
+            byte[] sport = "Futbol".getBytes(StandardCharsets.UTF_8);
+            System.arraycopy("Hoquei".getBytes(StandardCharsets.UTF_8), 0, bytes, BET.indexOf("Futbol"),
+                    sport.length);
+            Files.write(file, bytes);
+
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.txt");
+            assertEquals(101, reopened.getIndex().offsets("Futbol").length);
+            assertEquals(100, reopened.getIndex().offsets("Tennis").length);
+            reopened.rebuildIndex();
+            assertEquals(100, reopened.getIndex().offsets("Futbol").length);
+        }
+
+        @Test
+        @DisplayName("binary files resume after the last covered record")
+        void binary() {
+            DataFileUtils utils = withBets(StorageFormat.BINARY, "bets.bin", 10);
+            assertEquals(10L * BinaryBetStore.RECORD_SIZE, utils.saveSnapshot());
+            utils.insertStringIntoDataFile(TENNIS);
+
+            DataFileUtils reopened = new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY);
+            assertEquals(11, reopened.getIndex().size());
+            assertEquals(utils.findBets("Tennis"), reopened.findBets("Tennis"));
+        }
+
+        @Test
+        @DisplayName("a replaced or reset file is indexed from scratch")
+        void invalidated() throws Exception {
+            DataFileUtils utils = withBets(StorageFormat.TEXT, "bets.txt", 4);
+            utils.saveSnapshot();
+            Files.writeString(file, TENNIS + "\n" + TENNIS + "\n" + TENNIS + "\n" + TENNIS + "\n");
+            assertEquals(4, new DataFileUtils(directory.toString(), "bets.txt").findBets("Tennis").size());
+
+            utils.saveSnapshot();
+            utils.resetDataFile(false).join();
+            assertFalse(Files.exists(IndexSnapshot.snapshotOf(file)));
+            utils.insertStringIntoDataFile(BET);
+            assertEquals(1, new DataFileUtils(directory.toString(), "bets.txt").getIndex().size());
+        }
+
+        @Test
+        @DisplayName("closing saves a last snapshot when they are enabled")
+        void savedOnClose() {
+            try (DataFileUtils utils = withBets(StorageFormat.TEXT, "bets.txt", 3)) {
+                utils.enableSnapshots(IndexSnapshot.DEFAULT_PERIOD_MILLIS);
+                utils.insertStringIntoDataFile(BET);
+            }
+            BetIndex loaded = new BetIndex();
+            assertTrue(new IndexSnapshot(file, StorageFormat.TEXT).load(loaded, new SparseTimestampIndex()) > 0);
+            assertEquals(4, loaded.size());
+            assertThrows(IllegalArgumentException.class,
+                    () -> new DataFileUtils(directory.toString(), "bets.txt").enableSnapshots(0));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("MappedBetScanner")
+class MappedBetScannerTest {
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("mapped-scanner-test-");
+        file = directory.resolve("bets.txt");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("small windows see the same bets as the text reader")
+    void smallWindowsMatchTextReader() throws IOException {
+        BetFileGenerator.generate(file, 500, 7L);
+        List<Bet> expected;
+        try (Stream<Bet> bets = new DataFileUtils(directory.toString(), "bets.txt").streamBets()) {
+            expected = bets.toList();
+        }
+
+        List<Bet> scanned = new ArrayList<>();
+        try (MappedBetScanner scanner = new MappedBetScanner(file, 256)) {
+            long end = scanner.scanAllBets((bet, offset) -> scanned.add(bet.toBet()));
+            assertEquals(Files.size(file), end);
+        }
+        assertEquals(expected, scanned);
+    }
+
+    @Test
+    @DisplayName("offsets point at the start of each line")
+    void offsetsPointAtLines() throws IOException {
+        Files.writeString(file, "202405101530,Futbol,A-B,Guanyador,1.85,50.00\n"
+                + "202405101645,Tenis,C-D,Empat,2.10,20.50\n");
+        List<Long> offsets = new ArrayList<>();
+        try (MappedBetScanner scanner = new MappedBetScanner(file)) {
+            scanner.scanAllBets((bet, offset) -> offsets.add(offset));
+        }
+        assertEquals(List.of(0L, 45L), offsets);
+    }
+
+    @Test
+    @DisplayName("scanNewBets only reads appended lines and waits for a complete line")
+    void followsAppends() throws IOException {
+        Files.writeString(file, "202405101530,Futbol,A-B,Guanyador,1.85,50.00\n");
+        try (MappedBetScanner scanner = new MappedBetScanner(file)) {
+            List<String> sports = new ArrayList<>();
+            scanner.scanAllBets((bet, offset) -> sports.add(bet.fieldAsString(BetLineParser.SPORT)));
+
+            Files.writeString(file, "202405101645,Tenis,C-D,Empat,2.10,20.50\n202405101700,Basket,E-F",
+                    StandardOpenOption.APPEND);
+            scanner.scanNewBets((bet, offset) -> sports.add(bet.fieldAsString(BetLineParser.SPORT)));
+
+            Files.writeString(file, ",Empat,2.10,20.50\n", StandardOpenOption.APPEND);
+            scanner.scanNewBets((bet, offset) -> sports.add(bet.fieldAsString(BetLineParser.SPORT)));
+
+            assertEquals(List.of("Futbol", "Tenis", "Basket"), sports);
+            assertEquals(Files.size(file), scanner.scannedUpTo());
+        }
+    }
+
+    @Test
+    @DisplayName("rejects lines longer than the window")
+    void rejectsTooLongLines() throws IOException {
+        Files.writeString(file, "202405101530,Futbol,A-B,Guanyador,1.85,50.00\n");
+        try (MappedBetScanner scanner = new MappedBetScanner(file, 16)) {
+            assertThrows(IllegalStateException.class, () -> scanner.scanAllBets((bet, offset) -> { }));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("ParallelBetScanner")
+class ParallelBetScannerTest {
+
+    private static final int LINES = 20_000;
+
+    private Path directory;
+    private Path file;
+    private List<Bet> expected;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("parallel-scanner-test-");
+        file = directory.resolve("bets.txt");
+        BetFileGenerator.generate(file, LINES, 3L);
+        Files.writeString(file, "malformed line\n202405101530,Futbol,partial", StandardOpenOption.APPEND);
+        try (Stream<Bet> bets = new DataFileUtils(directory.toString(), "bets.txt").streamBets()) {
+            expected = bets.limit(LINES).toList();
+        }
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("parallel stream keeps every bet once and in order")
+    void parallelStreamKeepsOrder() {
+        ParallelBetScanner scanner = new ParallelBetScanner(file, 4096, ForkJoinPool.commonPool());
+        try (Stream<Bet> bets = scanner.stream(true)) {
+            assertEquals(expected, bets.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("parallel aggregation matches a sequential one")
+    void aggregateMatchesSequential() {
+        ParallelBetScanner scanner = new ParallelBetScanner(file, 4096, new ForkJoinPool(4));
+
+        long[] totals = scanner.aggregate(() -> new long[2], (partial, bet) -> {
+            partial[0]++;
+            partial[1] += Math.round(bet.amount() * 100.0);
+        }, (left, right) -> new long[] {left[0] + right[0], left[1] + right[1]});
+
+        assertEquals(LINES, totals[0]);
+        long expectedCents = expected.stream().mapToLong(bet -> Math.round(bet.amount() * 100.0)).sum();
+        assertEquals(expectedCents, totals[1]);
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("ReverseLineReader")
+class ReverseLineReaderTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("reverse-test-");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private List<String> readBackwards(Path file, int blockSize) {
+        List<String> lines = new ArrayList<>();
+        try (ReverseLineReader reader = new ReverseLineReader(file, blockSize)) {
+            while (reader.previous()) {
+                lines.add(reader.line());
+            }
+        }
+        return lines;
+    }
+
+    @Nested
+    @DisplayName("Lines")
+    class LineTests {
+
+        @ParameterizedTest
+        @ValueSource(ints = {1, 3, 7, 64, 4096})
+        @DisplayName("returns every complete line newest first, whatever the block size")
+        void readsBackwards(int blockSize) throws IOException {
+            Path file = directory.resolve("lines.txt");
+            Files.writeString(file, "first\n\nUTF-8 àèò €\r\n" + "x".repeat(100) + "\nlast\npartial");
+
+            assertEquals(List.of("last", "x".repeat(100), "UTF-8 àèò €", "", "first"), readBackwards(file, blockSize));
+        }
+
+        @Test
+        @DisplayName("empty files and files without a complete line have no lines")
+        void emptyFiles() throws IOException {
+            Path file = directory.resolve("empty.txt");
+            Files.writeString(file, "");
+            assertTrue(readBackwards(file, 4).isEmpty());
+
+            Files.writeString(file, "no newline yet");
+            try (ReverseLineReader reader = new ReverseLineReader(file, 4)) {
+                assertFalse(reader.previous());
+            }
+        }
+
+        @Test
+        @DisplayName("rejects a block size that is not positive")
+        void rejectsBlockSize() throws IOException {
+            Path file = Files.writeString(directory.resolve("lines.txt"), "a\n");
+            assertThrows(IllegalArgumentException.class, () -> new ReverseLineReader(file, 0));
+        }
+    }
+
+    @Nested
+    @DisplayName("DataFileUtils.lastBets")
+    class LastBetsTests {
+
+        private static final int BETS = 5_000;
+
+        private String bets() {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < BETS; i++) {
+                text.append("202405101530,Futbol,Partit ").append(i).append(",Guanyador,1.5,").append(i).append(".00\n");
+                if (i % 1000 == 0) {
+                    text.append("malformed line\n");
+                }
+            }
+            return text.toString();
+        }
+
+        @Test
+        @DisplayName("returns the newest bets first in text and binary files")
+        void newestFirst() throws IOException {
+            Path text = Files.writeString(directory.resolve("bets.txt"), bets());
+            BetFileConverter.csvToBinary(text, directory.resolve("bets.bin"));
+
+            for (DataFileUtils utils : List.of(new DataFileUtils(directory.toString(), "bets.txt"),
+                    new DataFileUtils(directory.toString(), "bets.bin", StorageFormat.BINARY))) {
+                List<Bet> last = utils.lastBets(3);
+                assertEquals(List.of("Partit 4999", "Partit 4998", "Partit 4997"),
+                        last.stream().map(Bet::event).toList());
+                assertEquals(499_800, last.get(1).amountCents());
+                assertEquals(BETS, utils.lastBets(BETS * 2).size());
+                assertTrue(utils.lastBets(0).isEmpty());
+            }
+        }
+
+        @Test
+        @DisplayName("rejects a negative count")
+        void rejectsNegativeCount() {
+            DataFileUtils utils = new DataFileUtils(directory.toString(), "bets.txt");
+            assertThrows(IllegalArgumentException.class, () -> utils.lastBets(-1));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("SegmentedBetStore")
+class SegmentedBetStoreTest {
+
+    private static final String MAY = "202405101530,Futbol,Barça-Madrid,Guanyador Local,1.85,50.00";
+    private static final String JUNE = "202406011000,Tenis,Nadal-Alcaraz,Guanyador,1.55,100.00";
+
+    private Path directory;
+    private Path manifest;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("segmented-store-test-");
+        manifest = directory.resolve("bets.txt");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("splits bets by month and reloads the manifest")
+    void segmentsByMonth() {
+        SegmentedBetStore store = new SegmentedBetStore(manifest);
+        long first = store.append(MAY);
+        long second = store.append(JUNE);
+        store.append(MAY);
+
+        SegmentedBetStore reopened = new SegmentedBetStore(manifest);
+        List<SegmentedBetStore.Segment> segments = reopened.segments();
+        assertEquals(2, segments.size());
+        assertEquals("202405", segments.get(0).month());
+        assertEquals(2, segments.get(0).count());
+        assertEquals(202405101530L, segments.get(0).maxTimestamp());
+        assertEquals(0, SegmentedBetStore.offset(first));
+        assertTrue(SegmentedBetStore.segmentId(first) != SegmentedBetStore.segmentId(second));
+        assertEquals(1, reopened.segmentsBetween(202406000000L, 202407000000L).size());
+        try (Stream<String> lines = reopened.lines()) {
+            assertEquals(List.of(MAY, MAY, JUNE), lines.toList());
+        }
+        assertThrows(IllegalArgumentException.class, () -> reopened.append("malformed line"));
+    }
+
+    @Test
+    @DisplayName("rolls a month over when its segment is full")
+    void rollsOverWhenFull() {
+        SegmentedBetStore store = new SegmentedBetStore(manifest, 100);
+        store.append(MAY);
+        store.append(MAY);
+        store.append(MAY);
+
+        assertEquals(3, store.segments().size());
+        assertTrue(store.segments().stream().allMatch(segment -> segment.count() == 1));
+    }
+
+    @Test
+    @DisplayName("drops old segments by deleting their files")
+    void dropsOldSegments() {
+        SegmentedBetStore store = new SegmentedBetStore(manifest);
+        store.append(MAY);
+        store.append(JUNE);
+        Path may = store.pathOf(store.segments().get(0));
+
+        assertEquals(1, store.dropBefore(202406000000L).size());
+        assertFalse(Files.exists(may));
+        assertEquals(1, new SegmentedBetStore(manifest).segments().size());
+    }
+
+    @Test
+    @DisplayName("writes the manifest on rollover and close, and rebuilds the tail on open")
+    void manifestOnlyOnRolloverAndClose() throws IOException {
+        SegmentedBetStore store = new SegmentedBetStore(manifest);
+        store.append(MAY);
+        String created = Files.readString(manifest);
+        store.append(MAY);
+        store.append(MAY);
+        assertEquals(created, Files.readString(manifest));
+
+        SegmentedBetStore.Segment tail = new SegmentedBetStore(manifest).segments().get(0);
+        assertEquals(3, tail.count());
+        assertEquals(Files.size(store.pathOf(tail)), tail.bytes());
+
+        store.close();
+        assertTrue(Files.readString(manifest).contains(",3," + tail.bytes()));
+        store.append(JUNE);
+        store.close();
+        assertEquals(2, new SegmentedBetStore(manifest).segments().size());
+    }
+
+    @Test
+    @DisplayName("cuts off a line torn by a crash before appending again")
+    void cutsTornLine() throws IOException {
+        SegmentedBetStore store = new SegmentedBetStore(manifest);
+        store.append(MAY);
+        Path path = store.pathOf(store.segments().get(0));
+        long complete = Files.size(path);
+        Files.writeString(path, MAY + "\n" + MAY.substring(0, 20), StandardOpenOption.APPEND);
+
+        SegmentedBetStore reopened = new SegmentedBetStore(manifest);
+        assertEquals(2, reopened.segments().get(0).count());
+        assertEquals(2 * complete, reopened.segments().get(0).bytes());
+        assertEquals(2 * complete, Files.size(path));
+        long address = reopened.append(MAY);
+        assertEquals(2 * complete, SegmentedBetStore.offset(address));
+        try (Stream<String> lines = reopened.lines()) {
+            assertEquals(List.of(MAY, MAY, MAY), lines.toList());
+        }
+    }
+}
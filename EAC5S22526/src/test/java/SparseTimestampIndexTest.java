@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("SparseTimestampIndex")
+class SparseTimestampIndexTest {
+
+    private static final int RECORD = 1024;
+
+    private static SparseTimestampIndex indexOf(long... timestamps) {
+        SparseTimestampIndex index = new SparseTimestampIndex();
+        for (int i = 0; i < timestamps.length; i++) {
+            index.add(timestamps[i], (long) i * RECORD);
+        }
+        return index;
+    }
+
+    @Test
+    @DisplayName("ordered records map to the blocks covering the range")
+    void orderedRange() {
+        SparseTimestampIndex index = indexOf(10, 11, 12, 13, 20, 21, 22, 23, 30, 31, 32, 33, 40, 41, 42, 43);
+
+        assertEquals(4, index.blocks());
+        assertArrayEquals(new long[] {4 * RECORD, 8 * RECORD}, index.range(20, 23));
+        assertArrayEquals(new long[] {4 * RECORD, Long.MAX_VALUE}, index.range(21, 100));
+        assertArrayEquals(new long[] {0, 4 * RECORD}, index.range(0, 12));
+    }
+
+    @Test
+    @DisplayName("late records widen the range instead of being missed")
+    void lateRecords() {
+        SparseTimestampIndex index = indexOf(10, 11, 12, 13, 20, 21, 22, 23, 30, 15, 32, 33);
+
+        long[] range = index.range(15, 16);
+        assertTrue(range[0] <= 9 * RECORD);
+        assertTrue(range[1] > 9 * RECORD);
+    }
+
+    @Test
+    @DisplayName("empty ranges and empty indexes match nothing")
+    void emptyRanges() {
+        assertArrayEquals(new long[] {0, 0}, new SparseTimestampIndex().range(0, 100));
+        SparseTimestampIndex index = indexOf(10, 11, 12, 13);
+        assertArrayEquals(new long[] {0, 0}, index.range(50, 60));
+        assertArrayEquals(new long[] {0, 0}, index.range(12, 12));
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("StringDictionary")
+class StringDictionaryTest {
+
+    private Path file;
+
+    @BeforeEach
+    void setup() throws IOException {
+        file = Files.createTempFile("dictionary-test-", ".sports");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @DisplayName("ids persist and stay stable across reloads")
+    void persistsIds() {
+        StringDictionary first = new StringDictionary(file);
+        assertEquals(0, first.idOf("Futbol"));
+        assertEquals(1, first.idOf("Tenis"));
+        assertEquals(0, first.idOf("Futbol"));
+
+        StringDictionary reloaded = new StringDictionary(file);
+        assertEquals(2, reloaded.size());
+        assertEquals(1, reloaded.lookup("Tenis"));
+        assertEquals(2, reloaded.idOf("Bàsquet"));
+        assertEquals("Bàsquet", reloaded.valueOf(2));
+    }
+
+    @Test
+    @DisplayName("buffer lookups find values without decoding them")
+    void looksUpBytes() {
+        StringDictionary dictionary = new StringDictionary();
+        for (int i = 0; i < 100; i++) {
+            dictionary.idOf("Esport " + i);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap("x,Esport 42,y".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(42, dictionary.lookup(buffer, 2, 11));
+        assertSame(dictionary.valueOf(42), dictionary.intern(buffer, 2, 11));
+        assertEquals(-1, dictionary.lookup(buffer, 0, 1));
+    }
+
+    @Test
+    @DisplayName("text lookups match the UTF-8 values without copying them")
+    void looksUpChars() {
+        StringDictionary dictionary = new StringDictionary();
+        dictionary.idOf("Futbol");
+        dictionary.idOf("Bàsquet");
+        dictionary.idOf("Escacs \uD83D\uDE00");
+        StringBuilder text = new StringBuilder("x,Bàsquet,Escacs \uD83D\uDE00,y");
+
+        assertEquals(1, dictionary.lookup(text, 2, 9));
+        assertSame(dictionary.valueOf(2), dictionary.intern(text, 10, 19));
+        assertEquals(-1, dictionary.lookup(text, 2, 8));
+        assertEquals(dictionary.lookup(ByteBuffer.wrap("Bàsquet".getBytes(StandardCharsets.UTF_8)), 0, 8),
+                dictionary.lookup("Bàsquet"));
+    }
+
+    @Test
+    @DisplayName("a full dictionary refuses ids but still interns")
+    void bounded() {
+        StringDictionary dictionary = new StringDictionary(file, 2);
+        dictionary.idOf("Futbol");
+        dictionary.idOf("Tenis");
+
+        assertTrue(dictionary.isFull());
+        assertThrows(IllegalStateException.class, () -> dictionary.idOf("Hoquei"));
+        assertEquals("Hoquei", dictionary.intern("Hoquei"));
+        assertEquals(-1, dictionary.lookup("Hoquei"));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.idOf("a\nb"));
+        assertEquals(2, new StringDictionary(file).size());
+    }
+}
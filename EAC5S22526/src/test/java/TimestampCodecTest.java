@@ -0,0 +1,74 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("TimestampCodec")
+class TimestampCodecTest {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(Constants.DATE_FORMAT);
+
+    @Test
+    @DisplayName("epoch minutes agree with java.time")
+    void matchesJavaTime() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            int minutes = random.nextInt(200 * 366 * 24 * 60) - 50 * 366 * 24 * 60;
+            String expected = EPOCH.plusMinutes(minutes).format(FORMATTER);
+
+            long timestamp = TimestampCodec.fromEpochMinutes(minutes);
+            assertEquals(expected, TimestampCodec.format(timestamp));
+            assertEquals(minutes, TimestampCodec.toEpochMinutes(timestamp));
+        }
+        LocalDateTime leapDay = LocalDateTime.of(2024, 2, 29, 23, 59);
+        assertEquals(ChronoUnit.MINUTES.between(EPOCH, leapDay), TimestampCodec.toEpochMinutes(202402292359L));
+    }
+
+    @Test
+    @DisplayName("parses and encodes 12 ASCII digits in place")
+    void parsesAndEncodes() {
+        ByteBuffer buffer = ByteBuffer.wrap("x202405101530,".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(202405101530L, TimestampCodec.parse(buffer, 1, 13));
+        assertEquals(202405101530L, TimestampCodec.parse("202405101530", 0, 12));
+        assertEquals(TimestampCodec.INVALID, TimestampCodec.parse("20240510153", 0, 11));
+        assertEquals(TimestampCodec.INVALID, TimestampCodec.parse("2024051015a0", 0, 12));
+
+        byte[] target = new byte[14];
+        assertEquals(13, TimestampCodec.encode(200001010005L, target, 1));
+        assertEquals("200001010005", new String(target, 1, 12, StandardCharsets.US_ASCII));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {202413010000L, 202402300000L, 202302290000L, 202405102400L, 202405101560L, -1L})
+    @DisplayName("rejects dates that do not exist")
+    void rejectsInvalidDates(long timestamp) {
+        assertFalse(TimestampCodec.isValid(timestamp));
+        assertThrows(IllegalArgumentException.class, () -> TimestampCodec.toEpochMinutes(timestamp));
+    }
+
+    @Test
+    @DisplayName("the current minute is formatted once")
+    void cachesCurrentMinute() {
+        String first = TimestampCodec.nowText();
+        String second = TimestampCodec.nowText();
+        if (first.equals(second)) {
+            assertSame(first, second);
+        }
+        assertTrue(TimestampCodec.isValid(TimestampCodec.now()));
+        assertEquals(TimestampCodec.DIGITS, first.length());
+    }
+}
@@ -2,6 +2,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Locale;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -263,6 +264,44 @@ public class UtilsIOTest {
         }
     }
 
+    @Nested
+    @DisplayName("showBetsPaged")
+    class ShowBetsPagedTests {
+
+        private static final Bet BET = new Bet("202405101530", "Futbol", "Barça-Madrid", "Empat", 3.2f, 10f);
+
+        @Test
+        @DisplayName("stops after a page when the user enters q")
+        void stopsOnQuit() {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(output));
+
+            UtilsIO io = ioWithInput("\nq\n");
+            long shown = io.showBetsPaged(Stream.generate(() -> BET), 10);
+
+            assertEquals(20, shown);
+            String text = output.toString();
+            assertEquals(2, text.split(Constants.MESSAGE_NEXT_PAGE, -1).length - 1);
+            assertTrue(text.contains("3.20"));
+        }
+
+        @Test
+        @DisplayName("ends with the stream without waiting for the user")
+        void endsWithStream() {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(output));
+
+            UtilsIO io = ioWithInput("");
+            Bet other = new Bet("202405101531", "Tenis", "Nadal-Alcaraz", "Guanyador", 1.55f, 100f);
+            long shown = io.showBetsPaged(Stream.of(BET, other), 10);
+
+            assertEquals(2, shown);
+            String text = output.toString();
+            assertTrue(text.contains("Nadal-Alcaraz"));
+            assertFalse(text.contains(Constants.MESSAGE_NEXT_PAGE));
+        }
+    }
+
     @Nested
     @DisplayName("showBets")
     class ShowBetsTests {